@@ -0,0 +1,59 @@
+package org.asciidoc.intellij.benchmark;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Documents used as input for the benchmarks: the change log with lists and heavy inline formatting,
+ * the contributor's guide on lexing and parsing with many listings, the user's guide on the editor,
+ * and a synthetic document with tables, nested blocks, listings and inline formatting.
+ * Real-world documents are taken from this repository; the location of the repository is passed by the build
+ * in the system property <code>asciidoc.benchmark.corpus</code>.
+ * Documents prefixed with <code>classpath:</code> are bundled with the benchmarks; they are repeated
+ * to make them large enough.
+ */
+final class Corpus {
+
+  private static final String CLASSPATH = "classpath:";
+  private static final int REPETITIONS = 20;
+
+  private Corpus() {
+  }
+
+  static String load(String document) throws IOException {
+    if (document.startsWith(CLASSPATH)) {
+      String name = "/corpus/" + document.substring(CLASSPATH.length());
+      try (InputStream is = Objects.requireNonNull(Corpus.class.getResourceAsStream(name), "resource not found: " + name)) {
+        String text = IOUtils.toString(is, UTF_8);
+        StringBuilder sb = new StringBuilder(text.length() * REPETITIONS);
+        for (int i = 0; i < REPETITIONS; ++i) {
+          sb.append(text).append('\n');
+        }
+        return sb.toString();
+      }
+    }
+    return new String(Files.readAllBytes(file(document).toPath()), UTF_8);
+  }
+
+  /**
+   * Folder of the document, as used as the base folder when rendering.
+   */
+  static File baseDir(String document) {
+    if (document.startsWith(CLASSPATH)) {
+      return new File(System.getProperty("java.io.tmpdir"));
+    }
+    return file(document).getParentFile();
+  }
+
+  private static File file(String document) {
+    return new File(System.getProperty("asciidoc.benchmark.corpus", "."), document);
+  }
+
+}
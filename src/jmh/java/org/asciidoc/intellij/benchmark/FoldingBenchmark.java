@@ -0,0 +1,68 @@
+package org.asciidoc.intellij.benchmark;
+
+import com.intellij.lang.folding.FoldingDescriptor;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import org.asciidoc.intellij.AsciiDocLanguage;
+import org.asciidoc.intellij.folding.AsciiDocFoldingBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the folding regions of a complete document that has been parsed once during setup,
+ * as the editor does after each change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FoldingBenchmark {
+
+  @Param({
+    "CHANGELOG.adoc",
+    "doc/contributors-guide/modules/ROOT/pages/coder/lexing-and-parsing.adoc",
+    "doc/users-guide/modules/ROOT/pages/features/editor.adoc",
+    "classpath:tables-and-blocks.adoc"
+  })
+  private String document;
+
+  private PsiFile file;
+  private Document text;
+  private AsciiDocFoldingBuilder foldingBuilder;
+
+  @Setup
+  public void setUp(PlatformState platform) throws IOException {
+    String content = Corpus.load(document);
+    ReadAction.run(() -> {
+      file = PsiFileFactory.getInstance(platform.getProject()).createFileFromText("benchmark.adoc", AsciiDocLanguage.INSTANCE, content);
+      text = Objects.requireNonNull(PsiDocumentManager.getInstance(platform.getProject()).getDocument(file));
+      // build the PSI tree once, it is not part of the measurement
+      file.getNode().getChildren(null);
+    });
+    foldingBuilder = new AsciiDocFoldingBuilder();
+  }
+
+  @Benchmark
+  public FoldingDescriptor[] buildFoldRegions() {
+    return ReadAction.compute(() -> foldingBuilder.buildFoldRegions(file, text, false));
+  }
+
+}
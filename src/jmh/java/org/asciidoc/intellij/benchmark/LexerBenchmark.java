@@ -0,0 +1,79 @@
+package org.asciidoc.intellij.benchmark;
+
+import com.intellij.psi.tree.IElementType;
+import org.asciidoc.intellij.lexer.AsciiDocLexer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexes a complete document. Reports the time per document and the tokens per second
+ * (as the secondary result <code>tokens</code>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark {
+
+  @Param({
+    "CHANGELOG.adoc",
+    "doc/contributors-guide/modules/ROOT/pages/coder/lexing-and-parsing.adoc",
+    "doc/users-guide/modules/ROOT/pages/features/editor.adoc",
+    "classpath:tables-and-blocks.adoc"
+  })
+  private String document;
+
+  private String text;
+
+  /**
+   * Tokens lexed, reported by JMH as a rate in addition to the time per document.
+   */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  @SuppressWarnings("checkstyle:VisibilityModifier") // JMH requires public fields for counters
+  public static class Tokens {
+    public long tokens;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      tokens = 0;
+    }
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    text = Corpus.load(document);
+  }
+
+  @Benchmark
+  public IElementType lex(Tokens counter) {
+    AsciiDocLexer lexer = new AsciiDocLexer();
+    lexer.start(text);
+    IElementType last = null;
+    int count = 0;
+    while (lexer.getTokenType() != null) {
+      last = lexer.getTokenType();
+      ++count;
+      lexer.advance();
+    }
+    counter.tokens += count;
+    return last;
+  }
+
+}
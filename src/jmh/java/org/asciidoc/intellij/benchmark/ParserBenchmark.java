@@ -0,0 +1,63 @@
+package org.asciidoc.intellij.benchmark;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.PsiBuilder;
+import com.intellij.lang.PsiBuilderFactory;
+import com.intellij.openapi.application.ReadAction;
+import org.asciidoc.intellij.lexer.AsciiDocLexer;
+import org.asciidoc.intellij.parser.AsciiDocElementTypes;
+import org.asciidoc.intellij.parser.AsciiDocParser;
+import org.asciidoc.intellij.parser.AsciiDocParserDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a complete document into an AST, including the lexing the parser triggers.
+ * Compare with {@link LexerBenchmark} to see the time spent in the parser itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+  @Param({
+    "CHANGELOG.adoc",
+    "doc/contributors-guide/modules/ROOT/pages/coder/lexing-and-parsing.adoc",
+    "doc/users-guide/modules/ROOT/pages/features/editor.adoc",
+    "classpath:tables-and-blocks.adoc"
+  })
+  private String document;
+
+  private String text;
+  private AsciiDocParserDefinition parserDefinition;
+
+  @Setup
+  public void setUp(PlatformState platform) throws IOException {
+    text = Corpus.load(document);
+    parserDefinition = new AsciiDocParserDefinition();
+  }
+
+  @Benchmark
+  public ASTNode parse(PlatformState platform) {
+    return ReadAction.compute(() -> {
+      PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(parserDefinition, new AsciiDocLexer(), text);
+      return new AsciiDocParser().parse(AsciiDocElementTypes.FILE, builder);
+    });
+  }
+
+}
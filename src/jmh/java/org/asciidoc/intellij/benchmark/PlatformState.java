@@ -0,0 +1,38 @@
+package org.asciidoc.intellij.benchmark;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.testFramework.EdtTestUtil;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.IdeaProjectTestFixture;
+import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A light project within a headless IDE, set up the same way as for the tests.
+ * Once per forked JVM, as starting the application takes several seconds.
+ */
+@State(Scope.Benchmark)
+public class PlatformState {
+
+  private IdeaProjectTestFixture fixture;
+
+  @Setup
+  public void setUp() {
+    IdeaTestFixtureFactory factory = IdeaTestFixtureFactory.getFixtureFactory();
+    fixture = factory.createLightFixtureBuilder(LightProjectDescriptor.EMPTY_PROJECT_DESCRIPTOR).getFixture();
+    EdtTestUtil.runInEdtAndWait(() -> fixture.setUp());
+  }
+
+  @TearDown
+  public void tearDown() {
+    EdtTestUtil.runInEdtAndWait(() -> fixture.tearDown());
+  }
+
+  Project getProject() {
+    return fixture.getProject();
+  }
+
+}
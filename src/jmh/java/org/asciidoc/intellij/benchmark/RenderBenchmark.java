@@ -0,0 +1,54 @@
+package org.asciidoc.intellij.benchmark;
+
+import org.asciidoc.intellij.AsciiDoc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a complete document to HTML as the preview does, using the same Asciidoctor instance for all iterations.
+ * JRuby needs a long time to warm up, therefore this uses more warmup iterations than the other benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RenderBenchmark {
+
+  @Param({
+    "CHANGELOG.adoc",
+    "doc/contributors-guide/modules/ROOT/pages/coder/lexing-and-parsing.adoc",
+    "doc/users-guide/modules/ROOT/pages/features/editor.adoc",
+    "classpath:tables-and-blocks.adoc"
+  })
+  private String document;
+
+  private String text;
+  private AsciiDoc asciidoc;
+
+  @Setup
+  public void setUp(PlatformState platform) throws IOException {
+    text = Corpus.load(document);
+    asciidoc = new AsciiDoc(platform.getProject(), Corpus.baseDir(document), null, "benchmark");
+  }
+
+  @Benchmark
+  public String render() {
+    return asciidoc.render(text, Collections.emptyList());
+  }
+
+}
@@ -0,0 +1,78 @@
+package org.asciidoc.intellij.benchmark;
+
+import org.apache.geronimo.gshell.io.SystemOutputHijacker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints to <code>System.out</code> from several threads, as other plugins and builds do while the hijacker is
+ * installed by {@link org.asciidoc.intellij.AsciiDoc}. Compare the throughput with and without the hijacker.
+ * The output is discarded, so the benchmark measures the routing and locking only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class SystemOutputHijackerBenchmark {
+
+  @Param({"false", "true"})
+  private boolean hijacked;
+
+  private PrintStream original;
+
+  @Setup
+  public void setUp() {
+    original = System.out;
+    System.setOut(new PrintStream(new OutputStream() {
+      @Override
+      public void write(int b) {
+        // discard
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        // discard
+      }
+    }));
+    if (hijacked) {
+      SystemOutputHijacker.install();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (hijacked) {
+      SystemOutputHijacker.uninstall();
+    }
+    System.setOut(original);
+  }
+
+  @Benchmark
+  public void println() {
+    System.out.println("a line of output from a build");
+  }
+
+  @Benchmark
+  public void write() {
+    System.out.write('x');
+  }
+
+}
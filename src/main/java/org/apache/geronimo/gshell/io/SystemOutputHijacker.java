@@ -22,10 +22,15 @@ package org.apache.geronimo.gshell.io;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.Locale;
 
 /**
  * Hijacks the systems standard output and error streams on a per-thread basis
  * and redirects to given streams.
+ * <p>
+ * Once installed, all output of the IDE passes through this class. Therefore routing a write to the current stream
+ * doesn't take any lock: it reads the registration of the current thread and a volatile snapshot of the previous
+ * streams. Only installing, uninstalling and registering streams are synchronized.
  *
  * @version $Rev: 725707 $ $Date: 2008-12-11 16:00:30 +0100 (Thu, 11 Dec 2008) $
  */
@@ -38,22 +43,23 @@ public class SystemOutputHijacker
 
   /**
    * The previously installed System streams, initialized when installing.
+   * Volatile as it is read without a lock when writing to the delegating streams.
    */
-  private static StreamPair previous;
+  private static volatile StreamPair previous;
 
   /**
    * Flag to indicate if the hijacker is installed or not.
    */
-  private static boolean installed;
+  private static volatile boolean installed;
 
   /**
    * Check if the hijacker has been installed.
    */
-  public static synchronized boolean isInstalled() {
+  public static boolean isInstalled() {
     return installed;
   }
 
-  private static synchronized void ensureInstalled() {
+  private static void ensureInstalled() {
     if (!isInstalled()) {
       throw new IllegalStateException("Not installed");
     }
@@ -203,14 +209,19 @@ public class SystemOutputHijacker
   }
 
   /**
-   * Returns the currently registered streams.
+   * Returns the currently registered streams. Doesn't take a lock, as this is called for every write.
    */
-  private static synchronized StreamPair current() {
-    StreamRegistration reg = registration(false);
-    if (reg == null) {
-      return previous;
+  private static StreamPair current() {
+    StreamRegistration reg = registrations.get();
+    if (reg != null) {
+      return reg.streams;
     }
-    return reg.streams;
+    StreamPair streams = previous;
+    if (streams == null) {
+      // uninstalled while another thread is still writing to a delegating stream
+      return StreamPair.SYSTEM;
+    }
+    return streams;
   }
 
   /**
@@ -250,6 +261,139 @@ public class SystemOutputHijacker
       get().write(b, off, len);
     }
 
+    // The methods below would otherwise synchronize on this stream shared by all threads,
+    // and then write to the target stream byte by byte; pass them on so only the target stream is locked.
+
+    @Override
+    public void print(final boolean b) {
+      get().print(b);
+    }
+
+    @Override
+    public void print(final char c) {
+      get().print(c);
+    }
+
+    @Override
+    public void print(final int i) {
+      get().print(i);
+    }
+
+    @Override
+    public void print(final long l) {
+      get().print(l);
+    }
+
+    @Override
+    public void print(final float f) {
+      get().print(f);
+    }
+
+    @Override
+    public void print(final double d) {
+      get().print(d);
+    }
+
+    @Override
+    public void print(final char[] s) {
+      get().print(s);
+    }
+
+    @Override
+    public void print(final String s) {
+      get().print(s);
+    }
+
+    @Override
+    public void print(final Object obj) {
+      get().print(obj);
+    }
+
+    @Override
+    public void println() {
+      get().println();
+    }
+
+    @Override
+    public void println(final boolean x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final char x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final int x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final long x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final float x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final double x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final char[] x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final String x) {
+      get().println(x);
+    }
+
+    @Override
+    public void println(final Object x) {
+      get().println(x);
+    }
+
+    @Override
+    public PrintStream format(final String format, final Object... args) {
+      get().format(format, args);
+      return this;
+    }
+
+    @Override
+    public PrintStream format(final Locale l, final String format, final Object... args) {
+      get().format(l, format, args);
+      return this;
+    }
+
+    @Override
+    public PrintStream append(final CharSequence csq) {
+      get().append(csq);
+      return this;
+    }
+
+    @Override
+    public PrintStream append(final CharSequence csq, final int start, final int end) {
+      get().append(csq, start, end);
+      return this;
+    }
+
+    @Override
+    public PrintStream append(final char c) {
+      get().append(c);
+      return this;
+    }
+
+    @Override
+    public boolean checkError() {
+      return get().checkError();
+    }
+
     @Override
     public void flush() {
       get().flush();
@@ -27,17 +27,20 @@ import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.PsiFile;
+import com.intellij.openapi.vfs.VirtualFileVisitor;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.commons.lang.StringUtils;
 import org.apache.geronimo.gshell.io.SystemOutputHijacker;
 import org.asciidoc.intellij.actions.asciidoc.AsciiDocAction;
+import org.asciidoc.intellij.antora.AntoraComponent;
+import org.asciidoc.intellij.antora.AntoraModel;
 import org.asciidoc.intellij.asciidoc.AntoraIncludeAdapter;
-import org.asciidoc.intellij.asciidoc.AntoraReferenceAdapter;
 import org.asciidoc.intellij.asciidoc.AttributesRetriever;
 import org.asciidoc.intellij.asciidoc.PrependConfig;
+import org.asciidoc.intellij.asciidoc.RenderContext;
 import org.asciidoc.intellij.editor.AsciiDocPreviewEditor;
 import org.asciidoc.intellij.editor.javafx.JavaFxHtmlPanelProvider;
 import org.asciidoc.intellij.settings.AsciiDocApplicationSettings;
@@ -54,11 +57,11 @@ import org.intellij.lang.annotations.Language;
 import org.jcodings.EncodingDB;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
 import org.jruby.exceptions.MainExitException;
 import org.jruby.platform.Platform;
 import org.jruby.util.ByteList;
 import org.jruby.util.SafePropertyAccessor;
-import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.error.YAMLException;
 
 import java.io.File;
@@ -76,15 +79,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceConfigurationError;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -102,22 +109,51 @@ import static org.asciidoc.intellij.psi.AsciiDocUtil.findSpringRestDocSnippets;
  */
 public class AsciiDoc {
 
-  private static class MaxHashMap extends LinkedHashMap<String, Asciidoctor> {
-    @Override
-    protected boolean removeEldestEntry(Map.Entry<String, Asciidoctor> eldest) {
-      // cache up to three instances (for example: javafx, pdf, spring-restdocs)
-      if (this.size() > 3) {
-        eldest.getValue().shutdown();
-        return true;
-      } else {
-        return false;
-      }
+  /**
+   * An Asciidoctor runtime of a specific variant.
+   * The registered extensions are stateless and look up the state of the conversion via a {@link RenderContext}.
+   */
+  private static final class RuntimeInstance {
+    private final String md;
+    private final Asciidoctor asciidoctor;
+
+    private RuntimeInstance(String md, Asciidoctor asciidoctor) {
+      this.md = md;
+      this.asciidoctor = asciidoctor;
     }
   }
 
-  private static final MaxHashMap INSTANCES = new MaxHashMap();
+  /**
+   * Maximum number of Asciidoctor instances across all variants (for example: javafx, pdf, spring-restdocs).
+   * Each instance is a full JRuby runtime, therefore keep this number low.
+   * Can be overwritten with system property <code>asciidoc.runtimes.max</code>.
+   */
+  private static final int MAX_INSTANCES = Math.max(1, Integer.getInteger("asciidoc.runtimes.max",
+    Math.max(3, Math.min(6, Runtime.getRuntime().availableProcessors() / 4))));
 
-  private static boolean shutdown = false;
+  /**
+   * Idle instances by variant, the least recently used variant comes first.
+   * Guarded by the lock on AsciiDoc.class.
+   */
+  private static final LinkedHashMap<String, Deque<RuntimeInstance>> IDLE_INSTANCES = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Number of instances that are either idle or currently checked out.
+   * Guarded by the lock on AsciiDoc.class.
+   */
+  private static int instanceCount = 0;
+
+  /**
+   * Serializes the creation of new instances, as this temporarily changes system properties and output streams.
+   */
+  private static final Object INIT_LOCK = new Object();
+
+  private static volatile boolean shutdown = false;
+
+  /**
+   * Hashes of the extensions by project base path and extension files, as calculating them reads all extension files.
+   */
+  private static final Map<List<String>, String> EXTENSION_HASHES = new ConcurrentHashMap<>();
 
   private static final PrependConfig PREPEND_CONFIG = new PrependConfig();
 
@@ -134,7 +170,7 @@ public class AsciiDoc {
 
   public static void checkUnloadPlugin() {
     synchronized (AsciiDoc.class) {
-      if (INSTANCES.size() > 0) {
+      if (instanceCount > 0) {
         // as beforePluginUnload() is incomplete, vote against reloading
         // as an incomplete unload would leave the user with disabled AsciiDoc funtionality until the next restart.
         throw new CannotUnloadPluginException("expecting JRuby classloader issues, don't allow unloading");
@@ -146,13 +182,15 @@ public class AsciiDoc {
     LOG.info("shutting down Asciidoctor instances");
     synchronized (AsciiDoc.class) {
       shutdown = true;
-      LOG.info("about to shutdown " + INSTANCES.size() + " instances");
-      INSTANCES.forEach((key, value) -> {
-        value.unregisterAllExtensions();
-        value.close();
-      });
-      LOG.info("all instances shut down");
-      INSTANCES.clear();
+      LOG.info("about to shutdown " + instanceCount + " instances");
+      IDLE_INSTANCES.forEach((key, value) -> value.forEach(instance -> {
+        instance.asciidoctor.unregisterAllExtensions();
+        instance.asciidoctor.close();
+        instanceCount--;
+      }));
+      // instances currently in use will be closed once they are returned
+      LOG.info("all idle instances shut down");
+      IDLE_INSTANCES.clear();
       if (SystemOutputHijacker.isInstalled()) {
         SystemOutputHijacker.uninstall();
       }
@@ -192,6 +230,7 @@ public class AsciiDoc {
   private final String name;
   private final String projectBasePath;
   private final Project project;
+  private volatile Map<String, String> attributes = Collections.emptyMap();
 
   public AsciiDoc(Project project, File fileBaseDir, Path imagesPath, String name) {
     this.projectBasePath = project.getBasePath();
@@ -201,149 +240,243 @@ public class AsciiDoc {
     this.project = project;
   }
 
-  private Asciidoctor initWithExtensions(List<String> extensions, boolean springRestDocs, FileType format) {
+  /**
+   * Take an Asciidoctor instance matching the requested variant from the pool, or create a new one.
+   * Blocks while the maximum number of instances is in use by other threads.
+   * Each instance needs to be given back via {@link #returnInstance(RuntimeInstance)} once the conversion completes.
+   */
+  private RuntimeInstance checkoutInstance(List<String> extensions, boolean springRestDocs, FileType format) {
+    boolean extensionsEnabled;
+    AsciiDocApplicationSettings asciiDocApplicationSettings = AsciiDocApplicationSettings.getInstance();
+    if (extensions.size() > 0) {
+      asciiDocApplicationSettings.setExtensionsPresent(projectBasePath, true);
+    }
+    String md;
+    if (Boolean.TRUE.equals(asciiDocApplicationSettings.getExtensionsEnabled(projectBasePath))) {
+      extensionsEnabled = true;
+      md = calcMd(projectBasePath, extensions);
+    } else {
+      extensionsEnabled = false;
+      md = calcMd(projectBasePath, Collections.emptyList());
+    }
+    if (springRestDocs) {
+      md = md + ".restdoc";
+    }
+    if (format == FileType.JAVAFX || format == FileType.HTML) {
+      // special ruby extensions loaded for JAVAFX and HTML
+      md = md + "." + format.name();
+    }
+    boolean krokiEnabled = AsciiDocApplicationSettings.getInstance().getAsciiDocPreviewSettings().isKrokiEnabled();
+    if (krokiEnabled) {
+      md = md + ".kroki";
+    }
+    RuntimeInstance evicted = null;
     synchronized (AsciiDoc.class) {
-      if (shutdown) {
-        throw new ProcessCanceledException();
+      while (true) {
+        if (shutdown) {
+          throw new ProcessCanceledException();
+        }
+        Deque<RuntimeInstance> idle = IDLE_INSTANCES.get(md);
+        if (idle != null && !idle.isEmpty()) {
+          return idle.pop();
+        }
+        if (instanceCount < MAX_INSTANCES) {
+          instanceCount++;
+          break;
+        }
+        evicted = pollLeastRecentlyUsedInstance();
+        if (evicted != null) {
+          // re-use the slot of the evicted instance for the new instance
+          break;
+        }
+        try {
+          AsciiDoc.class.wait(100);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new ProcessCanceledException(e);
+        }
+        ProgressManager.checkCanceled();
       }
-      boolean extensionsEnabled;
-      AsciiDocApplicationSettings asciiDocApplicationSettings = AsciiDocApplicationSettings.getInstance();
-      if (extensions.size() > 0) {
-        asciiDocApplicationSettings.setExtensionsPresent(projectBasePath, true);
+    }
+    if (evicted != null) {
+      evicted.asciidoctor.shutdown();
+    }
+    boolean created = false;
+    try {
+      RuntimeInstance instance = initWithExtensions(md, extensions, extensionsEnabled, springRestDocs, krokiEnabled, format);
+      created = true;
+      return instance;
+    } finally {
+      if (!created) {
+        synchronized (AsciiDoc.class) {
+          instanceCount--;
+          AsciiDoc.class.notifyAll();
+        }
       }
-      String md;
-      if (Boolean.TRUE.equals(asciiDocApplicationSettings.getExtensionsEnabled(projectBasePath))) {
-        extensionsEnabled = true;
-        md = calcMd(projectBasePath, extensions);
-      } else {
-        extensionsEnabled = false;
-        md = calcMd(projectBasePath, Collections.emptyList());
+    }
+  }
+
+  /**
+   * Remove the least recently used idle instance from the pool.
+   * Needs to be called while holding the lock on AsciiDoc.class.
+   */
+  @Nullable
+  private static RuntimeInstance pollLeastRecentlyUsedInstance() {
+    Iterator<Deque<RuntimeInstance>> iterator = IDLE_INSTANCES.values().iterator();
+    while (iterator.hasNext()) {
+      Deque<RuntimeInstance> idle = iterator.next();
+      RuntimeInstance instance = idle.pollLast();
+      if (idle.isEmpty()) {
+        iterator.remove();
       }
-      if (springRestDocs) {
-        md = md + ".restdoc";
+      if (instance != null) {
+        return instance;
       }
-      if (format == FileType.JAVAFX || format == FileType.HTML) {
-        // special ruby extensions loaded for JAVAFX and HTML
-        md = md + "." + format.name();
+    }
+    return null;
+  }
+
+  /**
+   * Give back an instance to the pool after a conversion completed.
+   */
+  private static void returnInstance(RuntimeInstance instance) {
+    boolean close;
+    synchronized (AsciiDoc.class) {
+      close = shutdown;
+      if (close) {
+        instanceCount--;
+      } else {
+        IDLE_INSTANCES.computeIfAbsent(instance.md, k -> new ArrayDeque<>()).push(instance);
       }
-      boolean krokiEnabled = AsciiDocApplicationSettings.getInstance().getAsciiDocPreviewSettings().isKrokiEnabled();
-      if (krokiEnabled) {
-        md = md + ".kroki";
+      AsciiDoc.class.notifyAll();
+    }
+    if (close) {
+      instance.asciidoctor.unregisterAllExtensions();
+      instance.asciidoctor.close();
+    }
+  }
+
+  @SuppressWarnings("checkstyle:ParameterNumber")
+  private RuntimeInstance initWithExtensions(String md, List<String> extensions, boolean extensionsEnabled, boolean springRestDocs,
+                                             boolean krokiEnabled, FileType format) {
+    synchronized (INIT_LOCK) {
+      RuntimeInstance instance = null;
+      Asciidoctor asciidoctor = null;
+      ByteArrayOutputStream boasOut = new ByteArrayOutputStream();
+      ByteArrayOutputStream boasErr = new ByteArrayOutputStream();
+      SystemOutputHijacker.register(new PrintStream(boasOut), new PrintStream(boasErr));
+      LogHandler logHandler = new IntellijLogHandler("initialize");
+      String oldEncoding = null;
+      if (Platform.IS_WINDOWS) {
+        /* There is an initialization procedure in Ruby.java that will abort
+           when the encoding in file.encoding is not known to JRuby. Therefore default to UTF-8 in this case
+           as a most sensible default. */
+        String encoding = System.getProperty("file.encoding", "UTF-8");
+        ByteList bytes = ByteList.create(encoding);
+        EncodingDB.Entry entry = EncodingDB.getEncodings().get(bytes.getUnsafeBytes(), bytes.getBegin(), bytes.getBegin() + bytes.getRealSize());
+        if (entry == null) {
+          entry = EncodingDB.getAliases().get(bytes.getUnsafeBytes(), bytes.getBegin(), bytes.getBegin() + bytes.getRealSize());
+        }
+        if (entry == null) {
+          // this happes for example with -Dfile.encoding=MS949 (Korean?)
+          oldEncoding = encoding;
+          LOG.warn("unsupported encoding " + encoding + " in JRuby, defaulting to UTF-8");
+          System.setProperty("file.encoding", "UTF-8");
+        }
       }
-      Asciidoctor asciidoctor = INSTANCES.get(md);
-      if (asciidoctor == null) {
-        ByteArrayOutputStream boasOut = new ByteArrayOutputStream();
-        ByteArrayOutputStream boasErr = new ByteArrayOutputStream();
-        SystemOutputHijacker.register(new PrintStream(boasOut), new PrintStream(boasErr));
-        LogHandler logHandler = new IntellijLogHandler("initialize");
-        String oldEncoding = null;
-        if (Platform.IS_WINDOWS) {
-          /* There is an initialization procedure in Ruby.java that will abort
-             when the encoding in file.encoding is not known to JRuby. Therefore default to UTF-8 in this case
-             as a most sensible default. */
-          String encoding = System.getProperty("file.encoding", "UTF-8");
-          ByteList bytes = ByteList.create(encoding);
-          EncodingDB.Entry entry = EncodingDB.getEncodings().get(bytes.getUnsafeBytes(), bytes.getBegin(), bytes.getBegin() + bytes.getRealSize());
-          if (entry == null) {
-            entry = EncodingDB.getAliases().get(bytes.getUnsafeBytes(), bytes.getBegin(), bytes.getBegin() + bytes.getRealSize());
-          }
-          if (entry == null) {
-            // this happes for example with -Dfile.encoding=MS949 (Korean?)
-            oldEncoding = encoding;
-            LOG.warn("unsupported encoding " + encoding + " in JRuby, defaulting to UTF-8");
-            System.setProperty("file.encoding", "UTF-8");
-          }
+      try {
+        asciidoctor = createInstance();
+        instance = new RuntimeInstance(md, asciidoctor);
+        asciidoctor.registerLogHandler(logHandler);
+        // require openssl library here to enable download content via https
+        // requiring it later after other libraries have been loaded results in "undefined method `set_params' for #<OpenSSL::SSL::SSLContext"
+        asciidoctor.requireLibrary("openssl");
+        asciidoctor.javaExtensionRegistry().preprocessor(PREPEND_CONFIG);
+        asciidoctor.javaExtensionRegistry().includeProcessor(ANTORA_INCLUDE_ADAPTER);
+        if (format == FileType.JAVAFX || format == FileType.HTML) {
+          asciidoctor.javaExtensionRegistry().postprocessor(ATTRIBUTES_RETRIEVER);
         }
-        try {
-          asciidoctor = createInstance();
-          asciidoctor.registerLogHandler(logHandler);
-          // require openssl library here to enable download content via https
-          // requiring it later after other libraries have been loaded results in "undefined method `set_params' for #<OpenSSL::SSL::SSLContext"
-          asciidoctor.requireLibrary("openssl");
-          asciidoctor.javaExtensionRegistry().preprocessor(PREPEND_CONFIG);
-          asciidoctor.javaExtensionRegistry().includeProcessor(ANTORA_INCLUDE_ADAPTER);
-          if (format == FileType.JAVAFX || format == FileType.HTML) {
-            asciidoctor.javaExtensionRegistry().postprocessor(ATTRIBUTES_RETRIEVER);
-          }
-          // disable JUL logging of captured messages
-          // https://github.com/asciidoctor/asciidoctorj/issues/669
-          Logger.getLogger("asciidoctor").setUseParentHandlers(false);
+        // disable JUL logging of captured messages
+        // https://github.com/asciidoctor/asciidoctorj/issues/669
+        Logger.getLogger("asciidoctor").setUseParentHandlers(false);
 
-          if (!krokiEnabled) {
-            asciidoctor.requireLibrary("asciidoctor-diagram");
-          }
+        if (!krokiEnabled) {
+          asciidoctor.requireLibrary("asciidoctor-diagram");
+        }
 
-          if (format == FileType.JAVAFX) {
-            try (InputStream is = this.getClass().getResourceAsStream("/sourceline-treeprocessor.rb")) {
-              if (is == null) {
-                throw new RuntimeException("unable to load script sourceline-treeprocessor.rb");
-              }
-              asciidoctor.rubyExtensionRegistry().loadClass(is).treeprocessor("SourceLineTreeProcessor");
+        if (format == FileType.JAVAFX) {
+          try (InputStream is = this.getClass().getResourceAsStream("/sourceline-treeprocessor.rb")) {
+            if (is == null) {
+              throw new RuntimeException("unable to load script sourceline-treeprocessor.rb");
             }
+            asciidoctor.rubyExtensionRegistry().loadClass(is).treeprocessor("SourceLineTreeProcessor");
           }
+        }
 
-          if (format == FileType.JAVAFX) {
-            try (InputStream is = this.getClass().getResourceAsStream("/plantuml-png-patch.rb")) {
-              if (is == null) {
-                throw new RuntimeException("unable to load script plantuml-png-patch.rb");
-              }
-              asciidoctor.rubyExtensionRegistry().loadClass(is);
+        if (format == FileType.JAVAFX) {
+          try (InputStream is = this.getClass().getResourceAsStream("/plantuml-png-patch.rb")) {
+            if (is == null) {
+              throw new RuntimeException("unable to load script plantuml-png-patch.rb");
             }
+            asciidoctor.rubyExtensionRegistry().loadClass(is);
           }
-          if (format.backend.equals("html5")) {
-            try (InputStream is = this.getClass().getResourceAsStream("/html5-antora.rb")) {
-              if (is == null) {
-                throw new RuntimeException("unable to load script html5-antora.rb");
-              }
-              asciidoctor.rubyExtensionRegistry().loadClass(is);
-            }
-          } else if (format.backend.equals("pdf")) {
-            try (InputStream is = this.getClass().getResourceAsStream("/pdf-antora.rb")) {
-              if (is == null) {
-                throw new RuntimeException("unable to load script pdf-antora.rb");
-              }
-              asciidoctor.rubyExtensionRegistry().loadClass(is);
+        }
+        if (format.backend.equals("html5")) {
+          try (InputStream is = this.getClass().getResourceAsStream("/html5-antora.rb")) {
+            if (is == null) {
+              throw new RuntimeException("unable to load script html5-antora.rb");
             }
+            asciidoctor.rubyExtensionRegistry().loadClass(is);
           }
-
-          if (springRestDocs) {
-            try (InputStream is = this.getClass().getResourceAsStream("/springrestdoc-operation-blockmacro.rb")) {
-              if (is == null) {
-                throw new RuntimeException("unable to load script springrestdoc-operation-blockmacro.rb");
-              }
-              asciidoctor.rubyExtensionRegistry().loadClass(is);
+        } else if (format.backend.equals("pdf")) {
+          try (InputStream is = this.getClass().getResourceAsStream("/pdf-antora.rb")) {
+            if (is == null) {
+              throw new RuntimeException("unable to load script pdf-antora.rb");
             }
+            asciidoctor.rubyExtensionRegistry().loadClass(is);
           }
+        }
 
-          if (krokiEnabled) {
-            try (InputStream is = this.getClass().getResourceAsStream("/kroki-extension.rb")) {
-              if (is == null) {
-                throw new RuntimeException("unable to load script kroki-extension.rb");
-              }
-              asciidoctor.rubyExtensionRegistry().loadClass(is);
+        if (springRestDocs) {
+          try (InputStream is = this.getClass().getResourceAsStream("/springrestdoc-operation-blockmacro.rb")) {
+            if (is == null) {
+              throw new RuntimeException("unable to load script springrestdoc-operation-blockmacro.rb");
             }
+            asciidoctor.rubyExtensionRegistry().loadClass(is);
           }
+        }
 
-          if (extensionsEnabled) {
-            for (String extension : extensions) {
-              asciidoctor.rubyExtensionRegistry().requireLibrary(extension);
+        if (krokiEnabled) {
+          try (InputStream is = this.getClass().getResourceAsStream("/kroki-extension.rb")) {
+            if (is == null) {
+              throw new RuntimeException("unable to load script kroki-extension.rb");
             }
+            asciidoctor.rubyExtensionRegistry().loadClass(is);
           }
-          INSTANCES.put(md, asciidoctor);
-        } catch (IOException e) {
-          throw new RuntimeException(e);
-        } finally {
-          if (oldEncoding != null) {
-            System.setProperty("file.encoding", oldEncoding);
-          }
-          if (asciidoctor != null) {
-            asciidoctor.unregisterLogHandler(logHandler);
+        }
+
+        if (extensionsEnabled) {
+          for (String extension : extensions) {
+            asciidoctor.rubyExtensionRegistry().requireLibrary(extension);
           }
-          SystemOutputHijacker.deregister();
-          notify(boasOut, boasErr, Collections.emptyList());
         }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      } finally {
+        if (oldEncoding != null) {
+          System.setProperty("file.encoding", oldEncoding);
+        }
+        if (asciidoctor != null) {
+          asciidoctor.unregisterLogHandler(logHandler);
+        }
+        SystemOutputHijacker.deregister();
+        notify(boasOut, boasErr, Collections.emptyList());
       }
-      return asciidoctor;
+      if (shutdown) {
+        asciidoctor.close();
+        throw new ProcessCanceledException();
+      }
+      return instance;
     }
   }
 
@@ -363,8 +496,28 @@ public class AsciiDoc {
    * Calculate a hash for the extensions.
    * Hash will change if the project has been changed, of the contents of files have changed.
    * This will also include all files in subdirectories of the extension when creating the hash.
+   * The result is cached until {@link AsciiDocExtensionsChangeListener} notices a change in an extensions folder.
+   */
+  String calcMd(String projectBasePath, List<String> extensions) {
+    List<String> key = new ArrayList<>(extensions.size() + 1);
+    key.add(projectBasePath);
+    key.addAll(extensions);
+    return EXTENSION_HASHES.computeIfAbsent(key, k -> calcMdUncached(projectBasePath, extensions));
+  }
+
+  /**
+   * Forget all hashes of extensions, as files in an extensions folder have changed.
    */
-  private String calcMd(String projectBasePath, List<String> extensions) {
+  public static void clearExtensionHashes() {
+    EXTENSION_HASHES.clear();
+  }
+
+  @TestOnly
+  static boolean hasExtensionHashes() {
+    return !EXTENSION_HASHES.isEmpty();
+  }
+
+  private String calcMdUncached(String projectBasePath, List<String> extensions) {
     try {
       MessageDigest md = MessageDigest.getInstance("MD5");
       md.update(projectBasePath.getBytes(StandardCharsets.UTF_8));
@@ -377,6 +530,7 @@ public class AsciiDoc {
           Path parent = FileSystems.getDefault().getPath(s).getParent();
           if (!folders.contains(parent)) {
             folders.add(parent);
+            loadIntoVfs(parent);
             try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent, path -> Files.isDirectory(path))) {
               for (Path p : stream) {
                 scanForRubyFiles(p, md);
@@ -398,6 +552,18 @@ public class AsciiDoc {
     }
   }
 
+  /**
+   * The VFS sends events only for files it has loaded. Load the extensions folder with all subfolders,
+   * so that {@link AsciiDocExtensionsChangeListener} notices changes to all files that are part of the hash.
+   */
+  private static void loadIntoVfs(Path folder) {
+    VirtualFile file = LocalFileSystem.getInstance().findFileByIoFile(folder.toFile());
+    if (file != null) {
+      VfsUtilCore.visitChildrenRecursively(file, new VirtualFileVisitor<Void>() {
+      });
+    }
+  }
+
   private void scanForRubyFiles(Path path, MessageDigest md) throws IOException {
     try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
       for (Path p : stream) {
@@ -413,7 +579,7 @@ public class AsciiDoc {
     }
   }
 
-  private void notify(ByteArrayOutputStream boasOut, ByteArrayOutputStream boasErr, List<LogRecord> logRecords) {
+  public void notify(ByteArrayOutputStream boasOut, ByteArrayOutputStream boasErr, List<LogRecord> logRecords) {
     notify(boasOut, boasErr, logRecords,
       !AsciiDocApplicationSettings.getInstance().getAsciiDocPreviewSettings().isShowAsciiDocWarningsAndErrorsInEditor());
   }
@@ -559,55 +725,57 @@ public class AsciiDoc {
       LocalFileSystem.getInstance().findFileByIoFile(fileBaseDir)
     );
     validateAccess();
-    Map<String, String> attributes = populateAntoraAttributes(projectBasePath, fileBaseDir, antoraModuleDir);
+    Map<String, String> attributes = populateAntoraAttributes(project, fileBaseDir, antoraModuleDir);
     attributes.putAll(populateDocumentAttributes(fileBaseDir, name));
-    synchronized (AsciiDoc.class) {
-      if (shutdown) {
-        throw new ProcessCanceledException();
-      }
-      CollectingLogHandler logHandler = new CollectingLogHandler();
-      ByteArrayOutputStream boasOut = new ByteArrayOutputStream();
-      ByteArrayOutputStream boasErr = new ByteArrayOutputStream();
-      // SystemOutputHijacker.register(new PrintStream(boasOut), new PrintStream(boasErr));
+    if (shutdown) {
+      throw new ProcessCanceledException();
+    }
+    CollectingLogHandler logHandler = new CollectingLogHandler();
+    ByteArrayOutputStream boasOut = new ByteArrayOutputStream();
+    ByteArrayOutputStream boasErr = new ByteArrayOutputStream();
+    // SystemOutputHijacker.register(new PrintStream(boasOut), new PrintStream(boasErr));
+    try {
+      RuntimeInstance instance = checkoutInstance(extensions, springRestDocsSnippets != null, format);
       try {
-        Asciidoctor asciidoctor = initWithExtensions(extensions, springRestDocsSnippets != null, format);
+        Asciidoctor asciidoctor = instance.asciidoctor;
         asciidoctor.registerLogHandler(logHandler);
-        PREPEND_CONFIG.setConfig(config);
-        ANTORA_INCLUDE_ADAPTER.setAntoraDetails(project, antoraModuleDir);
-        AntoraReferenceAdapter.setAntoraDetails(project, antoraModuleDir, fileBaseDir, name);
-        try {
-          return "<div id=\"content\"" + (antoraModuleDir != null ? " class=\"doc\"" : "") + ">\n" + asciidoctor.convert(text,
-            getDefaultOptions(FileType.JAVAFX, springRestDocsSnippets, attributes)) + "\n</div>";
+        try (RenderContext context = RenderContext.open(project, antoraModuleDir, fileBaseDir, name, config)) {
+          Map<String, Object> options = getDefaultOptions(FileType.JAVAFX, springRestDocsSnippets, attributes);
+          options.put(RenderContext.OPTION, context.getId());
+          String html = "<div id=\"content\"" + (antoraModuleDir != null ? " class=\"doc\"" : "") + ">\n" + asciidoctor.convert(text,
+            options) + "\n</div>";
+          this.attributes = context.getAttributes();
+          return html;
         } finally {
-          PREPEND_CONFIG.setConfig("");
-          ANTORA_INCLUDE_ADAPTER.setAntoraDetails(null, null);
           asciidoctor.unregisterLogHandler(logHandler);
         }
-      } catch (ProcessCanceledException ex) {
-        throw ex;
-      } catch (Exception | ServiceConfigurationError ex) {
-        LOG.warn("unable to render AsciiDoc document", ex);
-        logHandler.log(new LogRecord(Severity.FATAL, ex.getMessage()));
-        StringBuilder response = new StringBuilder();
-        response.append("unable to render AsciiDoc document");
-        Throwable t = ex;
-        do {
-          response.append("<p>").append(t.getClass().getCanonicalName()).append(": ").append(t.getMessage());
-          if (t instanceof MainExitException && t.getMessage().startsWith("unknown encoding name")) {
-            response.append("<p>Either your local encoding is not supported by JRuby, or you passed an unrecognized value to the Java property 'file.encoding' either in the IntelliJ options file or via the JAVA_TOOL_OPTION environment variable.");
-            String property = SafePropertyAccessor.getProperty("file.encoding", null);
-            response.append("<p>encoding passed by system property 'file.encoding': ").append(property);
-            response.append("<p>available encodings (excuding aliases): ");
-            EncodingDB.getEncodings().forEach(entry -> response.append(entry.getEncoding().getCharsetName()).append(" "));
-          }
-          t = t.getCause();
-        } while (t != null);
-        response.append("<p>(the full exception stack trace is available in the IDE's log file. Visit menu item 'Help | Show Log in Explorer' to see the log)");
-        return response.toString();
       } finally {
-        // SystemOutputHijacker.deregister();
-        notifier.notify(boasOut, boasErr, logHandler.getLogRecords());
+        returnInstance(instance);
       }
+    } catch (ProcessCanceledException ex) {
+      throw ex;
+    } catch (Exception | ServiceConfigurationError ex) {
+      LOG.warn("unable to render AsciiDoc document", ex);
+      logHandler.log(new LogRecord(Severity.FATAL, ex.getMessage()));
+      StringBuilder response = new StringBuilder();
+      response.append("unable to render AsciiDoc document");
+      Throwable t = ex;
+      do {
+        response.append("<p>").append(t.getClass().getCanonicalName()).append(": ").append(t.getMessage());
+        if (t instanceof MainExitException && t.getMessage().startsWith("unknown encoding name")) {
+          response.append("<p>Either your local encoding is not supported by JRuby, or you passed an unrecognized value to the Java property 'file.encoding' either in the IntelliJ options file or via the JAVA_TOOL_OPTION environment variable.");
+          String property = SafePropertyAccessor.getProperty("file.encoding", null);
+          response.append("<p>encoding passed by system property 'file.encoding': ").append(property);
+          response.append("<p>available encodings (excuding aliases): ");
+          EncodingDB.getEncodings().forEach(entry -> response.append(entry.getEncoding().getCharsetName()).append(" "));
+        }
+        t = t.getCause();
+      } while (t != null);
+      response.append("<p>(the full exception stack trace is available in the IDE's log file. Visit menu item 'Help | Show Log in Explorer' to see the log)");
+      return response.toString();
+    } finally {
+      // SystemOutputHijacker.deregister();
+      notifier.notify(boasOut, boasErr, logHandler.getLogRecords());
     }
   }
 
@@ -623,14 +791,15 @@ public class AsciiDoc {
   }
 
   private void validateAccess() {
-    /* This class will lock on AsciiDoc.java so that only one instance of Asciidoctor is running at any time. This
+    /* This class keeps a bounded pool of Asciidoctor instances, and each conversion checks out one instance. This
     allows re-using the instances that are expensive to create (both in terms of memory and cpu seconds).
+    When all instances are in use, a conversion waits until another conversion returns its instance.
     When rendering an AsciiDoc document, this requires read-access to document for example to resolve Antora information
     or includes.
     By ensuring no previous read or write lock exists, this avoids the following dead-lock situation:
     process 1: waiting for write lock, allowing no-one else to acquire a read lock -> will not proceed due to 3
-    process 2: already acquired AsciiDoc lock, running AsciiDoctor rendering and waiting for a read-lock -> will not proceed due to 1
-    process 3: already acquired read-lock, now waiting for AsciiDoc lock -> will not proceed due to 2
+    process 2: already checked out the last instance, running AsciiDoctor rendering and waiting for a read-lock -> will not proceed due to 1
+    process 3: already acquired read-lock, now waiting for an instance -> will not proceed due to 2
      */
     if (ApplicationManager.getApplication().isWriteAccessAllowed()) {
       throw new IllegalStateException("no read access should be allowed here as it might cause a deadlock");
@@ -652,72 +821,71 @@ public class AsciiDoc {
       LocalFileSystem.getInstance().findFileByIoFile(new File(projectBasePath)),
       LocalFileSystem.getInstance().findFileByIoFile(fileBaseDir)
     );
-    Map<String, String> attributes = populateAntoraAttributes(projectBasePath, fileBaseDir, antoraModuleDir);
+    Map<String, String> attributes = populateAntoraAttributes(project, fileBaseDir, antoraModuleDir);
     validateAccess();
-    synchronized (AsciiDoc.class) {
-      if (shutdown) {
-        throw new ProcessCanceledException();
-      }
-      CollectingLogHandler logHandler = new CollectingLogHandler();
-      ByteArrayOutputStream boasOut = new ByteArrayOutputStream();
-      ByteArrayOutputStream boasErr = new ByteArrayOutputStream();
-      // SystemOutputHijacker.register(new PrintStream(boasOut), new PrintStream(boasErr));
+    if (shutdown) {
+      throw new ProcessCanceledException();
+    }
+    CollectingLogHandler logHandler = new CollectingLogHandler();
+    ByteArrayOutputStream boasOut = new ByteArrayOutputStream();
+    ByteArrayOutputStream boasErr = new ByteArrayOutputStream();
+    // SystemOutputHijacker.register(new PrintStream(boasOut), new PrintStream(boasErr));
+    try {
+      RuntimeInstance instance = checkoutInstance(extensions, springRestDocsSnippets != null, format);
       try {
-        Asciidoctor asciidoctor = initWithExtensions(extensions, springRestDocsSnippets != null, format);
-        PREPEND_CONFIG.setConfig(config);
-        ANTORA_INCLUDE_ADAPTER.setAntoraDetails(project, antoraModuleDir);
-        AntoraReferenceAdapter.setAntoraDetails(project, antoraModuleDir, fileBaseDir, name);
+        Asciidoctor asciidoctor = instance.asciidoctor;
         asciidoctor.registerLogHandler(logHandler);
-        try {
+        try (RenderContext context = RenderContext.open(project, antoraModuleDir, fileBaseDir, name, config)) {
+          Map<String, Object> options = getDefaultOptions(format, springRestDocsSnippets, attributes);
+          options.put(RenderContext.OPTION, context.getId());
           ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
           if (indicator == null || !indicator.isCanceled()) {
-            asciidoctor.convertFile(file, getExportOptions(
-              getDefaultOptions(format, springRestDocsSnippets, attributes), format));
+            asciidoctor.convertFile(file, getExportOptions(options, format));
           }
         } finally {
-          PREPEND_CONFIG.setConfig("");
-          ANTORA_INCLUDE_ADAPTER.setAntoraDetails(null, null);
           asciidoctor.unregisterLogHandler(logHandler);
         }
-      } catch (ProcessCanceledException ex) {
-        throw ex;
-      } catch (Exception | ServiceConfigurationError ex) {
-        LOG.warn("unable to render AsciiDoc document", ex);
-        logHandler.log(new LogRecord(Severity.FATAL, ex.getMessage()));
-        StringBuilder response = new StringBuilder();
-        response.append("unable to render AsciiDoc document");
-        Throwable t = ex;
-        do {
-          response.append("<p>").append(t.getClass().getCanonicalName()).append(": ").append(t.getMessage());
-          if (t instanceof MainExitException && t.getMessage().startsWith("unknown encoding name")) {
-            response.append("<p>Either your local encoding is not supported by JRuby, or you passed an unrecognized value to the Java property 'file.encoding' either in the IntelliJ options file or via the JAVA_TOOL_OPTION environment variable.");
-            String property = SafePropertyAccessor.getProperty("file.encoding", null);
-            response.append("<p>encoding passed by system property 'file.encoding': ").append(property);
-            response.append("<p>available encodings (excuding aliases): ");
-            EncodingDB.getEncodings().forEach(entry -> response.append(entry.getEncoding().getCharsetName()).append(" "));
-          }
-          t = t.getCause();
-        } while (t != null);
-        response.append("<p>(the full exception stack trace is available in the IDE's log file. Visit menu item 'Help | Show Log in Explorer' to see the log)");
-        try {
-          boasErr.write(response.toString().getBytes(StandardCharsets.UTF_8));
-        } catch (IOException e) {
-          throw new RuntimeException("Unable to write bytes");
-        }
       } finally {
-        // SystemOutputHijacker.deregister();
-        Notifier notifier = this::notifyAlways;
-        notifier.notify(boasOut, boasErr, logHandler.getLogRecords());
+        returnInstance(instance);
+      }
+    } catch (ProcessCanceledException ex) {
+      throw ex;
+    } catch (Exception | ServiceConfigurationError ex) {
+      LOG.warn("unable to render AsciiDoc document", ex);
+      logHandler.log(new LogRecord(Severity.FATAL, ex.getMessage()));
+      StringBuilder response = new StringBuilder();
+      response.append("unable to render AsciiDoc document");
+      Throwable t = ex;
+      do {
+        response.append("<p>").append(t.getClass().getCanonicalName()).append(": ").append(t.getMessage());
+        if (t instanceof MainExitException && t.getMessage().startsWith("unknown encoding name")) {
+          response.append("<p>Either your local encoding is not supported by JRuby, or you passed an unrecognized value to the Java property 'file.encoding' either in the IntelliJ options file or via the JAVA_TOOL_OPTION environment variable.");
+          String property = SafePropertyAccessor.getProperty("file.encoding", null);
+          response.append("<p>encoding passed by system property 'file.encoding': ").append(property);
+          response.append("<p>available encodings (excuding aliases): ");
+          EncodingDB.getEncodings().forEach(entry -> response.append(entry.getEncoding().getCharsetName()).append(" "));
+        }
+        t = t.getCause();
+      } while (t != null);
+      response.append("<p>(the full exception stack trace is available in the IDE's log file. Visit menu item 'Help | Show Log in Explorer' to see the log)");
+      try {
+        boasErr.write(response.toString().getBytes(StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        throw new RuntimeException("Unable to write bytes");
       }
+    } finally {
+      // SystemOutputHijacker.deregister();
+      Notifier notifier = this::notifyAlways;
+      notifier.notify(boasOut, boasErr, logHandler.getLogRecords());
     }
   }
 
-  public static Map<String, String> populateAntoraAttributes(String projectBasePath, File fileBaseDir, VirtualFile antoraModuleDir) {
+  public static Map<String, String> populateAntoraAttributes(Project project, File fileBaseDir, VirtualFile antoraModuleDir) {
     Map<String, String> result = new HashMap<>();
     if (antoraModuleDir != null) {
-      result.putAll(collectAntoraAttributes(antoraModuleDir));
+      result.putAll(collectAntoraAttributes(project, antoraModuleDir));
 
-      VirtualFile projectBase = LocalFileSystem.getInstance().findFileByIoFile(new File(projectBasePath));
+      VirtualFile projectBase = LocalFileSystem.getInstance().findFileByIoFile(new File(project.getBasePath()));
       VirtualFile baseDir = LocalFileSystem.getInstance().findFileByIoFile(fileBaseDir);
       VirtualFile antoraPages = findAntoraPagesDir(projectBase, baseDir);
       VirtualFile antoraPartials = findAntoraPartials(projectBase, baseDir);
@@ -744,7 +912,7 @@ public class AsciiDoc {
     return result;
   }
 
-  public static Map<String, String> collectAntoraAttributes(VirtualFile antoraModuleDir) {
+  public static Map<String, String> collectAntoraAttributes(Project project, VirtualFile antoraModuleDir) {
     Map<String, String> result = new HashMap<>();
     result.put("icons", "font");
     result.put("env-site", "");
@@ -756,50 +924,40 @@ public class AsciiDoc {
       VirtualFile antoraFile = antoraModuleDir.getParent().getParent().findChild(ANTORA_YML);
       if (antoraFile != null) {
         ApplicationManager.getApplication().runReadAction(() -> {
-          Document document = FileDocumentManager.getInstance().getDocument(antoraFile);
-          if (document != null) {
-            try {
-              Map<String, Object> antora = readAntoraYaml(antoraFile);
-              mapAttribute(result, antora, "name", "page-component-name");
-              mapAttribute(result, antora, "version", "page-component-version");
-              mapAttribute(result, antora, "title", "page-component-title");
-              mapAttribute(result, antora, "version", "page-version");
-              mapAttribute(result, antora, "display-version", "page-display-version");
-              Object asciidoc = antora.get("asciidoc");
-              if (asciidoc instanceof Map) {
-                @SuppressWarnings("rawtypes") Object attributes = ((Map) asciidoc).get("attributes");
-                if (attributes instanceof Map) {
-                  @SuppressWarnings("unchecked") Map<String, Object> map = (Map<String, Object>) attributes;
-                  map.forEach((k, v) -> {
-                    String vs;
-                    if (v == null) {
-                      // null -> not allowed in YAML file as attribute value
-                      Notification notification = AsciiDocPreviewEditor.NOTIFICATION_GROUP.createNotification("AsciiDoc attribute '" + k + "' is null in " + antoraFile.getCanonicalPath(),
-                        "Will be treated as unset. Use either false to explicitly unset, or set by providing for example an empty string ''",
-                        NotificationType.ERROR, null);
-                      notification.setImportant(true);
-                      Notifications.Bus.notify(notification);
-                      vs = null;
-                    } else if (v instanceof Boolean && !(Boolean) v) {
-                      // false -> soft unset
-                      vs = null;
-                    } else if (v instanceof String && v.equals("~")) {
-                      // "~" -> hard unset
-                      vs = null;
-                    } else {
-                      vs = v.toString();
-                      if (vs.endsWith("@")) {
-                        // "...@" -> soft set
-                        vs = vs.substring(0, vs.length() - 1);
-                      }
-                    }
-                    result.put(k, vs);
-                  });
+          try {
+            AntoraComponent antora = AntoraModel.getInstance(project).getComponent(antoraFile);
+            mapAttribute(result, antora.getName(), "page-component-name");
+            mapAttribute(result, antora.getVersion(), "page-component-version");
+            mapAttribute(result, antora.getTitle(), "page-component-title");
+            mapAttribute(result, antora.getVersion(), "page-version");
+            mapAttribute(result, antora.getDisplayVersion(), "page-display-version");
+            antora.getAttributes().forEach((k, v) -> {
+              String vs;
+              if (v == null) {
+                // null -> not allowed in YAML file as attribute value
+                Notification notification = AsciiDocPreviewEditor.NOTIFICATION_GROUP.createNotification("AsciiDoc attribute '" + k + "' is null in " + antoraFile.getCanonicalPath(),
+                  "Will be treated as unset. Use either false to explicitly unset, or set by providing for example an empty string ''",
+                  NotificationType.ERROR, null);
+                notification.setImportant(true);
+                Notifications.Bus.notify(notification);
+                vs = null;
+              } else if (v instanceof Boolean && !(Boolean) v) {
+                // false -> soft unset
+                vs = null;
+              } else if (v instanceof String && v.equals("~")) {
+                // "~" -> hard unset
+                vs = null;
+              } else {
+                vs = v.toString();
+                if (vs.endsWith("@")) {
+                  // "...@" -> soft set
+                  vs = vs.substring(0, vs.length() - 1);
                 }
               }
-            } catch (YAMLException ignored) {
-              // continue without detailed Antora information
-            }
+              result.put(k, vs);
+            });
+          } catch (YAMLException ignored) {
+            // continue without detailed Antora information
           }
         });
       }
@@ -807,44 +965,6 @@ public class AsciiDoc {
     return result;
   }
 
-  public static Map<String, Object> readAntoraYaml(VirtualFile antoraFile) {
-    try {
-      Document document = FileDocumentManager.getInstance().getDocument(antoraFile);
-      if (document == null) {
-        throw new YAMLException("unable to read file");
-      }
-      Yaml yaml = new Yaml();
-      return yaml.load(document.getText());
-    } catch (YAMLException ex) {
-      handleAntoraYamlException(ex, antoraFile.getCanonicalPath());
-      throw ex;
-    }
-  }
-
-  public static Map<String, Object> readAntoraYaml(PsiFile antoraFile) {
-    try {
-      Yaml yaml = new Yaml();
-      return yaml.load(antoraFile.getText());
-    } catch (YAMLException ex) {
-      String fileName = null;
-      VirtualFile virtualFile = antoraFile.getVirtualFile();
-      if (virtualFile != null) {
-        fileName = virtualFile.getCanonicalPath();
-      }
-      handleAntoraYamlException(ex, fileName);
-      throw new YAMLException("Error when reading file " + fileName);
-    }
-  }
-
-  private static void handleAntoraYamlException(YAMLException ex, @Nullable String canonicalPath) {
-    String message = canonicalPath + ": " + ex.getMessage();
-    LOG.warn("Error reading Antora component information", ex);
-    Notification notification = AsciiDocPreviewEditor.NOTIFICATION_GROUP.createNotification("Error reading Antora component information", message,
-      NotificationType.ERROR, null);
-    notification.setImportant(true);
-    Notifications.Bus.notify(notification);
-  }
-
   public Map<String, Object> getExportOptions(Map<String, Object> options, FileType fileType) {
     if (fileType == FileType.HTML) {
       options.put(Options.HEADER_FOOTER, true);
@@ -909,8 +1029,24 @@ public class AsciiDoc {
     return opts.asMap();
   }
 
+  public String getDocfile() {
+    return new File(fileBaseDir, name).getAbsolutePath();
+  }
+
+  @Nullable
+  public Path getImagesPath() {
+    return imagesPath;
+  }
+
+  public Project getProject() {
+    return project;
+  }
+
+  /**
+   * Attributes of the document as of after the last call to one of the render methods of this object.
+   */
   public Map<String, String> getAttributes() {
-    return ATTRIBUTES_RETRIEVER.getAttributes();
+    return attributes;
   }
 
   public enum FileType {
@@ -932,10 +1068,9 @@ public class AsciiDoc {
 
   }
 
-  private static void mapAttribute(Map<String, String> result, Map<String, Object> antora, String nameSource, String nameTarget) {
-    Object value = antora.get(nameSource);
+  private static void mapAttribute(Map<String, String> result, @Nullable String value, String nameTarget) {
     if (value != null) {
-      result.put(nameTarget, value.toString());
+      result.put(nameTarget, value);
     }
   }
 
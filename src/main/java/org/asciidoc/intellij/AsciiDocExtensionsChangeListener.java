@@ -0,0 +1,39 @@
+package org.asciidoc.intellij;
+
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Invalidate the cached hashes of Asciidoctor extensions once a file in a <code>.asciidoctor/lib</code> folder changes.
+ */
+public class AsciiDocExtensionsChangeListener implements BulkFileListener {
+
+  private static final String EXTENSIONS_FOLDER = "/.asciidoctor/lib";
+
+  @Override
+  public void after(@NotNull List<? extends VFileEvent> events) {
+    for (VFileEvent event : events) {
+      if (isInExtensionsFolder(event.getPath())
+        || (event instanceof VFileMoveEvent && isInExtensionsFolder(((VFileMoveEvent) event).getOldPath()))
+        || (event instanceof VFilePropertyChangeEvent && isInExtensionsFolder(((VFilePropertyChangeEvent) event).getOldPath()))) {
+        AsciiDoc.clearExtensionHashes();
+        return;
+      }
+    }
+  }
+
+  private static boolean isInExtensionsFolder(String path) {
+    int index = path.indexOf(EXTENSIONS_FOLDER);
+    if (index == -1) {
+      return false;
+    }
+    int end = index + EXTENSIONS_FOLDER.length();
+    return path.length() == end || path.charAt(end) == '/';
+  }
+
+}
@@ -0,0 +1,115 @@
+package org.asciidoc.intellij;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import com.intellij.psi.search.FileTypeIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import org.apache.commons.io.FileUtils;
+import org.asciidoc.intellij.file.AsciiDocFileType;
+import org.intellij.lang.annotations.Language;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Create the Asciidoctor instance for the preview in the background when a project with AsciiDoc files is opened,
+ * so that the first preview doesn't need to wait for JRuby and all extensions to load.
+ * Rendering a small document also warms up the most frequently used code paths.
+ * Can be disabled by setting the system property <code>asciidoc.warmup</code> to <code>false</code>.
+ */
+public class AsciiDocWarmupActivity implements StartupActivity.Background {
+
+  private static final Logger LOG = Logger.getInstance(AsciiDocWarmupActivity.class);
+
+  private static final int ITERATIONS = 3;
+
+  @Language("asciidoc")
+  private static final String SAMPLE = "= Warm-up\n" +
+    ":toc:\n" +
+    "\n" +
+    "== Section with *bold*, _italic_ and `mono` text\n" +
+    "\n" +
+    "A paragraph with a link:https://asciidoctor.org[link], a <<section-two,reference>> and a footnote:[note].\n" +
+    "\n" +
+    "NOTE: An admonition.\n" +
+    "\n" +
+    "* item one\n" +
+    "** nested item\n" +
+    "\n" +
+    "[[section-two]]\n" +
+    "== Section two\n" +
+    "\n" +
+    "[source,java]\n" +
+    "----\n" +
+    "public class Test {\n" +
+    "  private String name = \"value\";\n" +
+    "}\n" +
+    "----\n" +
+    "\n" +
+    "|===\n" +
+    "|Column 1 |Column 2\n" +
+    "\n" +
+    "|a |_b_\n" +
+    "|===\n";
+
+  @Override
+  public void runActivity(@NotNull Project project) {
+    if (ApplicationManager.getApplication().isUnitTestMode() || ApplicationManager.getApplication().isHeadlessEnvironment()) {
+      return;
+    }
+    if (!Boolean.parseBoolean(System.getProperty("asciidoc.warmup", "true"))) {
+      return;
+    }
+    if (project.getBasePath() == null) {
+      return;
+    }
+    boolean hasAsciiDocFiles = DumbService.getInstance(project).runReadActionInSmartMode(() ->
+      !project.isDisposed() && FileTypeIndex.containsFileOfType(AsciiDocFileType.INSTANCE, GlobalSearchScope.projectScope(project)));
+    if (!hasAsciiDocFiles) {
+      return;
+    }
+    warmup(project);
+  }
+
+  private static void warmup(@NotNull Project project) {
+    Path tempImagesPath = AsciiDoc.tempImagesPath();
+    try {
+      List<String> extensions = AsciiDoc.getExtensions(project);
+      // use the same settings as the preview, so that the preview will find the instance in the pool
+      AsciiDoc asciiDoc = new AsciiDoc(project, new File(project.getBasePath()), tempImagesPath, "warmup.adoc");
+      long start = System.nanoTime();
+      long first = 0;
+      for (int i = 0; i < ITERATIONS; ++i) {
+        if (project.isDisposed()) {
+          return;
+        }
+        asciiDoc.render(SAMPLE, "", extensions, (boasOut, boasErr, logRecords) -> {
+        }, AsciiDoc.FileType.JAVAFX);
+        if (i == 0) {
+          first = System.nanoTime() - start;
+        }
+      }
+      long total = System.nanoTime() - start;
+      LOG.info("Asciidoctor warm-up: first conversion including initialization took " + (first / 1_000_000) + " ms, "
+        + ITERATIONS + " conversions took " + (total / 1_000_000) + " ms");
+    } catch (ProcessCanceledException e) {
+      // plugin is unloading or project is closing, nothing to warm up
+    } finally {
+      if (tempImagesPath != null) {
+        try {
+          FileUtils.deleteDirectory(tempImagesPath.toFile());
+        } catch (IOException e) {
+          LOG.warn("could not remove temp folder", e);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,390 @@
+package org.asciidoc.intellij;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import org.apache.commons.io.FileUtils;
+import org.asciidoc.intellij.psi.AsciiDocIncludeGraph;
+import org.asciidoc.intellij.settings.AsciiDocApplicationSettings;
+import org.asciidoc.intellij.settings.AsciiDocPreviewSettings;
+import org.asciidoctor.log.LogRecord;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the result of the last conversion of each document, so that the preview and the
+ * {@link org.asciidoc.intellij.annotator.ExternalAnnotator} can share one conversion of the same content.
+ * "Open in browser" keeps its own result, as it renders for a different format.
+ * A result is re-used when content, configuration, extensions and settings are unchanged, and neither the files
+ * the document includes (as found by {@link AsciiDocIncludeGraph}) nor the extension files changed in the meantime.
+ * While the include graph is not available, or when the conversion reported problems like a missing include,
+ * a result is re-used only as long as no file in the VFS changed.
+ * If a conversion for the same content is still running, the caller waits for its result.
+ */
+public class RenderResultCache {
+
+  private static final com.intellij.openapi.diagnostic.Logger LOG =
+    com.intellij.openapi.diagnostic.Logger.getInstance(RenderResultCache.class);
+
+  /**
+   * One result per format, so that the preview and "open in browser" don't replace each other's result.
+   */
+  private static final Map<AsciiDoc.FileType, Key<Entry>> RESULT = new EnumMap<>(AsciiDoc.FileType.class);
+
+  static {
+    for (AsciiDoc.FileType format : AsciiDoc.FileType.values()) {
+      RESULT.put(format, Key.create("asciidoc.renderResult." + format.name()));
+    }
+  }
+
+  /**
+   * Images directory of the preview currently showing the document.
+   */
+  private static final Key<Path> PREVIEW_IMAGES_PATH = Key.create("asciidoc.previewImagesPath");
+
+  /**
+   * Number of users of each registered images directory; it is deleted once the last user releases it.
+   */
+  private static final Map<Path, Integer> IMAGES_PATH_USERS = new HashMap<>();
+
+  private static final AtomicLong HITS = new AtomicLong();
+  private static final AtomicLong MISSES = new AtomicLong();
+
+  private RenderResultCache() {
+  }
+
+  /**
+   * Result of a single conversion.
+   */
+  public static final class Result {
+    private final String html;
+    private final List<LogRecord> logRecords;
+    private final Map<String, String> attributes;
+
+    Result(String html, List<LogRecord> logRecords, Map<String, String> attributes) {
+      this.html = html;
+      this.logRecords = Collections.unmodifiableList(new ArrayList<>(logRecords));
+      this.attributes = attributes;
+    }
+
+    public String getHtml() {
+      return html;
+    }
+
+    public List<LogRecord> getLogRecords() {
+      return logRecords;
+    }
+
+    public Map<String, String> getAttributes() {
+      return attributes;
+    }
+  }
+
+  private static final class CacheKey {
+    private final String content;
+    private final String config;
+    private final List<String> extensions;
+    private final String docfile;
+    private final AsciiDoc.FileType format;
+    private final AsciiDocPreviewSettings settings;
+    private final List<Long> dependencyStamps;
+    private final int hash;
+
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private CacheKey(String content, String config, List<String> extensions, String docfile, AsciiDoc.FileType format,
+                     AsciiDocPreviewSettings settings, List<Long> dependencyStamps) {
+      this.content = content;
+      this.config = config;
+      this.extensions = extensions;
+      this.docfile = docfile;
+      this.format = format;
+      this.settings = settings;
+      this.dependencyStamps = dependencyStamps;
+      this.hash = Objects.hash(content, config, extensions, docfile, format, dependencyStamps);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      CacheKey that = (CacheKey) o;
+      return hash == that.hash &&
+        format == that.format &&
+        docfile.equals(that.docfile) &&
+        extensions.equals(that.extensions) &&
+        config.equals(that.config) &&
+        settings.equals(that.settings) &&
+        dependencyStamps.equals(that.dependencyStamps) &&
+        content.equals(that.content);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final class Entry {
+    private final CacheKey key;
+    private final Path imagesPath;
+    private final long vfsModificationCount;
+    private final FutureTask<Result> result;
+
+    private Entry(CacheKey key, Path imagesPath, long vfsModificationCount, FutureTask<Result> result) {
+      this.key = key;
+      this.imagesPath = imagesPath;
+      this.vfsModificationCount = vfsModificationCount;
+      this.result = result;
+    }
+
+    /**
+     * Check if the result can be re-used. Problems like a missing include might go away when a file is created,
+     * and files not in the include graph are not part of the key, therefore such a result is only
+     * re-used while no file in the VFS changed.
+     */
+    private boolean isUpToDate(CacheKey key, long vfsModificationCount) {
+      if (!this.key.equals(key)) {
+        return false;
+      }
+      if (this.vfsModificationCount == vfsModificationCount) {
+        return true;
+      }
+      if (key.dependencyStamps.isEmpty()) {
+        return false;
+      }
+      if (!result.isDone()) {
+        return true;
+      }
+      try {
+        return result.get().getLogRecords().isEmpty();
+      } catch (InterruptedException | ExecutionException e) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Register the images directory of a preview showing this document.
+   * Other consumers will then render into this directory, so that the preview can re-use their result.
+   * The directory is deleted once it has been unregistered, and no conversion uses it any more.
+   */
+  public static void registerPreviewImagesPath(@NotNull Document document, @Nullable Path imagesPath) {
+    synchronized (RenderResultCache.class) {
+      document.putUserData(PREVIEW_IMAGES_PATH, imagesPath);
+      if (imagesPath != null) {
+        IMAGES_PATH_USERS.merge(imagesPath, 1, Integer::sum);
+      }
+    }
+  }
+
+  public static void unregisterPreviewImagesPath(@NotNull Document document, @Nullable Path imagesPath) {
+    synchronized (RenderResultCache.class) {
+      if (Objects.equals(document.getUserData(PREVIEW_IMAGES_PATH), imagesPath)) {
+        document.putUserData(PREVIEW_IMAGES_PATH, null);
+      }
+    }
+    releaseImagesPath(imagesPath);
+  }
+
+  /**
+   * Returns the images directory of the preview showing this document, if there is one.
+   * The caller needs to call {@link #releaseImagesPath(Path)} once it no longer uses the directory,
+   * so that it is not deleted while a conversion still renders into it.
+   */
+  @Nullable
+  public static Path acquirePreviewImagesPath(@NotNull Document document) {
+    synchronized (RenderResultCache.class) {
+      Path imagesPath = document.getUserData(PREVIEW_IMAGES_PATH);
+      if (imagesPath != null) {
+        IMAGES_PATH_USERS.merge(imagesPath, 1, Integer::sum);
+      }
+      return imagesPath;
+    }
+  }
+
+  public static void releaseImagesPath(@Nullable Path imagesPath) {
+    if (imagesPath == null) {
+      return;
+    }
+    synchronized (RenderResultCache.class) {
+      Integer users = IMAGES_PATH_USERS.get(imagesPath);
+      if (users != null && users > 1) {
+        IMAGES_PATH_USERS.put(imagesPath, users - 1);
+        return;
+      }
+      IMAGES_PATH_USERS.remove(imagesPath);
+    }
+    try {
+      FileUtils.deleteDirectory(imagesPath.toFile());
+    } catch (IOException e) {
+      LOG.warn("could not remove temp folder", e);
+    }
+  }
+
+  /**
+   * Render the document, or re-use the result of an earlier conversion of the same content.
+   *
+   * @param requireSameImagesPath if the result needs to be rendered into the images directory of the given
+   *                              {@link AsciiDoc} instance, as the caller needs to display the images.
+   * @param notifier              notified about messages only when the document is actually rendered.
+   */
+  @SuppressWarnings("checkstyle:ParameterNumber")
+  public static Result render(@NotNull Document document, @NotNull AsciiDoc asciiDoc, String text, String config, List<String> extensions,
+                              AsciiDoc.Notifier notifier, AsciiDoc.FileType format, boolean requireSameImagesPath) {
+    long vfsModificationCount = VirtualFileManager.getInstance().getModificationCount();
+    CacheKey key = new CacheKey(text, config, extensions, asciiDoc.getDocfile(), format,
+      AsciiDocApplicationSettings.getInstance().getAsciiDocPreviewSettings(),
+      dependencyStamps(document, asciiDoc.getProject(), extensions));
+    Entry existing;
+    Entry entry;
+    synchronized (RenderResultCache.class) {
+      existing = document.getUserData(RESULT.get(format));
+      if (existing != null && existing.isUpToDate(key, vfsModificationCount)
+        && (!requireSameImagesPath || Objects.equals(existing.imagesPath, asciiDoc.getImagesPath()))) {
+        entry = null;
+      } else {
+        existing = null;
+        entry = new Entry(key, asciiDoc.getImagesPath(), vfsModificationCount, new FutureTask<>(() -> {
+          List<LogRecord> logRecords = new ArrayList<>();
+          String html = asciiDoc.render(text, config, extensions, (boasOut, boasErr, records) -> {
+            logRecords.addAll(records);
+            notifier.notify(boasOut, boasErr, records);
+          }, format);
+          return new Result(html, logRecords, asciiDoc.getAttributes());
+        }));
+        document.putUserData(RESULT.get(format), entry);
+      }
+    }
+    if (existing != null) {
+      Result result = await(existing);
+      if (result != null) {
+        logStatistics(HITS.incrementAndGet(), MISSES.get());
+        return result;
+      }
+      // the other conversion has been cancelled, therefore render here
+      forget(document, existing);
+      return render(document, asciiDoc, text, config, extensions, notifier, format, requireSameImagesPath);
+    }
+    logStatistics(HITS.get(), MISSES.incrementAndGet());
+    entry.result.run();
+    try {
+      return entry.result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProcessCanceledException(e);
+    } catch (ExecutionException e) {
+      forget(document, entry);
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+
+  /**
+   * Modification stamps of the files the conversion reads from disk: the document itself, the files it includes
+   * directly or via other includes, and the extensions. Unsaved changes count as well, as they are saved before
+   * the result is used the next time. The contents of the configuration files are already part of the key.
+   *
+   * @return the stamps, or an empty list if the included files are not known.
+   */
+  private static List<Long> dependencyStamps(Document document, Project project, List<String> extensions) {
+    VirtualFile file = FileDocumentManager.getInstance().getFile(document);
+    if (file == null || project == null) {
+      return Collections.emptyList();
+    }
+    return ReadAction.compute(() -> {
+      if (project.isDisposed() || DumbService.isDumb(project) || !file.isValid()) {
+        return Collections.emptyList();
+      }
+      List<Long> stamps = new ArrayList<>();
+      stamps.add(modificationStamp(file));
+      for (VirtualFile included : AsciiDocIncludeGraph.getInstance(project).getIncludedFilesTransitively(file)) {
+        stamps.add((long) included.getPath().hashCode());
+        stamps.add(modificationStamp(included));
+      }
+      for (String extension : extensions) {
+        VirtualFile extensionFile = LocalFileSystem.getInstance().findFileByPath(extension);
+        stamps.add(extensionFile != null ? modificationStamp(extensionFile) : -1L);
+      }
+      return stamps;
+    });
+  }
+
+  private static long modificationStamp(VirtualFile file) {
+    if (!file.isValid()) {
+      return -1;
+    }
+    Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+    return document != null ? document.getModificationStamp() : file.getModificationStamp();
+  }
+
+  /**
+   * Wait for the result of a conversion running in a different thread.
+   *
+   * @return the result, or <code>null</code> if the other conversion didn't complete successfully.
+   */
+  @Nullable
+  private static Result await(Entry entry) {
+    while (true) {
+      try {
+        return entry.result.get(50, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        ProgressManager.checkCanceled();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ProcessCanceledException(e);
+      } catch (ExecutionException e) {
+        return null;
+      }
+    }
+  }
+
+  private static void forget(Document document, Entry entry) {
+    synchronized (RenderResultCache.class) {
+      Key<Entry> key = RESULT.get(entry.key.format);
+      if (document.getUserData(key) == entry) {
+        document.putUserData(key, null);
+      }
+    }
+  }
+
+  private static void logStatistics(long hits, long misses) {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("render result cache: " + hits + " hits, " + misses + " misses, hit rate "
+        + (hits * 100 / Math.max(1, hits + misses)) + "%");
+    }
+  }
+
+}
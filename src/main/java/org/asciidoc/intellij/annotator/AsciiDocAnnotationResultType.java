@@ -12,6 +12,7 @@ public class AsciiDocAnnotationResultType {
   private final Document document;
   private List<LogRecord> logRecords;
   private String docname;
+  private boolean includedInOtherDocuments;
 
   public AsciiDocAnnotationResultType(Document document) {
     this.document = document;
@@ -33,6 +34,14 @@ public class AsciiDocAnnotationResultType {
     return docname;
   }
 
+  public void setIncludedInOtherDocuments(boolean includedInOtherDocuments) {
+    this.includedInOtherDocuments = includedInOtherDocuments;
+  }
+
+  public boolean isIncludedInOtherDocuments() {
+    return includedInOtherDocuments;
+  }
+
   public static class Message {
     private final HighlightSeverity severity;
     private final Integer line;
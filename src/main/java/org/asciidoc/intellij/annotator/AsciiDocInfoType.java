@@ -11,13 +11,16 @@ public class AsciiDocInfoType {
   private final String content;
   private final String config;
   private final List<String> extensions;
+  private final boolean includedInOtherDocuments;
 
-  public AsciiDocInfoType(PsiFile file, Editor editor, String content, String config, List<String> extensions) {
+  public AsciiDocInfoType(PsiFile file, Editor editor, String content, String config, List<String> extensions,
+                          boolean includedInOtherDocuments) {
     this.file = file;
     this.editor = editor;
     this.content = content;
     this.config = config;
     this.extensions = extensions;
+    this.includedInOtherDocuments = includedInOtherDocuments;
   }
 
   public PsiFile getFile() {
@@ -39,4 +42,8 @@ public class AsciiDocInfoType {
   public List<String> getExtensions() {
     return extensions;
   }
+
+  public boolean isIncludedInOtherDocuments() {
+    return includedInOtherDocuments;
+  }
 }
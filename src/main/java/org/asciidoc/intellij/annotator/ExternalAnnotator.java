@@ -18,8 +18,10 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
 import org.asciidoc.intellij.AsciiDoc;
+import org.asciidoc.intellij.RenderResultCache;
 import org.asciidoc.intellij.editor.AsciiDocPreviewEditor;
 import org.asciidoc.intellij.psi.AsciiDocBlockMacro;
+import org.asciidoc.intellij.psi.AsciiDocUtil;
 import org.asciidoc.intellij.quickfix.AsciiDocCreateMissingFileIntentionAction;
 import org.asciidoc.intellij.settings.AsciiDocApplicationSettings;
 import org.asciidoctor.log.LogRecord;
@@ -34,6 +36,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Run Asciidoc and use the warnings and errors as annotations in the file.
@@ -43,12 +47,15 @@ import java.util.List;
 public class ExternalAnnotator extends com.intellij.lang.annotation.ExternalAnnotator<
   AsciiDocInfoType, AsciiDocAnnotationResultType> {
 
+  private static final String POSSIBLE_INVALID_REFERENCE = "possible invalid reference:";
+
   @Nullable
   @Override
   public AsciiDocInfoType collectInformation(@NotNull PsiFile file, @NotNull Editor editor, boolean hasErrors) {
     final String config = AsciiDoc.config(editor.getDocument(), file.getProject());
     List<String> extensions = AsciiDoc.getExtensions(file.getProject());
-    return new AsciiDocInfoType(file, editor, editor.getDocument().getText(), config, extensions);
+    boolean includedInOtherDocuments = !AsciiDocUtil.findRootDocuments(file).isEmpty();
+    return new AsciiDocInfoType(file, editor, editor.getDocument().getText(), config, extensions, includedInOtherDocuments);
   }
 
   @Nullable
@@ -69,20 +76,27 @@ public class ExternalAnnotator extends com.intellij.lang.annotation.ExternalAnno
     }
 
     AsciiDocAnnotationResultType asciidocAnnotationResultType = new AsciiDocAnnotationResultType(editor.getDocument());
+    asciidocAnnotationResultType.setIncludedInOtherDocuments(collectedInfo.isIncludedInOtherDocuments());
 
     if (!AsciiDocApplicationSettings.getInstance().getAsciiDocPreviewSettings().isShowAsciiDocWarningsAndErrorsInEditor()) {
       asciidocAnnotationResultType.setLogRecords(Collections.emptyList());
       return asciidocAnnotationResultType;
     }
 
-    Path tempImagesPath = AsciiDoc.tempImagesPath();
+    // when a preview shows this document, render into its images directory so that the preview can re-use the result
+    Path previewImagesPath = RenderResultCache.acquirePreviewImagesPath(editor.getDocument());
+    Path tempImagesPath = previewImagesPath == null ? AsciiDoc.tempImagesPath() : null;
     try {
       AsciiDoc asciiDoc = new AsciiDoc(file.getProject(), fileBaseDir,
-        tempImagesPath, name);
+        previewImagesPath != null ? previewImagesPath : tempImagesPath, name);
       asciidocAnnotationResultType.setDocname(new File(fileBaseDir, name).getAbsolutePath());
-      asciiDoc.render(collectedInfo.getContent(), collectedInfo.getConfig(), collectedInfo.getExtensions(), (boasOut, boasErr, logRecords)
-        -> asciidocAnnotationResultType.setLogRecords(logRecords));
+      RenderResultCache.Result result = RenderResultCache.render(editor.getDocument(), asciiDoc,
+        collectedInfo.getContent(), collectedInfo.getConfig(), collectedInfo.getExtensions(),
+        (boasOut, boasErr, logRecords) -> {
+        }, AsciiDoc.FileType.JAVAFX, false);
+      asciidocAnnotationResultType.setLogRecords(result.getLogRecords());
     } finally {
+      RenderResultCache.releaseImagesPath(previewImagesPath);
       if (tempImagesPath != null) {
         try {
           FileUtils.deleteDirectory(tempImagesPath.toFile());
@@ -103,16 +117,25 @@ public class ExternalAnnotator extends com.intellij.lang.annotation.ExternalAnno
       if (logRecord.getSeverity() == Severity.DEBUG) {
         continue;
       }
-      if (logRecord.getMessage() != null && logRecord.getMessage().startsWith("possible invalid reference:")) {
-        /* TODO: these messages are not helpful in IntelliJ as they have no line number
-           and for splitted documents they provide too many false positives */
-        continue;
-      }
-      HighlightSeverity severity = toSeverity(logRecord.getSeverity());
       // the line number as shown in the IDE (starting with 1)
       Integer lineNumber = null;
       // the line number used for creating the annotation (starting with 0)
       int lineNumberForAnnotation = 0;
+      if (logRecord.getMessage() != null && logRecord.getMessage().startsWith(POSSIBLE_INVALID_REFERENCE)) {
+        /* these messages have no line number, and for documents included in other documents
+           the anchor is usually declared in a different part of the document */
+        if (annotationResult.isIncludedInOtherDocuments()) {
+          continue;
+        }
+        Integer referenceLine = findReference(annotationResult.getDocument(),
+          logRecord.getMessage().substring(POSSIBLE_INVALID_REFERENCE.length()).trim());
+        if (referenceLine == null) {
+          continue;
+        }
+        lineNumberForAnnotation = referenceLine;
+        lineNumber = referenceLine + 1;
+      }
+      HighlightSeverity severity = toSeverity(logRecord.getSeverity());
       if (logRecord.getCursor() != null
         && (logRecord.getCursor().getFile() == null || logRecord.getCursor().getFile().equals(annotationResult.getDocname()))
         && logRecord.getCursor().getLineNumber() >= 0) {
@@ -178,6 +201,21 @@ public class ExternalAnnotator extends com.intellij.lang.annotation.ExternalAnno
     theProblemSolver.reportProblems(file.getVirtualFile(), problems);
   }
 
+  /**
+   * Line of the first cross reference to the anchor in the document, or <code>null</code> if there is none.
+   */
+  @Nullable
+  private static Integer findReference(Document document, String anchor) {
+    if (anchor.isEmpty()) {
+      return null;
+    }
+    Matcher matcher = Pattern.compile("(<<|xref:#?)" + Pattern.quote(anchor) + "[,>\\[]").matcher(document.getCharsSequence());
+    if (matcher.find()) {
+      return document.getLineNumber(matcher.start());
+    }
+    return null;
+  }
+
   private HighlightSeverity toSeverity(Severity severity) {
     switch (severity) {
       case DEBUG:
@@ -0,0 +1,106 @@
+package org.asciidoc.intellij.antora;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Component descriptor as parsed from an <code>antora.yml</code> file.
+ * Instances are immutable and are shared via the {@link AntoraModel}.
+ */
+public final class AntoraComponent {
+  private final String name;
+  private final String version;
+  private final String title;
+  private final String displayVersion;
+  private final String prerelease;
+  private final List<String> nav;
+  private final Map<String, Object> attributes;
+
+  AntoraComponent(@Nullable Map<String, Object> antora) {
+    if (antora == null) {
+      antora = Collections.emptyMap();
+    }
+    this.name = getAttributeAsString(antora, "name");
+    this.version = getAttributeAsString(antora, "version");
+    this.title = getAttributeAsString(antora, "title");
+    this.displayVersion = getAttributeAsString(antora, "display-version");
+    this.prerelease = getAttributeAsString(antora, "prerelease");
+    List<String> navList = new ArrayList<>();
+    Object navObject = antora.get("nav");
+    if (navObject instanceof Collection) {
+      for (Object item : (Collection<?>) navObject) {
+        if (item != null) {
+          navList.add(item.toString());
+        }
+      }
+    }
+    this.nav = Collections.unmodifiableList(navList);
+    Map<String, Object> attributeMap = new LinkedHashMap<>();
+    Object asciidoc = antora.get("asciidoc");
+    if (asciidoc instanceof Map) {
+      Object attributesObject = ((Map<?, ?>) asciidoc).get("attributes");
+      if (attributesObject instanceof Map) {
+        ((Map<?, ?>) attributesObject).forEach((k, v) -> attributeMap.put(String.valueOf(k), v));
+      }
+    }
+    this.attributes = Collections.unmodifiableMap(attributeMap);
+  }
+
+  @Nullable
+  private static String getAttributeAsString(Map<String, Object> antora, String name) {
+    Object value = antora.get(name);
+    if (value == null) {
+      return null;
+    }
+    return value.toString();
+  }
+
+  @Nullable
+  public String getName() {
+    return name;
+  }
+
+  @Nullable
+  public String getVersion() {
+    return version;
+  }
+
+  @Nullable
+  public String getTitle() {
+    return title;
+  }
+
+  @Nullable
+  public String getDisplayVersion() {
+    return displayVersion;
+  }
+
+  @Nullable
+  public String getPrerelease() {
+    return prerelease;
+  }
+
+  /**
+   * Navigation files, relative to the <code>antora.yml</code> file.
+   */
+  @NotNull
+  public List<String> getNav() {
+    return nav;
+  }
+
+  /**
+   * AsciiDoc attributes as specified in <code>asciidoc.attributes</code>, values are not yet post-processed.
+   */
+  @NotNull
+  public Map<String, Object> getAttributes() {
+    return attributes;
+  }
+
+}
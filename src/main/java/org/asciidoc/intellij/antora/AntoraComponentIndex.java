@@ -0,0 +1,286 @@
+package org.asciidoc.intellij.antora;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.asciidoc.intellij.psi.AsciiDocUtil.ANTORA_YML;
+
+/**
+ * Index of all <code>antora.yml</code> files by the name of their component.
+ * This allows to find the components, versions and modules referenced in an Antora prefix
+ * without parsing all component descriptors of the project.
+ * The module directories are not part of the index, as they don't depend on the content of the file;
+ * use {@link #getModuleDirs(VirtualFile)} to find them.
+ */
+public class AntoraComponentIndex extends FileBasedIndexExtension<String, AntoraComponentIndex.Descriptor> {
+
+  public static final ID<String, Descriptor> NAME = ID.create("asciidoc.antora.component");
+
+  /**
+   * Information about one version of a component, as stored in the index.
+   */
+  public static final class Descriptor {
+    private final String version;
+    private final String title;
+    private final String displayVersion;
+    private final String prerelease;
+
+    Descriptor(@Nullable String version, @Nullable String title, @Nullable String displayVersion, @Nullable String prerelease) {
+      this.version = version;
+      this.title = title;
+      this.displayVersion = displayVersion;
+      this.prerelease = prerelease;
+    }
+
+    @Nullable
+    public String getVersion() {
+      return version;
+    }
+
+    @Nullable
+    public String getTitle() {
+      return title;
+    }
+
+    @Nullable
+    public String getDisplayVersion() {
+      return displayVersion;
+    }
+
+    @Nullable
+    public String getPrerelease() {
+      return prerelease;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Descriptor that = (Descriptor) o;
+      return Objects.equals(version, that.version) &&
+        Objects.equals(title, that.title) &&
+        Objects.equals(displayVersion, that.displayVersion) &&
+        Objects.equals(prerelease, that.prerelease);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(version, title, displayVersion, prerelease);
+    }
+  }
+
+  /**
+   * A component's <code>antora.yml</code> file together with the information from the index.
+   */
+  public static final class Component {
+    private final String name;
+    private final VirtualFile antoraFile;
+    private final Descriptor descriptor;
+
+    private Component(String name, VirtualFile antoraFile, Descriptor descriptor) {
+      this.name = name;
+      this.antoraFile = antoraFile;
+      this.descriptor = descriptor;
+    }
+
+    @NotNull
+    public String getName() {
+      return name;
+    }
+
+    @NotNull
+    public VirtualFile getAntoraFile() {
+      return antoraFile;
+    }
+
+    @Nullable
+    public String getVersion() {
+      return descriptor.getVersion();
+    }
+
+    @Nullable
+    public String getTitle() {
+      return descriptor.getTitle();
+    }
+
+    @Nullable
+    public String getDisplayVersion() {
+      return descriptor.getDisplayVersion();
+    }
+
+    @Nullable
+    public String getPrerelease() {
+      return descriptor.getPrerelease();
+    }
+
+    @NotNull
+    public List<VirtualFile> getModuleDirs() {
+      return AntoraComponentIndex.getModuleDirs(antoraFile);
+    }
+  }
+
+  /**
+   * All versions of the component with the given name. Needs to be called within a read action and outside dumb mode.
+   */
+  @NotNull
+  public static List<Component> findComponents(@NotNull Project project, @NotNull String name) {
+    List<Component> result = new ArrayList<>();
+    FileBasedIndex.getInstance().processValues(NAME, name, null, (file, descriptor) -> {
+      result.add(new Component(name, file, descriptor));
+      return true;
+    }, GlobalSearchScope.projectScope(project));
+    return result;
+  }
+
+  /**
+   * All components of the project. Needs to be called within a read action and outside dumb mode.
+   */
+  @NotNull
+  public static List<Component> findAllComponents(@NotNull Project project) {
+    List<Component> result = new ArrayList<>();
+    Collection<String> names = FileBasedIndex.getInstance().getAllKeys(NAME, project);
+    for (String name : names) {
+      result.addAll(findComponents(project, name));
+    }
+    return result;
+  }
+
+  /**
+   * Module directories of the component, as found in its directory <code>modules</code>.
+   */
+  @NotNull
+  public static List<VirtualFile> getModuleDirs(@NotNull VirtualFile antoraFile) {
+    VirtualFile parent = antoraFile.getParent();
+    if (parent == null) {
+      return Collections.emptyList();
+    }
+    VirtualFile modules = parent.findChild("modules");
+    if (modules == null || !modules.isDirectory()) {
+      return Collections.emptyList();
+    }
+    List<VirtualFile> result = new ArrayList<>();
+    for (VirtualFile child : modules.getChildren()) {
+      if (child.isDirectory()) {
+        result.add(child);
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  @Override
+  public ID<String, Descriptor> getName() {
+    return NAME;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, Descriptor, FileContent> getIndexer() {
+    return inputData -> {
+      Object antora;
+      try {
+        antora = new Yaml().load(inputData.getContentAsText().toString());
+      } catch (YAMLException ex) {
+        // broken files are reported when they are read by the AntoraModel
+        return Collections.emptyMap();
+      }
+      if (!(antora instanceof Map)) {
+        return Collections.emptyMap();
+      }
+      @SuppressWarnings("unchecked") AntoraComponent component = new AntoraComponent((Map<String, Object>) antora);
+      if (component.getName() == null) {
+        return Collections.emptyMap();
+      }
+      Map<String, Descriptor> result = new LinkedHashMap<>();
+      result.put(component.getName(), new Descriptor(component.getVersion(), component.getTitle(),
+        component.getDisplayVersion(), component.getPrerelease()));
+      return result;
+    };
+  }
+
+  @NotNull
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return EnumeratorStringDescriptor.INSTANCE;
+  }
+
+  @NotNull
+  @Override
+  public DataExternalizer<Descriptor> getValueExternalizer() {
+    return new DataExternalizer<Descriptor>() {
+      @Override
+      public void save(@NotNull DataOutput out, Descriptor value) throws IOException {
+        writeNullableString(out, value.getVersion());
+        writeNullableString(out, value.getTitle());
+        writeNullableString(out, value.getDisplayVersion());
+        writeNullableString(out, value.getPrerelease());
+      }
+
+      @Override
+      public Descriptor read(@NotNull DataInput in) throws IOException {
+        return new Descriptor(readNullableString(in), readNullableString(in), readNullableString(in), readNullableString(in));
+      }
+    };
+  }
+
+  private static void writeNullableString(DataOutput out, @Nullable String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      IOUtil.writeUTF(out, value);
+    }
+  }
+
+  @Nullable
+  private static String readNullableString(DataInput in) throws IOException {
+    if (in.readBoolean()) {
+      return IOUtil.readUTF(in);
+    }
+    return null;
+  }
+
+  @Override
+  public int getVersion() {
+    return 1;
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return file -> ANTORA_YML.equals(file.getName());
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+}
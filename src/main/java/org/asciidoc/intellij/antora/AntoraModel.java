@@ -0,0 +1,101 @@
+package org.asciidoc.intellij.antora;
+
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationType;
+import com.intellij.notification.Notifications;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.asciidoc.intellij.editor.AsciiDocPreviewEditor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed <code>antora.yml</code> files of a project.
+ * Each file is parsed only once for each modification of its document, all other requests are served from the cache.
+ * Parsing errors are cached as well, so that the user is notified only once about each broken version of the file.
+ * Entries of files that have been deleted are dropped the next time a file is parsed.
+ */
+public class AntoraModel {
+
+  private static final Logger LOG = Logger.getInstance(AntoraModel.class);
+
+  private final Map<VirtualFile, Entry> components = new ConcurrentHashMap<>();
+
+  private static final class Entry {
+    private final long modificationStamp;
+    private final AntoraComponent component;
+    private final String error;
+
+    private Entry(long modificationStamp, AntoraComponent component, String error) {
+      this.modificationStamp = modificationStamp;
+      this.component = component;
+      this.error = error;
+    }
+  }
+
+  public static AntoraModel getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, AntoraModel.class);
+  }
+
+  /**
+   * Component described by an <code>antora.yml</code> file. Needs to be called within a read action.
+   *
+   * @throws YAMLException if the file can't be read or parsed
+   */
+  @NotNull
+  public AntoraComponent getComponent(@NotNull VirtualFile antoraFile) {
+    Document document = FileDocumentManager.getInstance().getDocument(antoraFile);
+    if (document == null) {
+      components.remove(antoraFile);
+      YAMLException ex = new YAMLException("unable to read file");
+      handleAntoraYamlException(ex, antoraFile.getCanonicalPath());
+      throw ex;
+    }
+    long modificationStamp = document.getModificationStamp();
+    Entry entry = components.get(antoraFile);
+    if (entry == null || entry.modificationStamp != modificationStamp) {
+      entry = parse(antoraFile, document.getText(), modificationStamp);
+      components.keySet().removeIf(file -> !file.isValid());
+      components.put(antoraFile, entry);
+    }
+    if (entry.error != null) {
+      throw new YAMLException(entry.error);
+    }
+    return entry.component;
+  }
+
+  private static Entry parse(@NotNull VirtualFile antoraFile, String text, long modificationStamp) {
+    try {
+      Yaml yaml = new Yaml();
+      Object antora = yaml.load(text);
+      if (antora != null && !(antora instanceof Map)) {
+        throw new YAMLException("expected a map of component attributes");
+      }
+      @SuppressWarnings("unchecked") Map<String, Object> map = (Map<String, Object>) antora;
+      return new Entry(modificationStamp, new AntoraComponent(map), null);
+    } catch (YAMLException ex) {
+      String fileName = antoraFile.getCanonicalPath();
+      handleAntoraYamlException(ex, fileName);
+      return new Entry(modificationStamp, null, "Error when reading file " + fileName);
+    }
+  }
+
+  private static void handleAntoraYamlException(YAMLException ex, @Nullable String canonicalPath) {
+    String message = canonicalPath + ": " + ex.getMessage();
+    LOG.warn("Error reading Antora component information", ex);
+    Notification notification = AsciiDocPreviewEditor.NOTIFICATION_GROUP.createNotification("Error reading Antora component information", message,
+      NotificationType.ERROR, null);
+    notification.setImportant(true);
+    Notifications.Bus.notify(notification);
+  }
+
+}
@@ -20,15 +20,15 @@ import static org.asciidoc.intellij.psi.AsciiDocUtil.URL_PREFIX_PATTERN;
 
 /**
  * This {@link IncludeProcessor} translates Antora style includes to standard AsciiDoc includes.
+ * The Antora module is taken from the {@link RenderContext} of the document.
  */
 public class AntoraIncludeAdapter extends IncludeProcessor {
 
-  private Project project;
-  private VirtualFile antoraModuleDir;
-
   @Override
   public boolean handles(String target) {
-    if (antoraModuleDir == null) {
+    // this callback doesn't receive the document, therefore use the context of the conversion running on this thread
+    RenderContext context = RenderContext.current();
+    if (context == null || context.getAntoraModuleDir() == null) {
       return false;
     }
     Matcher urlMatcher = URL_PREFIX_PATTERN.matcher(target);
@@ -48,11 +48,16 @@ public class AntoraIncludeAdapter extends IncludeProcessor {
 
   @Override
   public void process(Document document, PreprocessorReader reader, String target, Map<String, Object> attributes) {
+    RenderContext context = RenderContext.of(document);
+    if (context == null) {
+      throw new IllegalStateException("no render context for document");
+    }
+    Project project = context.getProject();
     Matcher matcher = ANTORA_PREFIX_AND_FAMILY_PATTERN.matcher(target);
     if (matcher.find()) {
       String oldTarget = target;
       // if we read from an include-file, use that to determine originating module
-      VirtualFile localModule = antoraModuleDir;
+      VirtualFile localModule = context.getAntoraModuleDir();
       String readFile = reader.getFile();
       if (StringUtils.isNotBlank(readFile)) {
         VirtualFile resolved = LocalFileSystem.getInstance().findFileByPath(reader.getFile());
@@ -87,9 +92,4 @@ public class AntoraIncludeAdapter extends IncludeProcessor {
     data.append("]");
     reader.push_include(data.toString(), null, null, reader.getLineNumber() - 1, Collections.emptyMap());
   }
-
-  public void setAntoraDetails(Project project, VirtualFile antoraModuleDir) {
-    this.project = project;
-    this.antoraModuleDir = antoraModuleDir;
-  }
 }
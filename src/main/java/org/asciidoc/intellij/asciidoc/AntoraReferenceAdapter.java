@@ -30,18 +30,6 @@ public class AntoraReferenceAdapter {
   private static final com.intellij.openapi.diagnostic.Logger LOG =
     com.intellij.openapi.diagnostic.Logger.getInstance(AntoraReferenceAdapter.class);
 
-  public static void setAntoraDetails(Project project, VirtualFile antoraModuleDir, File fileBaseDir, String name) {
-    AntoraReferenceAdapter.project = project;
-    AntoraReferenceAdapter.antoraModuleDir = antoraModuleDir;
-    AntoraReferenceAdapter.fileBaseDir = fileBaseDir;
-    AntoraReferenceAdapter.name = name;
-  }
-
-  private static Project project;
-  private static VirtualFile antoraModuleDir;
-  private static File fileBaseDir;
-  private static String name;
-
   public static void convertInlineAnchor(RubyObject node) {
     convertAntora(node, "inline_anchor");
   }
@@ -56,8 +44,16 @@ public class AntoraReferenceAdapter {
 
   @SuppressWarnings("checkstyle:MethodLength")
   public static void convertAntora(RubyObject node, String type) {
+    PhraseNodeImpl phraseNode = new PhraseNodeImpl(node);
+    RenderContext context = RenderContext.of(phraseNode.getDocument());
+    if (context == null) {
+      return;
+    }
+    Project project = context.getProject();
+    VirtualFile antoraModuleDir = context.getAntoraModuleDir();
+    File fileBaseDir = context.getFileBaseDir();
+    String name = context.getName();
     if (antoraModuleDir != null) {
-      PhraseNodeImpl phraseNode = new PhraseNodeImpl(node);
       if (type.equals("inline_image")) {
         String nodeType = phraseNode.getType();
         if (Objects.equals(nodeType, "icon")) {
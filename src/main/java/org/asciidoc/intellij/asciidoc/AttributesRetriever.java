@@ -3,9 +3,7 @@ package org.asciidoc.intellij.asciidoc;
 import org.asciidoc.intellij.psi.AsciiDocUtil;
 import org.asciidoctor.ast.Document;
 import org.asciidoctor.extension.Postprocessor;
-import org.jetbrains.annotations.NotNull;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -13,12 +11,16 @@ import java.util.regex.Matcher;
 
 /**
  * Retrieve attribute as of after the document was rendered. For now only retrieve imagesdir.
+ * The attributes are passed on to the {@link RenderContext} of the document.
  */
 public class AttributesRetriever extends Postprocessor {
-  private volatile Map<String, String> attributes = Collections.emptyMap();
 
   @Override
   public String process(Document document, String output) {
+    RenderContext context = RenderContext.of(document);
+    if (context == null) {
+      return output;
+    }
     Map<String, String> result = new HashMap<String, String>() {
       @Override
       public String get(Object key) {
@@ -41,11 +43,7 @@ public class AttributesRetriever extends Postprocessor {
       }
     };
     document.getAttributes().forEach((s, o) -> result.put(s.toLowerCase(Locale.US), o.toString()));
-    attributes = result;
+    context.setAttributes(result);
     return output;
   }
-
-  public @NotNull Map<String, String> getAttributes() {
-    return attributes;
-  }
 }
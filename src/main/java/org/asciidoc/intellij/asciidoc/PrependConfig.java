@@ -12,19 +12,20 @@ import java.util.Collections;
  * This will not change the line original numbers in the file.
  * If processing reports messages for the configuration lines, they will receive line numbers starting with 1.
  * Once the processing is complete, all lines from the regular document receive regular line numbers.
+ * The configuration is taken from the {@link RenderContext} of the document.
  */
 public class PrependConfig extends Preprocessor {
-  private String config = "";
 
   @Override
   public void process(Document document, PreprocessorReader reader) {
+    RenderContext context = RenderContext.of(document);
+    if (context == null) {
+      return;
+    }
+    String config = context.getConfig();
     if (config.length() != 0) {
       // otherwise an empty line at the beginning breaks level 0 detection
       reader.push_include(config, null, null, 1, Collections.emptyMap());
     }
   }
-
-  public void setConfig(String config) {
-    this.config = config;
-  }
 }
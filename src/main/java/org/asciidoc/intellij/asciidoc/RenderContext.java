@@ -0,0 +1,139 @@
+package org.asciidoc.intellij.asciidoc;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.asciidoctor.ast.Document;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State of a single conversion that the Java and Ruby extensions need, for example the configuration to prepend
+ * and the Antora module of the document.
+ * The extensions are registered once for each Asciidoctor instance and are shared by all conversions of that instance.
+ * Therefore they look up the context of the document they are processing via the conversion option {@link #OPTION}.
+ * Unlike a document attribute, an option can't be read or overwritten by the document.
+ * This allows several conversions to run at the same time.
+ */
+public final class RenderContext implements AutoCloseable {
+
+  /**
+   * Name of the conversion option that holds the ID of the context.
+   */
+  public static final String OPTION = "intellij_render_context";
+
+  private static final Map<String, RenderContext> CONTEXTS = new ConcurrentHashMap<>();
+
+  private static final AtomicLong COUNTER = new AtomicLong();
+
+  /**
+   * Context of the conversion currently running on this thread.
+   * Needed for callbacks that don't receive the document, like {@link AntoraIncludeAdapter#handles(String)},
+   * and for nested documents like AsciiDoc table cells, as they don't inherit the options of their parent.
+   */
+  private static final ThreadLocal<RenderContext> CURRENT = new ThreadLocal<>();
+
+  private final String id;
+  private final Project project;
+  private final VirtualFile antoraModuleDir;
+  private final File fileBaseDir;
+  private final String name;
+  private final String config;
+  private final RenderContext previous;
+  private volatile Map<String, String> attributes = Collections.emptyMap();
+
+  private RenderContext(Project project, VirtualFile antoraModuleDir, File fileBaseDir, String name, String config) {
+    this.id = Long.toString(COUNTER.incrementAndGet());
+    this.project = project;
+    this.antoraModuleDir = antoraModuleDir;
+    this.fileBaseDir = fileBaseDir;
+    this.name = name;
+    this.config = config;
+    this.previous = CURRENT.get();
+  }
+
+  /**
+   * Create a context for a conversion that is about to start on the current thread.
+   * The context needs to be closed once the conversion is complete.
+   * The ID of the context needs to be passed to the conversion as the option {@link #OPTION}.
+   */
+  public static RenderContext open(Project project, @Nullable VirtualFile antoraModuleDir, File fileBaseDir, String name, String config) {
+    RenderContext context = new RenderContext(project, antoraModuleDir, fileBaseDir, name, config);
+    CONTEXTS.put(context.id, context);
+    CURRENT.set(context);
+    return context;
+  }
+
+  @Override
+  public void close() {
+    CONTEXTS.remove(id);
+    if (previous != null) {
+      CURRENT.set(previous);
+    } else {
+      CURRENT.remove();
+    }
+  }
+
+  /**
+   * Find the context for the document that is currently converted.
+   * Falls back to the context of the conversion currently running on this thread for nested documents.
+   */
+  @Nullable
+  public static RenderContext of(@Nullable Document document) {
+    if (document == null) {
+      return null;
+    }
+    Object id = document.getOptions().get(OPTION);
+    if (id == null) {
+      return current();
+    }
+    return CONTEXTS.get(id.toString());
+  }
+
+  /**
+   * Find the context for the conversion currently running on this thread.
+   */
+  @Nullable
+  public static RenderContext current() {
+    return CURRENT.get();
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public Project getProject() {
+    return project;
+  }
+
+  @Nullable
+  public VirtualFile getAntoraModuleDir() {
+    return antoraModuleDir;
+  }
+
+  public File getFileBaseDir() {
+    return fileBaseDir;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public @NotNull String getConfig() {
+    return config != null ? config : "";
+  }
+
+  public @NotNull Map<String, String> getAttributes() {
+    return attributes;
+  }
+
+  public void setAttributes(@NotNull Map<String, String> attributes) {
+    this.attributes = attributes;
+  }
+
+}
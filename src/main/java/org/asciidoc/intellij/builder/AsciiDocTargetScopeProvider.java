@@ -3,47 +3,53 @@ package org.asciidoc.intellij.builder;
 import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.compiler.impl.BuildTargetScopeProvider;
 import com.intellij.openapi.compiler.CompileScope;
-import com.intellij.openapi.module.Module;
-import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.problems.WolfTheProblemSolver;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiManager;
 import org.asciidoc.intellij.file.AsciiDocFileType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jps.api.CmdlineRemoteProto;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * This is a dummy provider to clear all error in asciidoctor files and re-trigger a code analyze for the
- * currently selected/open files using {@link DaemonCodeAnalyzer}.
+ * currently open files using {@link DaemonCodeAnalyzer}.
+ * Only the files known to have problems are visited, so neither the index nor the PSI of other files is needed.
  */
 public class AsciiDocTargetScopeProvider extends BuildTargetScopeProvider {
   @NotNull
   @Override
   public List<CmdlineRemoteProto.Message.ControllerMessage.ParametersMessage.TargetTypeBuildScope> getBuildTargetScopes(@NotNull CompileScope baseScope, @NotNull Project project, boolean forceBuild) {
-    for (Module module : ModuleManager.getInstance(project).getModules()) {
-      clearProblemsForAsciidocFiles(module, project);
-    }
+    clearProblemsForAsciidocFiles(project);
     return super.getBuildTargetScopes(baseScope, project, forceBuild);
   }
 
-  private static void clearProblemsForAsciidocFiles(Module module, Project project) {
+  private static void clearProblemsForAsciidocFiles(Project project) {
+    if (project.isDisposed()) {
+      return;
+    }
     WolfTheProblemSolver theProblemSolver = WolfTheProblemSolver.getInstance(project);
-    ModuleRootManager.getInstance(module).getFileIndex().iterateContent(file -> {
-      if (!file.isDirectory() && AsciiDocFileType.INSTANCE == file.getFileType()) {
-        // this will clear the problems for all Asciidoc files in the modules
-        // consider using clearProblemsFromExternalSource available from 2019.x?
-        theProblemSolver.clearProblems(file);
-        PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
-        if (psiFile != null) {
-          // the DaemonCodeAnalyzer will only trigger for any open file (independent of the file we pass here)
-          DaemonCodeAnalyzer.getInstance(project).restart(psiFile);
-        }
+    // collect the AsciiDoc files with problems first, then clear them in one go;
+    // the condition never matches, therefore all problem files are visited
+    List<VirtualFile> problemFiles = new ArrayList<>();
+    theProblemSolver.hasProblemFilesBeneath(file -> {
+      if (AsciiDocFileType.INSTANCE == file.getFileType()) {
+        problemFiles.add(file);
       }
-      return true;
+      return false;
     });
+    for (VirtualFile file : problemFiles) {
+      theProblemSolver.clearProblems(file);
+    }
+    // the DaemonCodeAnalyzer analyzes only open files; restart it once if any of them is an AsciiDoc file
+    for (VirtualFile file : FileEditorManager.getInstance(project).getOpenFiles()) {
+      if (file.isValid() && AsciiDocFileType.INSTANCE == file.getFileType()) {
+        DaemonCodeAnalyzer.getInstance(project).restart();
+        break;
+      }
+    }
   }
 }
@@ -25,6 +25,7 @@ import com.intellij.notification.NotificationType;
 import com.intellij.notification.Notifications;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
@@ -39,6 +40,7 @@ import com.intellij.openapi.fileEditor.FileEditorLocation;
 import com.intellij.openapi.fileEditor.FileEditorState;
 import com.intellij.openapi.fileEditor.FileEditorStateLevel;
 import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.UserDataHolderBase;
@@ -51,8 +53,10 @@ import com.intellij.psi.PsiFile;
 import com.intellij.util.Alarm;
 import com.intellij.util.FileContentUtilCore;
 import com.intellij.util.messages.MessageBusConnection;
-import org.apache.commons.io.FileUtils;
 import org.asciidoc.intellij.AsciiDoc;
+import org.asciidoc.intellij.RenderResultCache;
+import org.asciidoc.intellij.file.AsciiDocFileType;
+import org.asciidoc.intellij.psi.AsciiDocIncludeGraph;
 import org.asciidoc.intellij.settings.AsciiDocApplicationSettings;
 import org.asciidoc.intellij.settings.AsciiDocPreviewSettings;
 import org.intellij.lang.annotations.Language;
@@ -65,11 +69,14 @@ import javax.swing.*;
 import java.awt.*;
 import java.beans.PropertyChangeListener;
 import java.io.File;
-import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.FutureTask;
 
 /**
@@ -92,6 +99,16 @@ public class AsciiDocPreviewEditor extends UserDataHolderBase implements FileEdi
    */
   private transient String currentContent = null;
 
+  /**
+   * AsciiDoc files changed since the last refresh; the preview needs a refresh if it includes one of them.
+   */
+  private final Set<VirtualFile> changedFiles = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Other files changed since the last refresh, for example configuration files, therefore the preview needs a refresh.
+   */
+  private volatile boolean otherFilesChanged;
+
   private transient int targetLineNo = 0;
   private transient int currentLineNo = 0;
 
@@ -143,11 +160,17 @@ public class AsciiDocPreviewEditor extends UserDataHolderBase implements FileEdi
 
     lazyExecutor.execute(() -> {
       try {
+        if (includedFilesChanged()) {
+          currentContent = null;
+        }
         if (!(config + content).equals(currentContent)) {
           currentContent = config + content;
-          String markup = asciidoc.get().render(content, config, extensions);
+          AsciiDoc instance = asciidoc.get();
+          RenderResultCache.Result result = RenderResultCache.render(document, instance, content, config, extensions,
+            instance::notify, AsciiDoc.FileType.JAVAFX, true);
+          String markup = result.getHtml();
           if (markup != null) {
-            myPanel.setHtml(markup, asciidoc.get().getAttributes());
+            myPanel.setHtml(markup, result.getAttributes());
           }
         }
         if (currentLineNo != targetLineNo) {
@@ -171,6 +194,39 @@ public class AsciiDocPreviewEditor extends UserDataHolderBase implements FileEdi
     });
   }
 
+  /**
+   * Checks if any file changed that this document includes directly or indirectly, or any other file
+   * that might influence the rendering.
+   */
+  private boolean includedFilesChanged() {
+    boolean other = otherFilesChanged;
+    otherFilesChanged = false;
+    Set<VirtualFile> changed = new HashSet<>();
+    for (Iterator<VirtualFile> iterator = changedFiles.iterator(); iterator.hasNext(); ) {
+      changed.add(iterator.next());
+      iterator.remove();
+    }
+    if (other) {
+      return true;
+    }
+    if (changed.isEmpty()) {
+      return false;
+    }
+    VirtualFile file = FileDocumentManager.getInstance().getFile(document);
+    return ReadAction.compute(() -> {
+      if (file == null || project.isDisposed() || DumbService.isDumb(project)) {
+        return true;
+      }
+      Set<VirtualFile> included = AsciiDocIncludeGraph.getInstance(project).getIncludedFilesTransitively(file);
+      for (VirtualFile changedFile : changed) {
+        if (included.contains(changedFile)) {
+          return true;
+        }
+      }
+      return false;
+    });
+  }
+
   void renderIfVisible() {
     if (getComponent().isVisible()) {
       render();
@@ -222,6 +278,7 @@ public class AsciiDocPreviewEditor extends UserDataHolderBase implements FileEdi
     this.project = project;
 
     this.tempImagesPath = AsciiDoc.tempImagesPath();
+    RenderResultCache.registerPreviewImagesPath(document, tempImagesPath);
 
     myHtmlPanelWrapper = new JPanel(new BorderLayout());
 
@@ -252,8 +309,16 @@ public class AsciiDocPreviewEditor extends UserDataHolderBase implements FileEdi
     connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
       @Override
       public void after(@NotNull List<? extends VFileEvent> events) {
-        // As an include might have been modified, force the refresh of the preview
-        currentContent = null;
+        // As an include might have been modified, refresh the preview if it includes a modified AsciiDoc file.
+        // The include graph is checked when rendering, as it might need to resolve includes.
+        for (VFileEvent event : events) {
+          VirtualFile file = event.getFile();
+          if (file != null && file.isValid() && !file.isDirectory() && file.getFileType() == AsciiDocFileType.INSTANCE) {
+            changedFiles.add(file);
+          } else {
+            otherFilesChanged = true;
+          }
+        }
         renderIfVisible();
       }
     });
@@ -463,13 +528,8 @@ public class AsciiDocPreviewEditor extends UserDataHolderBase implements FileEdi
   @Override
   public void dispose() {
     Disposer.dispose(this);
-    if (tempImagesPath != null) {
-      try {
-        FileUtils.deleteDirectory(tempImagesPath.toFile());
-      } catch (IOException _ex) {
-        Logger.getInstance(AsciiDocPreviewEditor.class).warn("could not remove temp folder", _ex);
-      }
-    }
+    // deletes the directory once no conversion of another consumer renders into it any more
+    RenderResultCache.unregisterPreviewImagesPath(document, tempImagesPath);
   }
 
   void scrollToLine(int line) {
@@ -0,0 +1,374 @@
+package org.asciidoc.intellij.editor;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the rendered content of the preview into its blocks, so that only the blocks that changed need to be sent
+ * to the browser. Blocks are compared by a hash of their HTML with the line numbers of the data-line-* markers removed,
+ * so that adding a line at the top of the document doesn't replace all following blocks.
+ * The patch is applied by <code>patchContent.js</code>.
+ */
+public final class PreviewBlocks {
+
+  private static final Pattern LINE_NUMBER = Pattern.compile("(data-line-[^\\s\"]*-)\\d+");
+  private static final Pattern TAG_NAME = Pattern.compile("[A-Za-z][A-Za-z0-9-]*");
+  private static final Pattern CLASS_ATTRIBUTE = Pattern.compile("\\sclass\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+))");
+
+  private static final Set<String> VOID_ELEMENTS = new HashSet<>(Arrays.asList(
+    "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr"));
+  private static final Set<String> RAW_TEXT_ELEMENTS = new HashSet<>(Arrays.asList("script", "style", "textarea", "title"));
+  // blocks that are replaced as a whole, as the browser might re-arrange or re-render their children
+  private static final Set<String> LEAF_ELEMENTS = new HashSet<>(Arrays.asList("pre", "svg", "math", "table"));
+
+  private PreviewBlocks() {
+  }
+
+  /**
+   * An element of the rendered HTML.
+   */
+  public static final class Block {
+    private final String source;
+    private final int start;
+    private final String name;
+    private final String startTag;
+    @Nullable
+    private final String marker;
+    private final List<Block> children = new ArrayList<>();
+    private int end;
+    private boolean text;
+    private String key;
+    private List<String> markers;
+
+    private Block(String source, int start, String name, String startTag) {
+      this.source = source;
+      this.start = start;
+      this.name = name;
+      this.startTag = startTag;
+      this.marker = marker(startTag);
+    }
+
+    @NotNull
+    public String getHtml() {
+      return source.substring(start, end);
+    }
+
+    /**
+     * Hash of the HTML without line numbers.
+     */
+    @NotNull
+    public String getKey() {
+      if (key == null) {
+        key = hash(withoutLineNumbers(getHtml()));
+      }
+      return key;
+    }
+
+    /**
+     * A container can be patched child-by-child if it contains only elements (and whitespace between them).
+     */
+    private boolean isContainer() {
+      return !text && !children.isEmpty() && !LEAF_ELEMENTS.contains(name);
+    }
+
+    private String shell() {
+      return withoutLineNumbers(startTag);
+    }
+
+    /**
+     * Markers of this element and all elements within, in document order, as found by
+     * <code>getElementsByClassName('has-source-line')</code>.
+     */
+    private List<String> markers() {
+      if (markers == null) {
+        List<String> result = new ArrayList<>();
+        Deque<Block> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+          Block block = stack.pop();
+          if (block.marker != null) {
+            result.add(block.marker);
+          }
+          for (int i = block.children.size() - 1; i >= 0; --i) {
+            stack.push(block.children.get(i));
+          }
+        }
+        markers = result;
+      }
+      return markers;
+    }
+  }
+
+  /**
+   * Parse the HTML of the content into blocks.
+   *
+   * @return the single top-level element, or <code>null</code> if the HTML is not well-formed enough to be split,
+   * for example due to passthrough content with missing end tags.
+   */
+  @Nullable
+  public static Block parse(@NotNull String html) {
+    Deque<Block> open = new ArrayDeque<>();
+    Block root = null;
+    int i = 0;
+    int length = html.length();
+    while (i < length) {
+      int lt = html.indexOf('<', i);
+      int textEnd = lt == -1 ? length : lt;
+      if (hasText(html, i, textEnd)) {
+        if (open.isEmpty()) {
+          return null;
+        }
+        open.peek().text = true;
+      }
+      if (lt == -1) {
+        break;
+      }
+      if (html.startsWith("<!--", lt)) {
+        int endOfComment = html.indexOf("-->", lt + 4);
+        if (endOfComment == -1) {
+          return null;
+        }
+        i = endOfComment + 3;
+      } else if (html.startsWith("</", lt)) {
+        Matcher matcher = TAG_NAME.matcher(html).region(lt + 2, length);
+        int gt = html.indexOf('>', lt);
+        if (!matcher.lookingAt() || gt == -1 || open.isEmpty()
+          || !open.peek().name.equals(matcher.group().toLowerCase(Locale.US))) {
+          return null;
+        }
+        open.pop().end = gt + 1;
+        i = gt + 1;
+      } else {
+        Matcher matcher = TAG_NAME.matcher(html).region(lt + 1, length);
+        if (!matcher.lookingAt()) {
+          // a '<' that doesn't start a tag, or a declaration like a DOCTYPE
+          if (html.startsWith("<!", lt) || html.startsWith("<?", lt)) {
+            int gt = html.indexOf('>', lt);
+            if (gt == -1) {
+              return null;
+            }
+            i = gt + 1;
+          } else {
+            if (open.isEmpty()) {
+              return null;
+            }
+            open.peek().text = true;
+            i = lt + 1;
+          }
+          continue;
+        }
+        int gt = endOfTag(html, matcher.end());
+        if (gt == -1) {
+          return null;
+        }
+        String name = matcher.group().toLowerCase(Locale.US);
+        Block block = new Block(html, lt, name, html.substring(lt, gt + 1));
+        if (open.isEmpty()) {
+          if (root != null) {
+            return null;
+          }
+          root = block;
+        } else {
+          open.peek().children.add(block);
+        }
+        i = gt + 1;
+        if (VOID_ELEMENTS.contains(name) || html.charAt(gt - 1) == '/') {
+          block.end = i;
+        } else if (RAW_TEXT_ELEMENTS.contains(name)) {
+          int endTag = indexOfIgnoreCase(html, "</" + name, i);
+          int endTagGt = endTag == -1 ? -1 : html.indexOf('>', endTag);
+          if (endTagGt == -1) {
+            return null;
+          }
+          block.text = true;
+          block.end = endTagGt + 1;
+          i = endTagGt + 1;
+        } else {
+          open.push(block);
+        }
+      }
+    }
+    if (!open.isEmpty()) {
+      return null;
+    }
+    return root;
+  }
+
+  /**
+   * Calculate the changes to turn the content shown in the browser into the new content.
+   * Unchanged blocks at the start and at the end of each container are kept, and only get their line markers updated.
+   * A single changed container is descended into, all other changed blocks are sent as HTML.
+   *
+   * @return the patch as a JavaScript object for <code>__IntelliJTools.patchContent</code>,
+   * or <code>null</code> if the content needs to be replaced as a whole.
+   */
+  @Nullable
+  public static String diff(@NotNull Block previous, @NotNull Block current) {
+    if (!previous.isContainer() || !current.isContainer() || !previous.shell().equals(current.shell())) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append("{marker:").append(literal(Objects.equals(previous.marker, current.marker) ? null : current.marker))
+      .append(",patch:");
+    diffChildren(previous, current, sb);
+    sb.append('}');
+    return sb.toString();
+  }
+
+  private static void diffChildren(Block previous, Block current, StringBuilder sb) {
+    List<Block> oldChildren = previous.children;
+    List<Block> newChildren = current.children;
+    int start = 0;
+    while (start < oldChildren.size() && start < newChildren.size()
+      && oldChildren.get(start).getKey().equals(newChildren.get(start).getKey())) {
+      start++;
+    }
+    int oldEnd = oldChildren.size();
+    int newEnd = newChildren.size();
+    while (oldEnd > start && newEnd > start
+      && oldChildren.get(oldEnd - 1).getKey().equals(newChildren.get(newEnd - 1).getKey())) {
+      oldEnd--;
+      newEnd--;
+    }
+
+    sb.append("{head:[");
+    for (int i = 0; i < start; ++i) {
+      appendMarkers(oldChildren.get(i), newChildren.get(i), i, sb);
+    }
+    sb.append("],tail:[");
+    for (int i = oldEnd; i < oldChildren.size(); ++i) {
+      appendMarkers(oldChildren.get(i), newChildren.get(i - oldEnd + newEnd), i - oldEnd, sb);
+    }
+    sb.append("],");
+    if (oldEnd - start == 1 && newEnd - start == 1) {
+      String inner = diff(oldChildren.get(start), newChildren.get(start));
+      if (inner != null) {
+        sb.append("inner:").append(inner).append('}');
+        return;
+      }
+    }
+    sb.append("removed:").append(oldEnd - start).append(",added:[");
+    for (int i = start; i < newEnd; ++i) {
+      if (i > start) {
+        sb.append(',');
+      }
+      sb.append(literal(newChildren.get(i).getHtml()));
+    }
+    sb.append("]}");
+  }
+
+  private static void appendMarkers(Block previous, Block current, int index, StringBuilder sb) {
+    if (index > 0) {
+      sb.append(',');
+    }
+    List<String> markers = current.markers();
+    if (previous.markers().equals(markers)) {
+      sb.append("null");
+      return;
+    }
+    sb.append('[');
+    for (int i = 0; i < markers.size(); ++i) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(literal(markers.get(i)));
+    }
+    sb.append(']');
+  }
+
+  private static String literal(@Nullable String value) {
+    if (value == null) {
+      return "null";
+    }
+    return "'" + StringEscapeUtils.escapeEcmaScript(value) + "'";
+  }
+
+  @Nullable
+  private static String marker(String startTag) {
+    Matcher matcher = CLASS_ATTRIBUTE.matcher(startTag);
+    if (!matcher.find()) {
+      return null;
+    }
+    String classes = matcher.group(1) != null ? matcher.group(1) : matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+    List<String> names = Arrays.asList(classes.trim().split("\\s+"));
+    if (!names.contains("has-source-line")) {
+      return null;
+    }
+    for (String name : names) {
+      if (name.startsWith("data-line-")) {
+        return name;
+      }
+    }
+    return null;
+  }
+
+  private static String withoutLineNumbers(String html) {
+    return LINE_NUMBER.matcher(html).replaceAll("$1");
+  }
+
+  private static boolean hasText(String html, int start, int end) {
+    for (int i = start; i < end; ++i) {
+      if (!Character.isWhitespace(html.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int endOfTag(String html, int from) {
+    char quote = 0;
+    for (int i = from; i < html.length(); ++i) {
+      char c = html.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int indexOfIgnoreCase(String html, String search, int from) {
+    for (int i = from; i <= html.length() - search.length(); ++i) {
+      if (html.regionMatches(true, i, search, 0, search.length())) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static String hash(String content) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder();
+      // the first 128 bits are enough to tell different blocks apart
+      for (int i = 0; i < 16; ++i) {
+        sb.append(Integer.toString((digest[i] & 0xff) + 0x100, 16).substring(1));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("unable to calculate hash", e);
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+package org.asciidoc.intellij.editor;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Helpers for the previews to rewrite the URLs of images in the rendered HTML.
+ * The previews add a fingerprint of the image's content to the URL, so that the browser shows the new content once
+ * the image changes. Calculating the fingerprint needs to read the image, therefore the fingerprints are cached
+ * by the path of the image, and re-calculated only when size or modification time of the file change.
+ */
+public final class PreviewImages {
+
+  private static final int MAX_CACHED_FINGERPRINTS = 1000;
+
+  private static final Map<String, Fingerprint> FINGERPRINTS = new LinkedHashMap<String, Fingerprint>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Fingerprint> eldest) {
+      return size() > MAX_CACHED_FINGERPRINTS;
+    }
+  };
+
+  private static final class Fingerprint {
+    private final long lastModified;
+    private final long size;
+    private final String md5;
+
+    private Fingerprint(long lastModified, long size, String md5) {
+      this.lastModified = lastModified;
+      this.size = size;
+      this.md5 = md5;
+    }
+  }
+
+  private PreviewImages() {
+  }
+
+  /**
+   * Replace all matches of the pattern in a single pass over the HTML.
+   *
+   * @param replacement calculates the replacement for the current match.
+   */
+  @NotNull
+  public static String replaceAll(@NotNull String html, @NotNull Pattern pattern, @NotNull Function<Matcher, String> replacement) {
+    Matcher matcher = pattern.matcher(html);
+    if (!matcher.find()) {
+      return html;
+    }
+    StringBuilder sb = new StringBuilder(html.length() + 1024);
+    int last = 0;
+    do {
+      sb.append(html, last, matcher.start());
+      sb.append(replacement.apply(matcher));
+      last = matcher.end();
+    } while (matcher.find());
+    sb.append(html, last, html.length());
+    return sb.toString();
+  }
+
+  /**
+   * MD5 sum of the content of the file, or <code>none</code> if the file can't be read.
+   */
+  @NotNull
+  public static String fingerprint(@NotNull String file) {
+    Path path;
+    BasicFileAttributes attributes;
+    try {
+      path = Paths.get(file).toAbsolutePath();
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (IOException | InvalidPathException e) {
+      return "none";
+    }
+    if (!attributes.isRegularFile()) {
+      return "none";
+    }
+    String key = path.toString();
+    long lastModified = attributes.lastModifiedTime().toMillis();
+    long size = attributes.size();
+    synchronized (FINGERPRINTS) {
+      Fingerprint fingerprint = FINGERPRINTS.get(key);
+      if (fingerprint != null && fingerprint.lastModified == lastModified && fingerprint.size == size) {
+        return fingerprint.md5;
+      }
+    }
+    String md5 = calculateMd5(path);
+    if (!"none".equals(md5)) {
+      synchronized (FINGERPRINTS) {
+        FINGERPRINTS.put(key, new Fingerprint(lastModified, size, md5));
+      }
+    }
+    return md5;
+  }
+
+  private static String calculateMd5(Path file) {
+    String md5;
+    try {
+      MessageDigest md = MessageDigest.getInstance("MD5");
+      try (InputStream is = Files.newInputStream(file)) {
+        int nread;
+        byte[] dataBytes = new byte[8192];
+        while ((nread = is.read(dataBytes)) != -1) {
+          md.update(dataBytes, 0, nread);
+        }
+      }
+      byte[] mdbytes = md.digest();
+      StringBuilder sb = new StringBuilder();
+      for (byte mdbyte : mdbytes) {
+        sb.append(Integer.toString((mdbyte & 0xff) + 0x100, 16).substring(1));
+      }
+      md5 = sb.toString();
+    } catch (NoSuchAlgorithmException | IOException e) {
+      md5 = "none";
+    }
+    return md5;
+  }
+
+}
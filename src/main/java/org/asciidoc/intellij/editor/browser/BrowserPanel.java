@@ -16,6 +16,7 @@ import com.intellij.util.ui.UIUtil;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.asciidoc.intellij.AsciiDoc;
+import org.asciidoc.intellij.RenderResultCache;
 import org.asciidoc.intellij.editor.AsciiDocPreviewEditor;
 import org.asciidoc.intellij.editor.javafx.JavaFxHtmlPanel;
 import org.asciidoc.intellij.editor.javafx.PreviewStaticServer;
@@ -167,7 +168,10 @@ public class BrowserPanel implements Closeable {
     Objects.requireNonNull(file.getParent().getCanonicalPath(), "we will have files, these will always have a parent directory");
     AsciiDoc asciiDoc = new AsciiDoc(project, new File(file.getParent().getCanonicalPath()),
       imagesPath, file.getName());
-    String html = asciiDoc.render(document.getText(), config, extensions, asciiDoc::notifyAlways, AsciiDoc.FileType.HTML);
+    // concurrent requests for the same content share one conversion, reloads re-use its result
+    RenderResultCache.Result result = RenderResultCache.render(document, asciiDoc, document.getText(), config, extensions,
+      asciiDoc::notifyAlways, AsciiDoc.FileType.HTML, true);
+    String html = result.getHtml();
     if (file.getParent() != null) {
       // parent will be null if we use Language Injection and Fragment Editor
       base = file.getParent().getPath();
@@ -180,7 +184,7 @@ public class BrowserPanel implements Closeable {
       html = html.replaceAll("<span style=\"background-color:#[a-zA-Z0-9]*;?", "<span style=\"");
     }
     html = "<html><head></head><body><div id=\"header\"></div>" + html + "<div id=\"footer\"></div></body></html>";
-    html = prepareHtml(html, project, asciiDoc.getAttributes());
+    html = prepareHtml(html, project, result.getAttributes());
     return html;
   }
 
@@ -438,18 +442,18 @@ public class BrowserPanel implements Closeable {
    *
    * @param file absolute file name
    * @param mac  signature created when rendering the surrounding document
-   * @return byte array for the image, or null if file not exists or signature is wrong
+   * @return the image file, or null if file not exists or signature is wrong
    */
   @Nullable
-  public byte[] getImage(String file, String mac) {
+  public File getImageFile(String file, String mac) {
     if (!checkMac(file, mac)) {
       Logger.getInstance(AsciiDocPreviewEditor.class).warn("wrong signature when retrieving file '" + file + "'");
       return null;
     }
-    try {
-      return FileUtils.readFileToByteArray(new File(file));
-    } catch (IOException e) {
+    File image = new File(file);
+    if (!image.isFile()) {
       return null;
     }
+    return image;
   }
 }
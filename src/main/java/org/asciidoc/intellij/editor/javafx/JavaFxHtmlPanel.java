@@ -52,6 +52,7 @@ import org.asciidoc.intellij.AsciiDoc;
 import org.asciidoc.intellij.editor.AsciiDocHtmlPanel;
 import org.asciidoc.intellij.editor.AsciiDocHtmlPanelProvider;
 import org.asciidoc.intellij.editor.AsciiDocPreviewEditor;
+import org.asciidoc.intellij.editor.PreviewImages;
 import org.asciidoc.intellij.psi.AsciiDocUtil;
 import org.asciidoc.intellij.settings.AsciiDocApplicationSettings;
 import org.jetbrains.annotations.NotNull;
@@ -61,7 +62,6 @@ import org.w3c.dom.html.HTMLImageElement;
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -74,8 +74,6 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -83,14 +81,15 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.MatchResult;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class JavaFxHtmlPanel implements AsciiDocHtmlPanel {
 
   private final Logger log = Logger.getInstance(JavaFxHtmlPanel.class);
 
+  private static final Pattern IMAGE_PATTERN = Pattern.compile("<img src=\"(?<img>[^:\"]*)\"|<object (?<other>[^>]*)data=\"(?<object>[^:\"]*)\"");
+  private static final Pattern IMAGE_PATTERN_WITH_FILE_URLS = Pattern.compile(IMAGE_PATTERN.pattern() + "|<img src=\"file:///(?<fileurl>[^\"]*)\"");
+
   private static final NotNullLazyValue<String> MY_SCRIPTING_LINES = new NotNullLazyValue<String>() {
     @NotNull
     @Override
@@ -624,125 +623,54 @@ public class JavaFxHtmlPanel implements AsciiDocHtmlPanel {
   }
 
   private String prepareHtml(@NotNull String html, @NotNull Map<String, String> attributes) {
-    if (JavaFxHtmlPanelProvider.isInitialized()) {
-      // Antora plugin might resolve some absolute URLs, convert them to localfile so they get their MD5 that prevents caching
-      Pattern pattern = Pattern.compile("<img src=\"file:///([^\"]*)\"");
-      Matcher matcher = pattern.matcher(html);
-      while (matcher.find()) {
-        final MatchResult matchResult = matcher.toMatchResult();
-        String file = matchResult.group(1);
-        try {
-          file = URLDecoder.decode(file, StandardCharsets.UTF_8.name()); // restore "%20" as " "
-        } catch (UnsupportedEncodingException e) {
-          throw new RuntimeException(e);
-        }
-        String tmpFile = findTempImageFile(file, null);
-        String md5;
-        String replacement;
-        if (tmpFile != null) {
-          md5 = calculateMd5(tmpFile, null);
-          tmpFile = tmpFile.replaceAll("\\\\", "/");
-          try {
-            tmpFile = URLEncoder.encode(tmpFile, StandardCharsets.UTF_8.name());
-          } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
-          }
-          replacement = "<img src=\"localfile://" + md5 + "/" + tmpFile + "\"";
-        } else {
-          md5 = calculateMd5(file, base);
-          replacement = "<img src=\"localfile://" + md5 + "/" + base + "/" + file + "\"";
-        }
-        html = html.substring(0, matchResult.start()) +
-          replacement + html.substring(matchResult.end());
-        matcher.reset(html);
-      }
-    }
-
     /* for each image we'll calculate a MD5 sum of its content. Once the content changes, MD5 and therefore the URL
      * will change. The changed URL is necessary for the JavaFX web view to display the new content, as each URL
-     * will be loaded only once by the JavaFX web view. */
-    Pattern pattern = Pattern.compile("<img src=\"([^:\"]*)\"");
-    Matcher matcher = pattern.matcher(html);
-    while (matcher.find()) {
-      final MatchResult matchResult = matcher.toMatchResult();
-      String file = matchResult.group(1);
-      try {
-        file = URLDecoder.decode(file, StandardCharsets.UTF_8.name()); // restore "%20" as " "
-      } catch (UnsupportedEncodingException e) {
-        throw new RuntimeException(e);
-      }
-      String tmpFile = findTempImageFile(file, attributes.get("imagesdir"));
-      String md5;
-      String replacement;
-      if (tmpFile != null) {
-        md5 = calculateMd5(tmpFile, null);
-        tmpFile = tmpFile.replaceAll("\\\\", "/");
-        try {
-          tmpFile = URLEncoder.encode(tmpFile, StandardCharsets.UTF_8.name());
-        } catch (UnsupportedEncodingException e) {
-          throw new RuntimeException(e);
-        }
-        if (JavaFxHtmlPanelProvider.isInitialized()) {
-          replacement = "<img src=\"localfile://" + md5 + "/" + tmpFile + "\"";
-        } else {
-          replacement = "<img src=\"file://" + tmpFile + "\"";
-        }
+     * will be loaded only once by the JavaFX web view.
+     * The same for interactive SVGs. All images are replaced in a single pass over the HTML. */
+    boolean localfile = JavaFxHtmlPanelProvider.isInitialized();
+    html = PreviewImages.replaceAll(html, localfile ? IMAGE_PATTERN_WITH_FILE_URLS : IMAGE_PATTERN, matcher -> {
+      String prefix;
+      String file;
+      String imagesdir = attributes.get("imagesdir");
+      if (matcher.group("img") != null) {
+        prefix = "<img src=\"";
+        file = matcher.group("img");
+      } else if (matcher.group("object") != null) {
+        prefix = "<object " + matcher.group("other") + "data=\"";
+        file = matcher.group("object");
       } else {
-        md5 = calculateMd5(file, base);
-        if (JavaFxHtmlPanelProvider.isInitialized()) {
-          replacement = "<img src=\"localfile://" + md5 + "/" + base + "/" + file + "\"";
-        } else {
-          replacement = "<img src=\"file://" + base.replaceAll("%3A", ":") + "/" + file + "\"";
-        }
+        // Antora plugin might resolve some absolute URLs, convert them to localfile so they get their MD5 that prevents caching
+        prefix = "<img src=\"";
+        file = matcher.group("fileurl");
+        imagesdir = null;
       }
-      html = html.substring(0, matchResult.start()) +
-        replacement + html.substring(matchResult.end());
-      matcher.reset(html);
-    }
-
-    /* the same as above for interactive SVGs */
-    pattern = Pattern.compile("<object ([^>])*data=\"([^:\"]*)\"");
-    matcher = pattern.matcher(html);
-    while (matcher.find()) {
-      final MatchResult matchResult = matcher.toMatchResult();
-      String other = matchResult.group(1);
-      if (other == null) {
-        other = "";
-      }
-      String file = matchResult.group(2);
       try {
         file = URLDecoder.decode(file, StandardCharsets.UTF_8.name()); // restore "%20" as " "
       } catch (UnsupportedEncodingException e) {
         throw new RuntimeException(e);
       }
-      String tmpFile = findTempImageFile(file, attributes.get("imagesdir"));
-      String md5;
-      String replacement;
+      String tmpFile = findTempImageFile(file, imagesdir);
       if (tmpFile != null) {
-        md5 = calculateMd5(tmpFile, null);
+        String md5 = localfile ? calculateMd5(tmpFile, null) : null;
         tmpFile = tmpFile.replaceAll("\\\\", "/");
         try {
           tmpFile = URLEncoder.encode(tmpFile, StandardCharsets.UTF_8.name());
         } catch (UnsupportedEncodingException e) {
           throw new RuntimeException(e);
         }
-        if (JavaFxHtmlPanelProvider.isInitialized()) {
-          replacement = "<object " + other + "data=\"localfile://" + md5 + "/" + tmpFile + "\"";
+        if (localfile) {
+          return prefix + "localfile://" + md5 + "/" + tmpFile + "\"";
         } else {
-          replacement = "<object " + other + "data=\"file://" + tmpFile + "\"";
+          return prefix + "file://" + tmpFile + "\"";
         }
       } else {
-        md5 = calculateMd5(file, base);
-        if (JavaFxHtmlPanelProvider.isInitialized()) {
-          replacement = "<object " + other + "data=\"localfile://" + md5 + "/" + base + "/" + file + "\"";
+        if (localfile) {
+          return prefix + "localfile://" + calculateMd5(file, base) + "/" + base + "/" + file + "\"";
         } else {
-          replacement = "<object " + other + "data=\"file://" + base.replaceAll("%3A", ":") + "/" + file + "\"";
+          return prefix + "file://" + base.replaceAll("%3A", ":") + "/" + file + "\"";
         }
       }
-      html = html.substring(0, matchResult.start()) +
-        replacement + html.substring(matchResult.end());
-      matcher.reset(html);
-    }
+    });
 
     // filter out Twitter's JavaScript, as it is problematic for JDK8 JavaFX
     // see: https://github.com/asciidoctor/asciidoctor-intellij-plugin/issues/235
@@ -755,26 +683,7 @@ public class JavaFxHtmlPanel implements AsciiDocHtmlPanel {
   }
 
   private String calculateMd5(String file, String base) {
-    String md5;
-    try {
-      MessageDigest md = MessageDigest.getInstance("MD5");
-      try (FileInputStream fis = new FileInputStream((base != null ? base.replaceAll("%3A", ":") + "/" : "") + file)) {
-        int nread;
-        byte[] dataBytes = new byte[1024];
-        while ((nread = fis.read(dataBytes)) != -1) {
-          md.update(dataBytes, 0, nread);
-        }
-      }
-      byte[] mdbytes = md.digest();
-      StringBuilder sb = new StringBuilder();
-      for (byte mdbyte : mdbytes) {
-        sb.append(Integer.toString((mdbyte & 0xff) + 0x100, 16).substring(1));
-      }
-      md5 = sb.toString();
-    } catch (NoSuchAlgorithmException | IOException e) {
-      md5 = "none";
-    }
-    return md5;
+    return PreviewImages.fingerprint((base != null ? base.replaceAll("%3A", ":") + "/" : "") + file);
   }
 
   @Override
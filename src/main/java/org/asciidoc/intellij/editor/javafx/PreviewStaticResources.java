@@ -0,0 +1,184 @@
+package org.asciidoc.intellij.editor.javafx;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtilRt;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Static resources of the preview like scripts, styles, fonts and MathJax as served by {@link PreviewStaticServer}.
+ * Each resource is read once from the class path. It is kept together with a hash of its content to be used as an ETag,
+ * and a GZIP compressed copy if that is noticeably smaller. The least recently used resources are dropped when the
+ * cached resources exceed a maximum size.
+ */
+final class PreviewStaticResources {
+
+  private static final Logger LOG = Logger.getInstance(PreviewStaticResources.class);
+
+  private static final long MAX_CACHED_BYTES = 32L * 1024 * 1024;
+
+  private final Class<?> base;
+  private final Map<String, Resource> resources = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedBytes;
+
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+
+  /**
+   * A resource with its content, as read from the class path.
+   */
+  static final class Resource {
+    private final byte[] content;
+    private final byte[] gzipped;
+    private final String etag;
+
+    private Resource(byte[] content, byte[] gzipped, String etag) {
+      this.content = content;
+      this.gzipped = gzipped;
+      this.etag = etag;
+    }
+
+    byte[] getContent() {
+      return content;
+    }
+
+    /**
+     * GZIP compressed content, or <code>null</code> if compression doesn't make it smaller.
+     */
+    @Nullable
+    byte[] getGzipped() {
+      return gzipped;
+    }
+
+    /**
+     * ETag of the uncompressed content.
+     */
+    String getEtag() {
+      return etag;
+    }
+
+    /**
+     * ETag of the compressed content. It needs to be different from the uncompressed content's ETag.
+     */
+    String getGzippedEtag() {
+      return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    private long size() {
+      return content.length + (gzipped != null ? gzipped.length : 0);
+    }
+  }
+
+  /**
+   * @param base class to load the resources relative to.
+   */
+  PreviewStaticResources(@NotNull Class<?> base) {
+    this.base = base;
+  }
+
+  /**
+   * Returns the resource, or <code>null</code> if it doesn't exist.
+   */
+  @Nullable
+  Resource get(@NotNull String name) throws IOException {
+    requests.incrementAndGet();
+    Resource resource;
+    synchronized (resources) {
+      resource = resources.get(name);
+    }
+    if (resource != null) {
+      hits.incrementAndGet();
+      logStatistics();
+      return resource;
+    }
+    resource = load(name);
+    if (resource == null) {
+      return null;
+    }
+    synchronized (resources) {
+      Resource previous = resources.put(name, resource);
+      if (previous != null) {
+        cachedBytes -= previous.size();
+      }
+      cachedBytes += resource.size();
+      Iterator<Resource> iterator = resources.values().iterator();
+      while (cachedBytes > MAX_CACHED_BYTES && iterator.hasNext()) {
+        Resource eldest = iterator.next();
+        if (eldest != resource) {
+          cachedBytes -= eldest.size();
+          iterator.remove();
+        }
+      }
+    }
+    logStatistics();
+    return resource;
+  }
+
+  long getRequestCount() {
+    return requests.get();
+  }
+
+  long getHitCount() {
+    return hits.get();
+  }
+
+  @Nullable
+  private Resource load(@NotNull String name) throws IOException {
+    byte[] content;
+    try (InputStream inputStream = base.getResourceAsStream(name)) {
+      if (inputStream == null) {
+        return null;
+      }
+      content = FileUtilRt.loadBytes(inputStream);
+    }
+    byte[] gzipped = gzip(content);
+    // compressing already compressed content like images and fonts doesn't pay off
+    if (gzipped.length > content.length * 9L / 10) {
+      gzipped = null;
+    }
+    return new Resource(content, gzipped, "\"" + hash(content) + "\"");
+  }
+
+  private static byte[] gzip(byte[] content) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 64);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(content);
+    }
+    return out.toByteArray();
+  }
+
+  static String hash(byte[] content) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+      StringBuilder sb = new StringBuilder();
+      // the first 128 bits are enough to tell different versions of a resource apart
+      for (int i = 0; i < 16; ++i) {
+        sb.append(Integer.toString((digest[i] & 0xff) + 0x100, 16).substring(1));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("unable to calculate hash", e);
+    }
+  }
+
+  private void logStatistics() {
+    if (LOG.isDebugEnabled()) {
+      long total = requests.get();
+      long hit = hits.get();
+      LOG.debug("static resources: " + total + " requests, " + hit + " served from cache, hit rate "
+        + (hit * 100 / Math.max(1, total)) + "%, " + cachedBytes + " bytes cached");
+    }
+  }
+
+}
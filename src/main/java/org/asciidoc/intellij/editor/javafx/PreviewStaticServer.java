@@ -5,6 +5,7 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.util.io.FileUtilRt;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.testFramework.LightVirtualFile;
@@ -12,14 +13,24 @@ import com.intellij.util.Url;
 import com.intellij.util.Urls;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.DateFormatter;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.QueryStringDecoder;
 import org.apache.http.entity.ContentType;
 import org.asciidoc.intellij.editor.browser.BrowserPanel;
@@ -30,11 +41,13 @@ import org.jetbrains.ide.HttpRequestHandler;
 import org.jetbrains.io.FileResponses;
 import org.jetbrains.io.Responses;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 import java.util.regex.Matcher;
@@ -52,6 +65,8 @@ public class PreviewStaticServer extends HttpRequestHandler {
   // every time the plugin starts up, assume resources could have been modified
   private static final long LAST_MODIFIED = System.currentTimeMillis();
 
+  private static final PreviewStaticResources STATIC_RESOURCES = new PreviewStaticResources(JavaFxHtmlPanel.class);
+
   public static PreviewStaticServer getInstance() {
     return HttpRequestHandler.Companion.getEP_NAME().findExtension(PreviewStaticServer.class);
   }
@@ -210,25 +225,58 @@ public class PreviewStaticServer extends HttpRequestHandler {
   }
 
   private boolean sendImage(FullHttpRequest request, String file, String mac, Channel channel) {
-    byte[] image = getBrowserPanel().getImage(file, mac);
-    if (image != null) {
-      FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(image));
-      if (file.endsWith(".png")) {
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "image/png");
-      } else if (file.endsWith(".jpg")) {
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "image/jpeg");
-      } else if (file.endsWith(".svg")) {
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "image/svg+xml");
-      } else {
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/octet-stream");
-      }
-      response.headers().set(HttpHeaderNames.CACHE_CONTROL, "max-age=3600, private, must-revalidate");
-      response.headers().set(HttpHeaderNames.ETAG, Long.toString(LAST_MODIFIED));
-      Responses.send(response, channel, request);
+    File image = getBrowserPanel().getImageFile(file, mac);
+    if (image == null) {
+      return false;
+    }
+    long lastModified = image.lastModified();
+    String etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(image.length()) + "\"";
+    if (isNotModified(request, etag, lastModified)) {
+      sendNotModified(request, channel, etag, "max-age=3600, private, must-revalidate");
       return true;
-    } else {
+    }
+    RandomAccessFile raf;
+    try {
+      raf = new RandomAccessFile(image, "r");
+    } catch (IOException e) {
+      return false;
+    }
+    long length;
+    try {
+      length = raf.length();
+    } catch (IOException e) {
+      FileUtilRt.closeSilently(raf);
       return false;
     }
+    HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+    if (file.endsWith(".png")) {
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, "image/png");
+    } else if (file.endsWith(".jpg")) {
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, "image/jpeg");
+    } else if (file.endsWith(".svg")) {
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, "image/svg+xml");
+    } else {
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/octet-stream");
+    }
+    response.headers().set(HttpHeaderNames.CACHE_CONTROL, "max-age=3600, private, must-revalidate");
+    response.headers().set(HttpHeaderNames.ETAG, etag);
+    response.headers().set(HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(new Date(lastModified)));
+    HttpUtil.setContentLength(response, length);
+    boolean keepAlive = HttpUtil.isKeepAlive(request);
+    HttpUtil.setKeepAlive(response, keepAlive);
+    channel.write(response);
+    if (request.method() == HttpMethod.HEAD) {
+      FileUtilRt.closeSilently(raf);
+    } else {
+      // zero-copy transfer from the file to the socket (the built-in server doesn't use SSL),
+      // the region closes the file once it has been sent
+      channel.write(new DefaultFileRegion(raf.getChannel(), 0, length));
+    }
+    ChannelFuture future = channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+    if (!keepAlive) {
+      future.addListener(ChannelFutureListener.CLOSE);
+    }
+    return true;
   }
 
   @NotNull
@@ -242,45 +290,102 @@ public class PreviewStaticServer extends HttpRequestHandler {
   }
 
   private void sendDocument(FullHttpRequest request, @NotNull VirtualFile file, @NotNull Project project, @NotNull Channel channel) {
-    String html = getBrowserPanel().getHtml(file, project);
-    FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(html.getBytes(StandardCharsets.UTF_8)));
+    // the conversion is shared with concurrent requests and re-used for reloads by RenderResultCache
+    byte[] html = getBrowserPanel().getHtml(file, project).getBytes(StandardCharsets.UTF_8);
+    // the ETag is derived from the content, so that a reload of an unchanged document is answered with "304 Not Modified"
+    String etag = "\"" + PreviewStaticResources.hash(html) + "\"";
+    if (isNotModified(request, etag)) {
+      sendNotModified(request, channel, etag, "max-age=5, private, must-revalidate");
+      return;
+    }
+    FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(html));
     response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/html; charset=UTF-8");
     response.headers().set(HttpHeaderNames.CACHE_CONTROL, "max-age=5, private, must-revalidate");
+    response.headers().set(HttpHeaderNames.ETAG, etag);
     response.headers().set("Referrer-Policy", "no-referrer");
     Responses.send(response, channel, request);
   }
 
-  private static void sendResource(@NotNull HttpRequest request,
-                                   @NotNull Channel channel,
-                                   @NotNull String resourceName) {
-    /*
-    // API incompatible with older versions of IntelliJ
-    if (FileResponses.INSTANCE.checkCache(request, channel, lastModified)) {
-      return;
-    }
-    */
+  /**
+   * Check the <code>If-None-Match</code> header of the request only, for content that has no modification date.
+   */
+  private static boolean isNotModified(@NotNull HttpRequest request, @NotNull String etag) {
+    return isNotModified(request, etag, Long.MAX_VALUE);
+  }
 
-    byte[] data;
-    try (InputStream inputStream = JavaFxHtmlPanel.class.getResourceAsStream(resourceName)) {
-      if (inputStream == null) {
-        Responses.send(HttpResponseStatus.NOT_FOUND, channel, request);
-        return;
+  /**
+   * Check the conditional headers of the request. An <code>If-None-Match</code> header takes precedence over
+   * an <code>If-Modified-Since</code> header, as HTTP dates have a resolution of a second only.
+   */
+  private static boolean isNotModified(@NotNull HttpRequest request, @NotNull String etag, long lastModified) {
+    String ifNoneMatch = request.headers().get(HttpHeaderNames.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      for (String candidate : ifNoneMatch.split(",")) {
+        String tag = StringUtil.trimStart(candidate.trim(), "W/");
+        if (tag.equals(etag) || tag.equals("*")) {
+          return true;
+        }
       }
+      return false;
+    }
+    String ifModifiedSince = request.headers().get(HttpHeaderNames.IF_MODIFIED_SINCE);
+    if (ifModifiedSince != null) {
+      Date since = DateFormatter.parseHttpDate(ifModifiedSince);
+      return since != null && lastModified / 1000 <= since.getTime() / 1000;
+    }
+    return false;
+  }
+
+  private static void sendNotModified(@NotNull HttpRequest request, @NotNull Channel channel, @NotNull String etag, @NotNull String cacheControl) {
+    FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_MODIFIED, Unpooled.EMPTY_BUFFER);
+    response.headers().set(HttpHeaderNames.ETAG, etag);
+    response.headers().set(HttpHeaderNames.CACHE_CONTROL, cacheControl);
+    Responses.send(response, channel, request);
+  }
 
-      data = FileUtilRt.loadBytes(inputStream);
+  private static void sendResource(@NotNull HttpRequest request,
+                                   @NotNull Channel channel,
+                                   @NotNull String resourceName) {
+    PreviewStaticResources.Resource resource;
+    try {
+      resource = STATIC_RESOURCES.get(resourceName);
     } catch (IOException e) {
       LOG.warn(e);
       Responses.send(HttpResponseStatus.INTERNAL_SERVER_ERROR, channel, request);
       return;
     }
+    if (resource == null) {
+      Responses.send(HttpResponseStatus.NOT_FOUND, channel, request);
+      return;
+    }
+
+    boolean gzip = resource.getGzipped() != null && acceptsGzip(request);
+    String etag = gzip ? resource.getGzippedEtag() : resource.getEtag();
+    if (isNotModified(request, etag, LAST_MODIFIED)) {
+      sendNotModified(request, channel, etag, "max-age=3600, private, must-revalidate");
+      return;
+    }
 
-    FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(data));
+    FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+      Unpooled.wrappedBuffer(gzip ? resource.getGzipped() : resource.getContent()));
     response.headers().set(HttpHeaderNames.CONTENT_TYPE, FileResponses.INSTANCE.getContentType(resourceName));
     response.headers().set(HttpHeaderNames.CACHE_CONTROL, "max-age=3600, private, must-revalidate");
-    response.headers().set(HttpHeaderNames.ETAG, Long.toString(LAST_MODIFIED));
+    response.headers().set(HttpHeaderNames.ETAG, etag);
+    response.headers().set(HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(new Date(LAST_MODIFIED)));
+    if (resource.getGzipped() != null) {
+      response.headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+    }
+    if (gzip) {
+      response.headers().set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP);
+    }
     Responses.send(response, channel, request);
   }
 
+  private static boolean acceptsGzip(@NotNull HttpRequest request) {
+    String acceptEncoding = request.headers().get(HttpHeaderNames.ACCEPT_ENCODING);
+    return acceptEncoding != null && StringUtil.toLowerCase(acceptEncoding).contains("gzip");
+  }
+
   @Override
   protected void finalize() {
     if (browserPanel != null) {
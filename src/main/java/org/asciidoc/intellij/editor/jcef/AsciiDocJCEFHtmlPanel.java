@@ -28,10 +28,10 @@ import com.intellij.ui.scale.JBUIScale;
 import com.intellij.util.PsiNavigateUtil;
 import com.intellij.util.ui.UIUtil;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.text.StringEscapeUtils;
 import org.asciidoc.intellij.AsciiDoc;
 import org.asciidoc.intellij.editor.AsciiDocHtmlPanel;
 import org.asciidoc.intellij.editor.AsciiDocPreviewEditor;
+import org.asciidoc.intellij.editor.PreviewImages;
 import org.asciidoc.intellij.editor.javafx.JavaFxHtmlPanel;
 import org.asciidoc.intellij.editor.javafx.PreviewStaticServer;
 import org.asciidoc.intellij.psi.AsciiDocUtil;
@@ -42,7 +42,6 @@ import org.cef.handler.CefLoadHandlerAdapter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -54,8 +53,6 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -63,8 +60,6 @@ import java.util.Properties;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.MatchResult;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @SuppressWarnings("UnstableApiUsage")
@@ -97,10 +92,13 @@ public class AsciiDocJCEFHtmlPanel extends JCEFHtmlPanel implements AsciiDocHtml
   private volatile long stamp = 0;
   private volatile boolean replaceResult = false;
   private volatile String frameHtml = null;
+  private final InPlaceRefresh inPlaceRefresh = new InPlaceRefresh();
 
   @NotNull
   private static final String OUR_CLASS_URL;
 
+  private static final Pattern IMAGE_PATTERN = Pattern.compile("<img src=\"(?<img>[^:\"]*)\"|<object (?<other>[^>]*)data=\"(?<object>[^:\"]*)\"");
+
   private static final NotNullLazyValue<String> MY_SCRIPTING_LINES = new NotNullLazyValue<String>() {
     @NotNull
     @Override
@@ -111,6 +109,7 @@ public class AsciiDocJCEFHtmlPanel extends JCEFHtmlPanel implements AsciiDocHtml
         .append("<script src=\"").append(PreviewStaticServer.getScriptUrl("scrollToElement.js")).append("\"></script>\n")
         .append("<script src=\"").append(PreviewStaticServer.getScriptUrl("processLinks.js")).append("\"></script>\n")
         .append("<script src=\"").append(PreviewStaticServer.getScriptUrl("pickSourceLine.js")).append("\"></script>\n")
+        .append("<script src=\"").append(PreviewStaticServer.getScriptUrl("patchContent.js")).append("\"></script>\n")
         .append("<script type=\"text/x-mathjax-config\">\n" +
           "MathJax.Hub.Config({\n" +
           "  messageStyle: \"none\",\n" +
@@ -358,61 +357,11 @@ public class AsciiDocJCEFHtmlPanel extends JCEFHtmlPanel implements AsciiDocHtml
     }
     boolean result = false;
     final AsciiDocApplicationSettings settings = AsciiDocApplicationSettings.getInstance();
-    if (!forceRefresh && settings.getAsciiDocPreviewSettings().isInplacePreviewRefresh() && html.contains("id=\"content\"")) {
-      final String htmlToReplace = StringEscapeUtils.escapeEcmaScript(prepareHtml(html, attributes));
+    boolean inplace = settings.getAsciiDocPreviewSettings().isInplacePreviewRefresh() && html.contains("id=\"content\"");
+    String contentHtml = inplace ? prepareHtml(html, attributes) : null;
+    if (!forceRefresh && contentHtml != null) {
       // try to replace the HTML contents using JavaScript to avoid flickering MathML
-      try {
-        boolean ml = false; // set to "true" to test for memory leaks in HTML/JavaScript
-        replaceResult = false;
-        getCefBrowser().executeJavaScript(
-          (ml ? "var x = 0; " : "") +
-            "function finish() {" +
-            "if ('__IntelliJTools' in window) {" +
-            "__IntelliJTools.processLinks && __IntelliJTools.processLinks();" +
-            "__IntelliJTools.pickSourceLine && __IntelliJTools.pickSourceLine(" + lineCount + ");" +
-            (ml ? "window.setTimeout(function(){ updateContent(); }, 10); " : "") +
-            "}" +
-            "window.JavaPanelBridge && window.JavaPanelBridge.rendered(" + iterationStamp + ");" +
-            "}" +
-            "function updateContent() { var elem = document.getElementById('content'); if (elem && elem.parentNode) { " +
-            "var div = document.createElement('div');" +
-            "div.innerHTML = '" + htmlToReplace + "'; " +
-            "var errortext = document.getElementById('mathjaxerrortext'); " +
-            "var errorformula = document.getElementById('mathjaxerrorformula'); " +
-            "if (errorformula && errortext) { " +
-            "  errortext.textContent = ''; " +
-            "  errorformula.textContent = ''; " +
-            "} " +
-            (ml ? "x = x + 1; " : "") +
-            (ml ? "errortext.textContent = 'count:' + x; " : "") +
-            "div.style.cssText = 'display: none'; " +
-            // need to add the element to the DOM as MathJAX will use document.getElementById in some places
-            "elem.appendChild(div); " +
-            // use MathJax to set the formulas in advance if formulas are present - this takes ~100ms
-            // re-evaluate the content element as it might have been replaced by a concurrent rendering
-            "if ('MathJax' in window && MathJax.Hub.getAllJax().length > 0) { " +
-            "MathJax.Hub.Typeset(div.firstChild, function() { " +
-            "var elem2 = document.getElementById('content'); " +
-            "__IntelliJTools.clearLinks && __IntelliJTools.clearLinks();" +
-            "__IntelliJTools.clearSourceLine && __IntelliJTools.clearSourceLine();" +
-            "elem2.parentNode.replaceChild(div.firstChild, elem2); " +
-            "finish(); }); } " +
-            // if no math was present before, replace contents, and do the MathJax typesetting afterwards in case Math has been added
-            "else { " +
-            "__IntelliJTools.clearLinks && __IntelliJTools.clearLinks();" +
-            "__IntelliJTools.clearSourceLine && __IntelliJTools.clearSourceLine();" +
-            "elem.parentNode.replaceChild(div.firstChild, elem); " +
-            "MathJax.Hub.Typeset(div.firstChild); " +
-            "finish(); " +
-            "} " +
-            "return true; } else { return false; }}; " + myRenderedResult.inject("updateContent()"),
-          getCefBrowser().getURL(), 0);
-        replaceResultLatch.await(1, TimeUnit.SECONDS);
-        result = replaceResult;
-      } catch (RuntimeException | InterruptedException e) {
-        // might happen when rendered output is not valid HTML due to passtrough content
-        log.warn("unable to use JavaScript for update", e);
-      }
+      result = inPlaceRefresh.update(contentHtml, lineCount, iterationStamp, this::updateContent);
     }
     // if not successful using JavaScript (like on first rendering attempt), set full content
     if (!result) {
@@ -421,6 +370,7 @@ public class AsciiDocJCEFHtmlPanel extends JCEFHtmlPanel implements AsciiDocHtml
       html = wrapHtmlForPage(html);
       final String htmlToRender = prepareHtml(html, attributes);
       super.setHtml(htmlToRender);
+      inPlaceRefresh.loaded(contentHtml, iterationStamp);
     }
     try {
       // slow down the rendering of the next version of the preview until the rendering if the current version is complete
@@ -435,6 +385,28 @@ public class AsciiDocJCEFHtmlPanel extends JCEFHtmlPanel implements AsciiDocHtml
     }
   }
 
+  private boolean updateContent(@NotNull String expression) {
+    try {
+      replaceResult = false;
+      replaceResultLatch = new CountDownLatch(1);
+      getCefBrowser().executeJavaScript(
+        "function updateContent() { " +
+          "try { " +
+          "return '__IntelliJTools' in window && " + expression + "; " +
+          "} catch (e) { " +
+          "window.JavaPanelBridge && window.JavaPanelBridge.log('unable to update content: ' + e); " +
+          "return false; " +
+          "}}; " + myRenderedResult.inject("updateContent()"),
+        getCefBrowser().getURL(), 0);
+      replaceResultLatch.await(1, TimeUnit.SECONDS);
+      return replaceResult;
+    } catch (RuntimeException | InterruptedException e) {
+      // might happen when rendered output is not valid HTML due to passtrough content
+      log.warn("unable to use JavaScript for update", e);
+      return false;
+    }
+  }
+
   @NotNull
   private static String getScriptingLines() {
     return MY_SCRIPTING_LINES.getValue();
@@ -443,48 +415,18 @@ public class AsciiDocJCEFHtmlPanel extends JCEFHtmlPanel implements AsciiDocHtml
   private String prepareHtml(@NotNull String html, @NotNull Map<String, String> attributes) {
     /* for each image we'll calculate a MD5 sum of its content. Once the content changes, MD5 and therefore the URL
      * will change. The changed URL is necessary for the JavaFX web view to display the new content, as each URL
-     * will be loaded only once by the JavaFX web view. */
-    Pattern pattern = Pattern.compile("<img src=\"([^:\"]*)\"");
-    Matcher matcher = pattern.matcher(html);
-    while (matcher.find()) {
-      final MatchResult matchResult = matcher.toMatchResult();
-      String file = matchResult.group(1);
-      try {
-        file = URLDecoder.decode(file, StandardCharsets.UTF_8.name()); // restore "%20" as " "
-      } catch (UnsupportedEncodingException e) {
-        throw new RuntimeException(e);
-      }
-      String tmpFile = findTempImageFile(file, attributes.get("imagesdir"));
-      String md5;
-      String replacement;
-      if (tmpFile != null) {
-        md5 = calculateMd5(tmpFile, null);
-        tmpFile = tmpFile.replaceAll("\\\\", "/");
-        try {
-          tmpFile = URLEncoder.encode(tmpFile, StandardCharsets.UTF_8.name());
-        } catch (UnsupportedEncodingException e) {
-          throw new RuntimeException(e);
-        }
-        replacement = "<img src=\"file://" + tmpFile + "?" + md5 + "\"";
+     * will be loaded only once by the JavaFX web view.
+     * The same for interactive SVGs. All images are replaced in a single pass over the HTML. */
+    html = PreviewImages.replaceAll(html, IMAGE_PATTERN, matcher -> {
+      String prefix;
+      String file;
+      if (matcher.group("img") != null) {
+        prefix = "<img src=\"";
+        file = matcher.group("img");
       } else {
-        md5 = calculateMd5(file, base);
-        replacement = "<img src=\"file://" + base.replaceAll("%3A", ":") + "/" + file + "?" + md5 + "\"";
+        prefix = "<object " + matcher.group("other") + "data=\"";
+        file = matcher.group("object");
       }
-      html = html.substring(0, matchResult.start()) +
-        replacement + html.substring(matchResult.end());
-      matcher.reset(html);
-    }
-
-    /* the same as above for interactive SVGs */
-    pattern = Pattern.compile("<object ([^>])*data=\"([^:\"]*)\"");
-    matcher = pattern.matcher(html);
-    while (matcher.find()) {
-      final MatchResult matchResult = matcher.toMatchResult();
-      String other = matchResult.group(1);
-      if (other == null) {
-        other = "";
-      }
-      String file = matchResult.group(2);
       try {
         file = URLDecoder.decode(file, StandardCharsets.UTF_8.name()); // restore "%20" as " "
       } catch (UnsupportedEncodingException e) {
@@ -492,7 +434,6 @@ public class AsciiDocJCEFHtmlPanel extends JCEFHtmlPanel implements AsciiDocHtml
       }
       String tmpFile = findTempImageFile(file, attributes.get("imagesdir"));
       String md5;
-      String replacement;
       if (tmpFile != null) {
         md5 = calculateMd5(tmpFile, null);
         tmpFile = tmpFile.replaceAll("\\\\", "/");
@@ -501,15 +442,12 @@ public class AsciiDocJCEFHtmlPanel extends JCEFHtmlPanel implements AsciiDocHtml
         } catch (UnsupportedEncodingException e) {
           throw new RuntimeException(e);
         }
-        replacement = "<object " + other + "data=\"file://" + tmpFile + "?" + md5 + "\"";
+        return prefix + "file://" + tmpFile + "?" + md5 + "\"";
       } else {
         md5 = calculateMd5(file, base);
-        replacement = "<object " + other + "data=\"file://" + base.replaceAll("%3A", ":") + "/" + file + "?" + md5 + "\"";
+        return prefix + "file://" + base.replaceAll("%3A", ":") + "/" + file + "?" + md5 + "\"";
       }
-      html = html.substring(0, matchResult.start()) +
-        replacement + html.substring(matchResult.end());
-      matcher.reset(html);
-    }
+    });
 
     html = AsciiDoc.enrichPage(html, AsciiDocHtmlPanel.getCssLines(isDarcula() ? myInlineCssDarcula : myInlineCss) + myFontAwesomeCssLink + myGoogleFontsCssLink + myDejavuCssLink, attributes);
 
@@ -573,26 +511,7 @@ public class AsciiDocJCEFHtmlPanel extends JCEFHtmlPanel implements AsciiDocHtml
   }
 
   private String calculateMd5(String file, String base) {
-    String md5;
-    try {
-      MessageDigest md = MessageDigest.getInstance("MD5");
-      try (FileInputStream fis = new FileInputStream((base != null ? base.replaceAll("%3A", ":") + "/" : "") + file)) {
-        int nread;
-        byte[] dataBytes = new byte[1024];
-        while ((nread = fis.read(dataBytes)) != -1) {
-          md.update(dataBytes, 0, nread);
-        }
-      }
-      byte[] mdbytes = md.digest();
-      StringBuilder sb = new StringBuilder();
-      for (byte mdbyte : mdbytes) {
-        sb.append(Integer.toString((mdbyte & 0xff) + 0x100, 16).substring(1));
-      }
-      md5 = sb.toString();
-    } catch (NoSuchAlgorithmException | IOException e) {
-      md5 = "none";
-    }
-    return md5;
+    return PreviewImages.fingerprint((base != null ? base.replaceAll("%3A", ":") + "/" : "") + file);
   }
 
   @NotNull
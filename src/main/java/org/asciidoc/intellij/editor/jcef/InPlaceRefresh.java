@@ -0,0 +1,61 @@
+package org.asciidoc.intellij.editor.jcef;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.asciidoc.intellij.editor.PreviewBlocks;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Predicate;
+
+/**
+ * Updates the content shown in the browser without reloading the page.
+ * Sends only the blocks that changed since the content shown in the browser (see <code>patchContent.js</code>),
+ * and replaces the content as a whole if it can't be patched, for example as the HTML is not well-formed.
+ */
+final class InPlaceRefresh {
+
+  @Nullable
+  private PreviewBlocks.Block browserContent;
+  private long browserIteration;
+  private boolean loaded;
+
+  /**
+   * Remember the content after the page has been loaded as a whole.
+   *
+   * @param contentHtml the content as shown in the browser, or <code>null</code> if it can't be updated in place
+   */
+  void loaded(@Nullable String contentHtml, long iterationStamp) {
+    browserContent = contentHtml != null ? PreviewBlocks.parse(contentHtml) : null;
+    browserIteration = iterationStamp;
+    loaded = contentHtml != null;
+  }
+
+  /**
+   * Update the content in the browser.
+   *
+   * @param browser executes the JavaScript expression in the browser and returns its result
+   * @return <code>false</code> if the content couldn't be updated in place, then the page needs to be loaded as a whole
+   */
+  boolean update(@NotNull String contentHtml, int lineCount, long iterationStamp, @NotNull Predicate<String> browser) {
+    if (!loaded) {
+      return false;
+    }
+    PreviewBlocks.Block content = PreviewBlocks.parse(contentHtml);
+    String patch = content != null && browserContent != null ? PreviewBlocks.diff(browserContent, content) : null;
+    boolean result = false;
+    if (patch != null) {
+      // only the blocks that changed are replaced, and only their formulas are typeset again
+      result = browser.test("__IntelliJTools.patchContent(" + patch + ", " + lineCount + ", " + iterationStamp + ", " + browserIteration + ")");
+    }
+    if (!result) {
+      result = browser.test("__IntelliJTools.replaceContent('" + StringEscapeUtils.escapeEcmaScript(contentHtml) + "', "
+        + lineCount + ", " + iterationStamp + ")");
+    }
+    if (result) {
+      browserContent = content;
+      browserIteration = iterationStamp;
+    }
+    return result;
+  }
+
+}
@@ -1,8 +1,14 @@
 package org.asciidoc.intellij.findUsages;
 
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.QueryExecutorBase;
 import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDirectory;
@@ -27,6 +33,7 @@ import com.intellij.util.IncorrectOperationException;
 import com.intellij.util.Processor;
 import com.intellij.util.text.StringSearcher;
 import org.asciidoc.intellij.AsciiDocLanguage;
+import org.asciidoc.intellij.indexer.AsciiDocIdReferenceIndex;
 import org.asciidoc.intellij.psi.AsciiDocAttributeDeclaration;
 import org.asciidoc.intellij.psi.AsciiDocAttributeDeclarationKeyIndex;
 import org.asciidoc.intellij.psi.AsciiDocAttributeDeclarationName;
@@ -35,28 +42,50 @@ import org.asciidoc.intellij.psi.AsciiDocNamedElement;
 import org.asciidoc.intellij.psi.AsciiDocUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
+/**
+ * Finds references to block IDs and attributes.
+ * The files are searched concurrently, each one in a read action that gives way to write actions and is restarted afterwards.
+ * The references found in a file are passed on to the consumer once the search of the file is complete.
+ */
 public class AsciiDocIdReferencesSearch extends QueryExecutorBase<PsiReference, ReferencesSearch.SearchParameters> {
   protected AsciiDocIdReferencesSearch() {
-    super(true);
+    // read actions are taken per file, so that files can be searched concurrently without blocking write actions
+    super(false);
   }
 
   @Override
   public void processQuery(@NotNull ReferencesSearch.SearchParameters p, @NotNull Processor<? super PsiReference> consumer) {
     final PsiElement element = p.getElementToSearch();
-    if (!element.isValid()) {
-      return;
-    }
 
     // use scope determined by user here, as effective search scope would return the module and its dependants
     SearchScope scope = p.getScopeDeterminedByUser();
 
+    for (String name : ReadAction.compute(() -> namesToSearch(element))) {
+      if (!search(consumer, element, name, scope)) {
+        return;
+      }
+    }
+  }
+
+  private static List<String> namesToSearch(PsiElement element) {
+    if (!element.isValid()) {
+      return Collections.emptyList();
+    }
+    List<String> result = new ArrayList<>();
     if (element instanceof AsciiDocNamedElement) {
       String name = ((AsciiDocNamedElement) element).getName();
       if (name != null) {
-        search(consumer, element, name, scope);
+        result.add(name);
       }
     } else if (element instanceof PsiDirectory) {
       String name = ((PsiDirectory) element).getName();
@@ -65,99 +94,189 @@ public class AsciiDocIdReferencesSearch extends QueryExecutorBase<PsiReference,
         VirtualFile antoraModuleDir = AsciiDocUtil.findAntoraModuleDir(element);
         if (antoraModuleDir != null) {
           // partials -> partial$
-          search(consumer, element, name.substring(0, name.length() - 1), scope);
+          result.add(name.substring(0, name.length() - 1));
           // partials -> partialsdir
-          search(consumer, element, name + "dir", scope);
+          result.add(name + "dir");
         }
       }
     }
+    return result;
   }
 
-  private void search(@NotNull Processor<? super PsiReference> consumer, PsiElement element, String name, SearchScope scope) {
-    DumbService myDumbService = DumbService.getInstance(element.getProject());
-    PsiFile[] files;
-    boolean localSearch = false;
+  /**
+   * @return <code>false</code> if the consumer asked to stop the search
+   */
+  private boolean search(@NotNull Processor<? super PsiReference> consumer, PsiElement element, String name, SearchScope scope) {
+    Project project = ReadAction.compute(element::getProject);
+    DumbService myDumbService = DumbService.getInstance(project);
+
+    // default, like for: AsciiDocAttributeDeclarationName
+    boolean caseSensitive = false;
+    if (element instanceof AsciiDocBlockId) {
+      caseSensitive = true;
+    }
+    final StringSearcher searcher = new StringSearcher(name, caseSensitive, true, false);
+
     if (scope instanceof GlobalSearchScope) {
       // when the user searches all references
-      String nameToSearch = name;
-      if (element instanceof AsciiDocBlockId) {
-        // AsciiDoc block IDs contain attributes, these won't be in the index as words, therefore search only for the start part (or the attribute name)
-        int attributeStart = name.indexOf('{');
-        int attributeEnd = name.indexOf('}', attributeStart);
-        if (attributeStart > 0) {
-          nameToSearch = name.substring(0, attributeStart);
-        } else if (attributeEnd - (attributeStart + 1) > 0) {
-          nameToSearch = name.substring(attributeStart + 1, attributeEnd);
-        }
-      }
-      String nameFinal = nameToSearch;
-      files = myDumbService.runReadActionInSmartMode(() -> CacheManager.SERVICE.getInstance(element.getProject()).getFilesWithWord(nameFinal, UsageSearchContext.IN_CODE,
-        (GlobalSearchScope) scope,
-        false));
-
       if (element instanceof AsciiDocAttributeDeclarationName) {
-        Collection<AsciiDocAttributeDeclaration> asciiDocAttributeDeclarations = AsciiDocAttributeDeclarationKeyIndex.getInstance().get(name, element.getProject(),
-          // searching also the libraries is generally not useful; therefore restrict to project scope
-          ((GlobalSearchScope) scope).intersectWith(GlobalSearchScope.projectScope(element.getProject()))
-        );
-        for (AsciiDocAttributeDeclaration attribute : asciiDocAttributeDeclarations) {
-          AsciiDocAttributeDeclarationName child = attribute.getAttributeDeclarationName();
-          if (child != null) {
-            consumePsiElementForRename(consumer, child);
+        List<PsiReference> declarations = myDumbService.runReadActionInSmartMode(() -> {
+          List<PsiReference> result = new ArrayList<>();
+          Collection<AsciiDocAttributeDeclaration> asciiDocAttributeDeclarations = AsciiDocAttributeDeclarationKeyIndex.getInstance().get(name, project,
+            // searching also the libraries is generally not useful; therefore restrict to project scope
+            ((GlobalSearchScope) scope).intersectWith(GlobalSearchScope.projectScope(project))
+          );
+          for (AsciiDocAttributeDeclaration attribute : asciiDocAttributeDeclarations) {
+            AsciiDocAttributeDeclarationName child = attribute.getAttributeDeclarationName();
+            if (child != null) {
+              consumePsiElementForRename(result::add, child);
+            }
           }
+          return result;
+        });
+        if (!feed(consumer, declarations)) {
+          return false;
         }
       }
 
-      if (files.length == 0) {
-        return;
+      if (element instanceof AsciiDocBlockId || element instanceof AsciiDocAttributeDeclarationName) {
+        // only check the places that reference a name like this one, instead of all occurrences of the word
+        // attribute names are case insensitive, the index contains them in lower case
+        String key = element instanceof AsciiDocBlockId ? name : name.toLowerCase(Locale.US);
+        Map<VirtualFile, List<Integer>> occurrences = myDumbService.runReadActionInSmartMode(() ->
+          AsciiDocIdReferenceIndex.findOccurrences(key, (GlobalSearchScope) scope));
+        return processFiles(project, occurrences.keySet(), consumer, psiFile -> {
+          List<PsiReference> result = new ArrayList<>();
+          int length = psiFile.getTextLength();
+          for (Integer offset : occurrences.get(psiFile.getVirtualFile())) {
+            if (offset < length) {
+              checkReferenceAt(result::add, element, psiFile, offset);
+            }
+          }
+          return result;
+        });
       }
+
+      Set<VirtualFile> files = myDumbService.runReadActionInSmartMode(() -> {
+        Set<VirtualFile> result = new LinkedHashSet<>();
+        for (PsiFile psiFile : CacheManager.SERVICE.getInstance(project).getFilesWithWord(name, UsageSearchContext.IN_CODE,
+          (GlobalSearchScope) scope,
+          false)) {
+          if (psiFile.getVirtualFile() != null) {
+            result.add(psiFile.getVirtualFile());
+          }
+        }
+        return result;
+      });
+      return processFiles(project, files, consumer, psiFile -> searchText(element, psiFile, searcher));
     } else if (scope instanceof LocalSearchScope) {
-      localSearch = true;
       // when the IDE highlights references of the current file in the editor
       LocalSearchScope localSearchScope = (LocalSearchScope) scope;
       if (localSearchScope.getScope().length == 1 && localSearchScope.getScope()[0] instanceof PsiFile) {
-        files = new PsiFile[]{(PsiFile) localSearchScope.getScope()[0]};
-      } else {
-        return;
-      }
-    } else {
-      return;
-    }
-
-    // default, like for: AsciiDocAttributeDeclarationName
-    boolean caseSensitive = false;
-    if (element instanceof AsciiDocBlockId) {
-      caseSensitive = true;
-    }
-    final StringSearcher searcher = new StringSearcher(name, caseSensitive, true, false);
-    for (PsiFile psiFile : files) {
-      if (psiFile.getLanguage() == AsciiDocLanguage.INSTANCE) {
-        if (localSearch) {
+        PsiFile psiFile = (PsiFile) localSearchScope.getScope()[0];
+        List<PsiReference> references = myDumbService.runReadActionInSmartMode(() -> {
+          List<PsiReference> result = new ArrayList<>();
+          if (!element.isValid() || !psiFile.isValid() || psiFile.getLanguage() != AsciiDocLanguage.INSTANCE) {
+            return result;
+          }
           for (AsciiDocAttributeDeclaration attribute : PsiTreeUtil.findChildrenOfType(psiFile, AsciiDocAttributeDeclaration.class)) {
             if (name.toLowerCase(Locale.US).equals(attribute.getAttributeName().toLowerCase(Locale.US))) {
               AsciiDocAttributeDeclarationName child = attribute.getAttributeDeclarationName();
               if (child != null) {
-                consumePsiElementForRename(consumer, child);
+                consumePsiElementForRename(result::add, child);
               }
             }
           }
-        }
-        final CharSequence text = ReadAction.compute(() -> psiFile.getViewProvider().getContents());
-        LowLevelSearchUtil.processTextOccurrences(text, 0, text.length(), searcher, index -> {
-          myDumbService.runReadActionInSmartMode(() -> {
-            PsiReference referenceAt = psiFile.findReferenceAt(index);
-            if (referenceAt instanceof PsiMultiReference) {
-              for (PsiReference reference : ((PsiMultiReference) referenceAt).getReferences()) {
-                checkReference(consumer, element, reference);
-              }
-            }
-            checkReference(consumer, element, referenceAt);
-          });
-          return true;
+          result.addAll(searchText(element, psiFile, searcher));
+          return result;
         });
+        return feed(consumer, references);
+      }
+    }
+    return true;
+  }
+
+  private List<PsiReference> searchText(PsiElement element, PsiFile psiFile, StringSearcher searcher) {
+    List<PsiReference> result = new ArrayList<>();
+    final CharSequence text = psiFile.getViewProvider().getContents();
+    LowLevelSearchUtil.processTextOccurrences(text, 0, text.length(), searcher, index -> {
+      checkReferenceAt(result::add, element, psiFile, index);
+      return true;
+    });
+    return result;
+  }
+
+  /**
+   * Searches each file in its own read action. Outside of a read action, the files are searched concurrently,
+   * and each search is restarted when a write action interrupts it. The references of each file are passed on
+   * to the consumer once the search of the file completes, so a restarted search doesn't report references twice.
+   *
+   * @return <code>false</code> if the consumer asked to stop the search
+   */
+  private static boolean processFiles(@NotNull Project project, @NotNull Collection<VirtualFile> files,
+                                      @NotNull Processor<? super PsiReference> consumer,
+                                      @NotNull Function<PsiFile, List<PsiReference>> searchFile) {
+    if (files.isEmpty()) {
+      return true;
+    }
+    if (ApplicationManager.getApplication().isReadAccessAllowed()) {
+      // the caller holds a read action already, for example on the EDT; a write action couldn't interrupt it anyway
+      DumbService myDumbService = DumbService.getInstance(project);
+      for (VirtualFile file : files) {
+        ProgressManager.checkCanceled();
+        if (!feed(consumer, myDumbService.runReadActionInSmartMode(() -> searchFile(project, file, searchFile)))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+    if (indicator == null) {
+      indicator = new EmptyProgressIndicator();
+    }
+    Object lock = new Object();
+    return JobLauncher.getInstance().invokeConcurrentlyUnderProgress(new ArrayList<>(files), indicator, file -> {
+      List<PsiReference> references = ReadAction.nonBlocking(() -> searchFile(project, file, searchFile))
+        .inSmartMode(project)
+        .executeSynchronously();
+      // consumers don't need to be thread safe
+      synchronized (lock) {
+        return feed(consumer, references);
+      }
+    });
+  }
+
+  private static List<PsiReference> searchFile(Project project, VirtualFile file, Function<PsiFile, List<PsiReference>> searchFile) {
+    if (!file.isValid()) {
+      return Collections.emptyList();
+    }
+    PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+    if (psiFile == null || psiFile.getLanguage() != AsciiDocLanguage.INSTANCE) {
+      return Collections.emptyList();
+    }
+    return searchFile.apply(psiFile);
+  }
+
+  private static boolean feed(@NotNull Processor<? super PsiReference> consumer, List<PsiReference> references) {
+    for (PsiReference reference : references) {
+      if (!consumer.process(reference)) {
+        return false;
       }
     }
+    return true;
+  }
 
+  private void checkReferenceAt(@NotNull Processor<? super PsiReference> consumer, PsiElement element, PsiFile psiFile, int offset) {
+    if (!element.isValid()) {
+      return;
+    }
+    PsiReference referenceAt = psiFile.findReferenceAt(offset);
+    if (referenceAt instanceof PsiMultiReference) {
+      for (PsiReference reference : ((PsiMultiReference) referenceAt).getReferences()) {
+        checkReference(consumer, element, reference);
+      }
+    }
+    checkReference(consumer, element, referenceAt);
   }
 
   private void consumePsiElementForRename(@NotNull Processor<? super PsiReference> consumer, PsiNamedElement element) {
@@ -9,23 +9,17 @@ import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiReference;
-import com.intellij.psi.ResolveResult;
-import org.asciidoc.intellij.inspections.AsciiDocVisitor;
-import org.asciidoc.intellij.psi.AsciiDocAttributeDeclaration;
-import org.asciidoc.intellij.psi.AsciiDocAttributeDeclarationName;
-import org.asciidoc.intellij.psi.AsciiDocAttributeDeclarationReference;
+import com.intellij.psi.impl.source.tree.CompositeElement;
 import org.asciidoc.intellij.psi.AsciiDocAttributeReference;
+import org.asciidoc.intellij.psi.AsciiDocAttributeValues;
 import org.asciidoc.intellij.psi.AsciiDocBlock;
 import org.asciidoc.intellij.psi.AsciiDocHtmlEntity;
 import org.asciidoc.intellij.psi.AsciiDocSection;
 import org.asciidoc.intellij.psi.AsciiDocSelfDescribe;
-import org.asciidoc.intellij.psi.AsciiDocUtil;
 import org.asciidoc.intellij.settings.AsciiDocApplicationSettings;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -71,62 +65,50 @@ public class AsciiDocFoldingBuilder extends CustomFoldingBuilder implements Dumb
                                           @NotNull Document document,
                                           boolean quick) {
     boolean attributeFoldingEnabled = AsciiDocApplicationSettings.getInstance().getAsciiDocPreviewSettings().isAttributeFoldingEnabled();
-    root.accept(new AsciiDocVisitor() {
-
-      @Override
-      public void visitElement(PsiElement element) {
-        if (attributeFoldingEnabled && element instanceof AsciiDocAttributeReference) {
-          if (!element.getText().toLowerCase().endsWith("dir}")) {
-            // avoid replacing imagesdir, partialsdir, attachmentdir, etc. as this would be too verbose
-            addDescriptors(element);
-          }
-        } else if (element instanceof AsciiDocHtmlEntity) {
-          addDescriptors(element);
-        }
-        super.visitElement(element);
-        element.acceptChildren(this);
-      }
-
-      @Override
-      public void visitSections(@NotNull AsciiDocSection section) {
-        addDescriptors(section);
-        super.visitSections(section);
-      }
-
-      @Override
-      public void visitBlocks(@NotNull AsciiDocBlock block) {
-        addDescriptors(block);
-        super.visitBlocks(block);
-      }
-
-      private void addDescriptors(@NotNull PsiElement element) {
-        AsciiDocFoldingBuilder.addDescriptors(element, element.getTextRange(), descriptors, document);
-      }
-    });
+    buildFoldRegions(descriptors, root, document, attributeFoldingEnabled);
+  }
 
-    root.accept(new AsciiDocVisitor() {
-      @Override
-      public void visitSections(@NotNull AsciiDocSection header) {
-        super.visitSections(header);
+  static void buildFoldRegions(@NotNull List<? super FoldingDescriptor> descriptors,
+                               @NotNull PsiElement root,
+                               @NotNull Document document,
+                               boolean attributeFoldingEnabled) {
+    ASTNode rootNode = root.getNode();
+    if (rootNode == null) {
+      return;
+    }
+    // walk the tree once, depth first and without recursion; only composite elements can be folded
+    ASTNode node = rootNode;
+    while (node != null) {
+      if (node instanceof CompositeElement) {
+        addDescriptors(node.getPsi(), descriptors, document, attributeFoldingEnabled);
       }
-
-      @Override
-      public void visitBlocks(@NotNull AsciiDocBlock block) {
-        super.visitBlocks(block);
+      ASTNode next = node.getFirstChildNode();
+      while (next == null && node != rootNode) {
+        next = node.getTreeNext();
+        if (next == null) {
+          node = node.getTreeParent();
+        }
       }
-    });
+      node = next;
+    }
   }
 
   private static void addDescriptors(@NotNull PsiElement element,
-                                     @NotNull TextRange range,
                                      @NotNull List<? super FoldingDescriptor> descriptors,
-                                     @NotNull Document document) {
-    if (document.getLineNumber(range.getStartOffset()) != document.getLineNumber(range.getEndOffset() - 1)) {
-      descriptors.add(new FoldingDescriptor(element, range));
-    } else if (element instanceof AsciiDocAttributeReference) {
-      descriptors.add(new FoldingDescriptor(element, range));
+                                     @NotNull Document document,
+                                     boolean attributeFoldingEnabled) {
+    if (element instanceof AsciiDocAttributeReference) {
+      if (attributeFoldingEnabled && !StringUtil.endsWithIgnoreCase(element.getNode().getChars(), "dir}")) {
+        // avoid replacing imagesdir, partialsdir, attachmentdir, etc. as this would be too verbose
+        descriptors.add(new FoldingDescriptor(element, element.getTextRange()));
+      }
     } else if (element instanceof AsciiDocHtmlEntity) {
-      descriptors.add(new FoldingDescriptor(element, range));
+      descriptors.add(new FoldingDescriptor(element, element.getTextRange()));
+    } else if (element instanceof AsciiDocSection || element instanceof AsciiDocBlock) {
+      TextRange range = element.getTextRange();
+      if (document.getLineNumber(range.getStartOffset()) != document.getLineNumber(range.getEndOffset() - 1)) {
+        descriptors.add(new FoldingDescriptor(element, range));
+      }
     }
   }
 
@@ -146,34 +128,8 @@ public class AsciiDocFoldingBuilder extends CustomFoldingBuilder implements Dumb
         title = COLLAPSABLE_ATTRIBUTES.get(key);
         if (title == null && !DumbService.isDumb(node.getPsi().getProject())) {
           // checking dumb mode to avoid IndexNotReadyException
-          Set<String> values = new HashSet<>();
-
-          // search attributes contributed by Antora
-          Map<String, String> attributes = AsciiDocUtil.collectAntoraAttributes(node.getPsi());
-          attributes.forEach((k, v) -> {
-            if (k.toLowerCase(Locale.US).equals(key)) {
-              values.add(v);
-            }
-          });
-
-          // search regular attributes
-          iterateReferences:
-          for (PsiReference reference : node.getPsi().getReferences()) {
-            if (reference instanceof AsciiDocAttributeDeclarationReference) {
-              for (ResolveResult resolveResult : ((AsciiDocAttributeDeclarationReference) reference).multiResolve(false)) {
-                PsiElement element = resolveResult.getElement();
-                if (element instanceof AsciiDocAttributeDeclarationName) {
-                  PsiElement parent = element.getParent();
-                  if (parent instanceof AsciiDocAttributeDeclaration) {
-                    values.add(((AsciiDocAttributeDeclaration) parent).getAttributeValue());
-                    if (values.size() > 1) {
-                      break iterateReferences;
-                    }
-                  }
-                }
-              }
-            }
-          }
+          // attributes contributed by Antora and regular attributes
+          Set<String> values = AsciiDocAttributeValues.forElement(node.getPsi()).getValues(key);
           if (values.size() == 1) {
             title = values.iterator().next();
           } else {
@@ -0,0 +1,185 @@
+package org.asciidoc.intellij.indexer;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.asciidoc.intellij.file.AsciiDocFileType;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the places that might reference a block ID or an attribute, by the referenced name.
+ * The value is the list of offsets in the file where the name starts.
+ * Covered are block IDs in <code>&lt;&lt;id&gt;&gt;</code>, <code>xref:file#id[]</code> and <code>link:file#id[]</code>,
+ * and attributes in <code>{attr}</code> and preprocessor directives like <code>ifdef::attr[]</code>.
+ * Attribute names are stored in lower case, as they are case insensitive.
+ * <p>
+ * The index is built from the text of the file and might contain occurrences that are no references,
+ * for example in listings. Callers need to resolve the reference at each offset.
+ */
+public class AsciiDocIdReferenceIndex extends FileBasedIndexExtension<String, List<Integer>> {
+
+  public static final ID<String, List<Integer>> NAME = ID.create("asciidoc.idReference");
+
+  private static final Pattern REF = Pattern.compile("<<([^>,\\n]+)(?:,[^>\\n]*)?>>");
+  private static final Pattern MACRO = Pattern.compile("\\b(?:xref|link):([^\\[\\s]*)\\[");
+  private static final Pattern MACRO_ATTRIBUTE = Pattern.compile("\\b(?:xref|link)=\"?([^\\],\"\\s]+)");
+  private static final Pattern ATTRIBUTE = Pattern.compile("\\{(?:set:|counter2?:)?([a-zA-Z0-9_][a-zA-Z0-9_-]*)[}:!]");
+  private static final Pattern CONDITION = Pattern.compile("^(?:ifdef|ifndef|endif)::([^\\[\\n]*)\\[", Pattern.MULTILINE);
+  private static final Pattern CONDITION_NAME = Pattern.compile("[^,+\\s]+");
+
+  /**
+   * Files and offsets that might reference a block ID or an attribute with the given name.
+   * Use the lower case name of an attribute. Needs to be called within a read action and outside dumb mode.
+   */
+  @NotNull
+  public static Map<VirtualFile, List<Integer>> findOccurrences(@NotNull String name, @NotNull GlobalSearchScope scope) {
+    Map<VirtualFile, List<Integer>> result = new LinkedHashMap<>();
+    FileBasedIndex.getInstance().processValues(NAME, name, null, (file, offsets) -> {
+      result.computeIfAbsent(file, f -> new ArrayList<>()).addAll(offsets);
+      return true;
+    }, scope);
+    return result;
+  }
+
+  @NotNull
+  static Map<String, List<Integer>> index(@NotNull CharSequence text) {
+    Map<String, List<Integer>> result = new HashMap<>();
+    Matcher matcher = REF.matcher(text);
+    while (matcher.find()) {
+      addAnchor(result, matcher.group(1), matcher.start(1), true);
+    }
+    matcher = MACRO.matcher(text);
+    while (matcher.find()) {
+      addAnchor(result, matcher.group(1), matcher.start(1), false);
+    }
+    matcher = MACRO_ATTRIBUTE.matcher(text);
+    while (matcher.find()) {
+      addAnchor(result, matcher.group(1), matcher.start(1), false);
+    }
+    matcher = ATTRIBUTE.matcher(text);
+    while (matcher.find()) {
+      add(result, matcher.group(1).toLowerCase(Locale.US), matcher.start(1));
+    }
+    matcher = CONDITION.matcher(text);
+    while (matcher.find()) {
+      Matcher name = CONDITION_NAME.matcher(matcher.group(1));
+      while (name.find()) {
+        add(result, name.group().toLowerCase(Locale.US), matcher.start(1) + name.start());
+      }
+    }
+    for (List<Integer> offsets : result.values()) {
+      Collections.sort(offsets);
+    }
+    return result;
+  }
+
+  /**
+   * Adds the anchor part of a target. A target without a <code>#</code> is a plain ID for a <code>&lt;&lt;id&gt;&gt;</code>,
+   * for other macros it is a plain ID unless it looks like a file name or a URL.
+   */
+  private static void addAnchor(Map<String, List<Integer>> result, String target, int offset, boolean ref) {
+    int hash = target.lastIndexOf('#');
+    if (!ref && hash == -1 && (target.indexOf('.') != -1 || target.indexOf('/') != -1 || target.indexOf(':') != -1)) {
+      // most likely a file name or a URL
+      return;
+    }
+    int start = hash + 1;
+    while (start < target.length() && Character.isWhitespace(target.charAt(start))) {
+      ++start;
+    }
+    String anchor = target.substring(start).trim();
+    if (!anchor.isEmpty()) {
+      add(result, anchor, offset + start);
+    }
+  }
+
+  private static void add(Map<String, List<Integer>> result, String name, int offset) {
+    result.computeIfAbsent(name, k -> new ArrayList<>()).add(offset);
+  }
+
+  @NotNull
+  @Override
+  public ID<String, List<Integer>> getName() {
+    return NAME;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, List<Integer>, FileContent> getIndexer() {
+    return inputData -> index(inputData.getContentAsText());
+  }
+
+  @NotNull
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return EnumeratorStringDescriptor.INSTANCE;
+  }
+
+  @NotNull
+  @Override
+  public DataExternalizer<List<Integer>> getValueExternalizer() {
+    return new DataExternalizer<List<Integer>>() {
+      @Override
+      public void save(@NotNull DataOutput out, List<Integer> value) throws IOException {
+        DataInputOutputUtil.writeINT(out, value.size());
+        // offsets are ascending, store the deltas to keep the numbers small
+        int previous = 0;
+        for (Integer offset : value) {
+          DataInputOutputUtil.writeINT(out, offset - previous);
+          previous = offset;
+        }
+      }
+
+      @Override
+      public List<Integer> read(@NotNull DataInput in) throws IOException {
+        int size = DataInputOutputUtil.readINT(in);
+        List<Integer> result = new ArrayList<>(size);
+        int offset = 0;
+        for (int i = 0; i < size; ++i) {
+          offset += DataInputOutputUtil.readINT(in);
+          result.add(offset);
+        }
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public int getVersion() {
+    return 1;
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return new DefaultFileTypeSpecificInputFilter(AsciiDocFileType.INSTANCE);
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+}
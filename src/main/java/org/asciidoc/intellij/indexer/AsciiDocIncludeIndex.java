@@ -0,0 +1,249 @@
+package org.asciidoc.intellij.indexer;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+import org.asciidoc.intellij.file.AsciiDocFileType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.asciidoc.intellij.psi.AsciiDocUtil.ATTRIBUTES;
+
+/**
+ * Index of the <code>include::</code> targets of all AsciiDoc files, by the file name of the target.
+ * This allows to find the candidates that might include a file without parsing all files of the project.
+ * Attributes in a target are replaced with the values declared in the same file where possible.
+ * Targets whose file name still contains an attribute are stored under {@link #ANY_NAME}.
+ * <p>
+ * The index is built from the text of the file and is a superset of the includes seen by the parser,
+ * so callers need to resolve the includes of the candidates to get the actual include relations.
+ */
+public class AsciiDocIncludeIndex extends FileBasedIndexExtension<String, List<AsciiDocIncludeIndex.Target>> {
+
+  public static final ID<String, List<Target>> NAME = ID.create("asciidoc.include");
+
+  /**
+   * Key for targets with an attribute in their file name, as they might include a file with any name.
+   */
+  public static final String ANY_NAME = "{*}";
+
+  private static final Pattern INCLUDE = Pattern.compile("^include::([^\\[\\s][^\\[]*)\\[", Pattern.MULTILINE);
+  private static final Pattern ATTRIBUTE_DECLARATION = Pattern.compile("^:([a-zA-Z0-9_][a-zA-Z0-9_-]*):[ \\t]*(.*?)[ \\t]*$", Pattern.MULTILINE);
+
+  /**
+   * Maximum number of attributes replaced in a target, including attributes in values.
+   */
+  private static final int MAX_REPLACEMENTS = 10;
+
+  /**
+   * An include target as written in the file, and with the attributes declared in the same file replaced.
+   */
+  public static final class Target {
+    private final String raw;
+    private final String resolved;
+
+    Target(@NotNull String raw, @Nullable String resolved) {
+      this.raw = raw;
+      this.resolved = resolved;
+    }
+
+    @NotNull
+    public String getRaw() {
+      return raw;
+    }
+
+    /**
+     * Target without attributes, or <code>null</code> if some of its attributes are not declared in the file itself.
+     */
+    @Nullable
+    public String getResolved() {
+      return resolved;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Target target = (Target) o;
+      return raw.equals(target.raw) &&
+        Objects.equals(resolved, target.resolved);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(raw, resolved);
+    }
+  }
+
+  /**
+   * Files that might include a file with the given name. Needs to be called within a read action and outside dumb mode.
+   */
+  @NotNull
+  public static Set<VirtualFile> findIncludingCandidates(@NotNull Project project, @NotNull String name) {
+    Set<VirtualFile> result = new LinkedHashSet<>();
+    GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+    result.addAll(FileBasedIndex.getInstance().getContainingFiles(NAME, name, scope));
+    result.addAll(FileBasedIndex.getInstance().getContainingFiles(NAME, ANY_NAME, scope));
+    return result;
+  }
+
+  /**
+   * File name of an include target, with any directory or Antora resource prefix removed.
+   */
+  @NotNull
+  static String fileName(@NotNull String target) {
+    int start = Math.max(target.lastIndexOf('/'), target.lastIndexOf('\\'));
+    start = Math.max(start, target.lastIndexOf('$'));
+    return target.substring(start + 1);
+  }
+
+  @NotNull
+  static Map<String, List<Target>> index(@NotNull CharSequence text) {
+    Map<String, String> declarations = null;
+    Map<String, List<Target>> result = new HashMap<>();
+    Matcher include = INCLUDE.matcher(text);
+    while (include.find()) {
+      String raw = include.group(1).trim();
+      String resolved = raw;
+      if (ATTRIBUTES.matcher(raw).find()) {
+        if (declarations == null) {
+          declarations = declarations(text);
+        }
+        resolved = replace(raw, declarations);
+      }
+      String name = fileName(resolved != null ? resolved : raw);
+      if (name.isEmpty() || ATTRIBUTES.matcher(name).find()) {
+        name = ANY_NAME;
+      }
+      List<Target> targets = result.computeIfAbsent(name, k -> new ArrayList<>());
+      Target target = new Target(raw, resolved);
+      if (!targets.contains(target)) {
+        targets.add(target);
+      }
+    }
+    return result;
+  }
+
+  private static Map<String, String> declarations(CharSequence text) {
+    Map<String, String> result = new HashMap<>();
+    Matcher matcher = ATTRIBUTE_DECLARATION.matcher(text);
+    while (matcher.find()) {
+      // the first declaration wins, later declarations usually only apply to later parts of the document
+      result.putIfAbsent(matcher.group(1), matcher.group(2));
+    }
+    return result;
+  }
+
+  @Nullable
+  private static String replace(String target, Map<String, String> declarations) {
+    String result = target;
+    for (int i = 0; i < MAX_REPLACEMENTS; ++i) {
+      Matcher matcher = ATTRIBUTES.matcher(result);
+      if (!matcher.find()) {
+        return result;
+      }
+      String value = declarations.get(matcher.group(1));
+      if (value == null) {
+        return null;
+      }
+      result = result.substring(0, matcher.start()) + value + result.substring(matcher.end());
+    }
+    return null;
+  }
+
+  @NotNull
+  @Override
+  public ID<String, List<Target>> getName() {
+    return NAME;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, List<Target>, FileContent> getIndexer() {
+    return inputData -> index(inputData.getContentAsText());
+  }
+
+  @NotNull
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return EnumeratorStringDescriptor.INSTANCE;
+  }
+
+  @NotNull
+  @Override
+  public DataExternalizer<List<Target>> getValueExternalizer() {
+    return new DataExternalizer<List<Target>>() {
+      @Override
+      public void save(@NotNull DataOutput out, List<Target> value) throws IOException {
+        out.writeInt(value.size());
+        for (Target target : value) {
+          IOUtil.writeUTF(out, target.getRaw());
+          out.writeBoolean(target.getResolved() != null);
+          if (target.getResolved() != null) {
+            IOUtil.writeUTF(out, target.getResolved());
+          }
+        }
+      }
+
+      @Override
+      public List<Target> read(@NotNull DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size == 0) {
+          return Collections.emptyList();
+        }
+        List<Target> result = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+          String raw = IOUtil.readUTF(in);
+          String resolved = in.readBoolean() ? IOUtil.readUTF(in) : null;
+          result.add(new Target(raw, resolved));
+        }
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public int getVersion() {
+    return 1;
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return new DefaultFileTypeSpecificInputFilter(AsciiDocFileType.INSTANCE);
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+}
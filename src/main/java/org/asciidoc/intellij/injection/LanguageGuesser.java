@@ -1,5 +1,7 @@
 package org.asciidoc.intellij.injection;
 
+import com.intellij.ide.plugins.DynamicPluginListener;
+import com.intellij.ide.plugins.IdeaPluginDescriptor;
 import com.intellij.lang.Language;
 import com.intellij.lexer.EmbeddedTokenTypesProvider;
 import org.asciidoc.intellij.settings.AsciiDocApplicationSettings;
@@ -8,21 +10,128 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Finds the language of a listing block. The map of language IDs to languages is built once, and re-built only after
+ * plugins have been loaded or unloaded, as they register and unregister languages (see {@link PluginListener}).
+ * As a language registers itself when it is first instantiated, the map is re-built as well when the number
+ * of registered languages has changed. As listing the registered languages copies them, this is checked only
+ * when listing all languages for completion, and the first time an unknown language is looked up.
+ * The languages disabled for injection are re-parsed only after the settings have been replaced.
+ */
 public class LanguageGuesser {
 
+  private static volatile LanguageMap langIdToLanguage;
+  private static volatile DisabledInjections disabledInjections;
+  private static long modificationCount;
+
+  private LanguageGuesser() {
+  }
+
+  private static final class LanguageMap {
+    private final Map<String, Language> languages;
+    private final int registeredLanguages;
+    // IDs that have been looked up without finding a language since the map has been built
+    private final Set<String> unknown = ConcurrentHashMap.newKeySet();
+
+    private LanguageMap(Map<String, Language> languages, int registeredLanguages) {
+      this.languages = languages;
+      this.registeredLanguages = registeredLanguages;
+    }
+  }
+
+  private static final class DisabledInjections {
+    private final AsciiDocPreviewSettings settings;
+    private final Set<String> languages;
+
+    private DisabledInjections(AsciiDocPreviewSettings settings) {
+      this.settings = settings;
+      this.languages = new HashSet<>(settings.getDisabledInjectionsByLanguageAsList());
+    }
+  }
+
+  /**
+   * Forget the cached languages when plugins are loaded or unloaded.
+   * Also needed to release the languages of a plugin that is about to be unloaded.
+   */
+  public static class PluginListener implements DynamicPluginListener {
+    @Override
+    public void pluginLoaded(@NotNull IdeaPluginDescriptor pluginDescriptor) {
+      clearCache();
+    }
+
+    @Override
+    public void beforePluginUnload(@NotNull IdeaPluginDescriptor pluginDescriptor, boolean isUpdate) {
+      clearCache();
+    }
+
+    @Override
+    public void pluginUnloaded(@NotNull IdeaPluginDescriptor pluginDescriptor, boolean isUpdate) {
+      clearCache();
+    }
+  }
+
+  static void clearCache() {
+    synchronized (LanguageGuesser.class) {
+      ++modificationCount;
+      langIdToLanguage = null;
+    }
+  }
+
   private static List<EmbeddedTokenTypesProvider> embeddedTokenTypesProviders() {
     return Arrays.asList(EmbeddedTokenTypesProvider.EXTENSION_POINT_NAME.getExtensions());
   }
 
-  private static Map<String, Language> langIdToLanguage() {
+  private static LanguageMap langIdToLanguage(boolean checkRegistered) {
+    LanguageMap result = langIdToLanguage;
+    if (result != null && !checkRegistered) {
+      return result;
+    }
+    Collection<Language> registeredLanguages = Language.getRegisteredLanguages();
+    if (result != null && result.registeredLanguages == registeredLanguages.size()) {
+      return result;
+    }
+    long count;
+    synchronized (LanguageGuesser.class) {
+      count = modificationCount;
+    }
+    result = new LanguageMap(Collections.unmodifiableMap(buildLangIdToLanguage(registeredLanguages)), registeredLanguages.size());
+    synchronized (LanguageGuesser.class) {
+      // don't keep the result if the languages changed while building it
+      if (count == modificationCount) {
+        langIdToLanguage = result;
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  private static Language findLanguage(String id) {
+    LanguageMap map = langIdToLanguage(false);
+    Language language = map.languages.get(id);
+    if (language == null && map.unknown.add(id)) {
+      // the language might have been registered after the map has been built
+      map = langIdToLanguage(true);
+      language = map.languages.get(id);
+      if (language == null) {
+        map.unknown.add(id);
+      }
+    }
+    return language;
+  }
+
+  private static Map<String, Language> buildLangIdToLanguage(Collection<Language> registeredLanguages) {
     final HashMap<String, Language> result = new HashMap<>();
-    for (Language language : Language.getRegisteredLanguages()) {
+    for (Language language : registeredLanguages) {
       if (language.getID().isEmpty()) {
         continue;
       }
@@ -39,7 +148,18 @@ public class LanguageGuesser {
 
   @NotNull
   public static Map<String, Language> getLangToLanguageMap() {
-    return Collections.unmodifiableMap(langIdToLanguage());
+    return langIdToLanguage(true).languages;
+  }
+
+  private static Set<String> disabledInjections() {
+    AsciiDocPreviewSettings settings = AsciiDocApplicationSettings.getInstance().getAsciiDocPreviewSettings();
+    DisabledInjections result = disabledInjections;
+    // settings are replaced, not modified, when the user changes them
+    if (result == null || result.settings != settings) {
+      result = new DisabledInjections(settings);
+      disabledInjections = result;
+    }
+    return result.languages;
   }
 
   @Nullable
@@ -57,12 +177,11 @@ public class LanguageGuesser {
       return null;
     }
 
-    AsciiDocPreviewSettings settings = AsciiDocApplicationSettings.getInstance().getAsciiDocPreviewSettings();
-    if (settings.getDisabledInjectionsByLanguageAsList().contains(lang)) {
+    if (disabledInjections().contains(lang)) {
       return null;
     }
 
-    final Language languageFromMap = langIdToLanguage().get(lang.toLowerCase(Locale.US));
+    final Language languageFromMap = findLanguage(lang.toLowerCase(Locale.US));
     if (languageFromMap != null) {
       return languageFromMap;
     }
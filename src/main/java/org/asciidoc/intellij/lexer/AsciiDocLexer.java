@@ -2,29 +2,60 @@ package org.asciidoc.intellij.lexer;
 
 import com.intellij.lexer.FlexAdapter;
 import com.intellij.lexer.MergingLexerAdapter;
+import com.intellij.lexer.RestartableLexer;
+import com.intellij.lexer.TokenIterator;
 import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 
 /**
+ * The state of this lexer includes the state that {@link _AsciiDocLexer} keeps outside of its lexical state,
+ * see {@link AsciiDocLexerState}. This allows the editor to restart lexing at the start of a line near the change.
+ *
  * @author yole
  */
-public class AsciiDocLexer extends MergingLexerAdapter {
+public class AsciiDocLexer extends MergingLexerAdapter implements RestartableLexer {
   public AsciiDocLexer() {
     super(new FlexAdapter(new _AsciiDocLexer(null) {
       @Override
       public void reset(CharSequence buffer, int start, int end, int initialState) {
-        super.reset(buffer, start, end, initialState);
+        super.reset(buffer, start, end, AsciiDocLexerState.lexicalState(initialState));
+        restoreState(initialState);
         setFinal(end);
       }
 
       @Override
       public IElementType advance() throws IOException {
+        saveTokenStartState();
         limitLookahead();
         IElementType advance = super.advance();
         clearLookahead();
         return advance;
       }
-    }), AsciiDocTokenTypes.TOKENS_TO_MERGE);
+    }) {
+      @Override
+      public int getState() {
+        // locates the current token, then returns the complete state at its start instead of only the lexical state
+        super.getState();
+        return ((_AsciiDocLexer) getFlex()).getTokenStartState();
+      }
+    }, AsciiDocTokenTypes.TOKENS_TO_MERGE);
+  }
+
+  @Override
+  public int getStartState() {
+    return 0;
+  }
+
+  @Override
+  public boolean isRestartableState(int state) {
+    return AsciiDocLexerState.isRestartable(state);
+  }
+
+  @Override
+  public void start(@NotNull CharSequence buffer, int startOffset, int endOffset, int initialState, TokenIterator tokenIterator) {
+    // the state contains everything needed to restart, the previous tokens are not needed
+    start(buffer, startOffset, endOffset, initialState);
   }
 }
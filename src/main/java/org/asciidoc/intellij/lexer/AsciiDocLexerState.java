@@ -0,0 +1,245 @@
+package org.asciidoc.intellij.lexer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Stack;
+
+/**
+ * State of the {@link _AsciiDocLexer} that is kept outside of the JFlex lexical state: the stack of states and blocks,
+ * the open inline formatting, the style of the next block, the separator of the current table and some counters.
+ * <p>
+ * Each distinct state is interned and numbered, so that the lexical state, the number of this state and
+ * a flag for the start of a line fit into the int state of {@link AsciiDocLexer}.
+ * The editor can then restart lexing at the start of any line near a change, instead of the last line where all
+ * blocks have been closed.
+ * <p>
+ * Only the most recently used states are kept. Once a state has been dropped, its number is never re-used,
+ * and the editor can no longer restart from it, but will look for an earlier line to restart from.
+ */
+final class AsciiDocLexerState {
+
+  private static final int LEXICAL_STATE_BITS = 8;
+  private static final int LEXICAL_STATE_MASK = (1 << LEXICAL_STATE_BITS) - 1;
+  private static final int LINE_START = 1 << LEXICAL_STATE_BITS;
+  private static final int ID_SHIFT = LEXICAL_STATE_BITS + 1;
+
+  /**
+   * Marks a state that couldn't be numbered as all numbers have been used. The lexer can't restart from it.
+   */
+  private static final int OVERFLOW = (1 << (Integer.SIZE - 1 - ID_SHIFT)) - 1;
+
+  /**
+   * Maximum number of states kept, enough for the states of all documents being edited.
+   */
+  static final int MAX_STATES = 4096;
+
+  static final AsciiDocLexerState EMPTY = new AsciiDocLexerState(new int[0], new String[0], 0, null, (char) 0, 0, 0);
+
+  private static final Map<AsciiDocLexerState, AsciiDocLexerState> INTERNED = new HashMap<>();
+  private static final Map<Integer, AsciiDocLexerState> BY_ID = new LinkedHashMap<Integer, AsciiDocLexerState>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, AsciiDocLexerState> eldest) {
+      if (size() > MAX_STATES) {
+        eldest.getValue().dropped = true;
+        INTERNED.remove(eldest.getValue());
+        return true;
+      }
+      return false;
+    }
+  };
+  private static int nextId = 1;
+
+  private final int[] states;
+  private final String[] blocks;
+  private final int formatting;
+  private final String style;
+  private final char tableChar;
+  private final int headerLines;
+  private final int blockDelimiterLength;
+  private final int hashCode;
+  private int id;
+  private volatile boolean dropped;
+
+  private AsciiDocLexerState(int[] states, String[] blocks, int formatting, String style, char tableChar,
+                             int headerLines, int blockDelimiterLength) {
+    this.states = states;
+    this.blocks = blocks;
+    this.formatting = formatting;
+    this.style = style;
+    this.tableChar = tableChar;
+    this.headerLines = headerLines;
+    this.blockDelimiterLength = blockDelimiterLength;
+    this.hashCode = Objects.hash(Arrays.hashCode(states), Arrays.hashCode(blocks), formatting, style, tableChar, headerLines, blockDelimiterLength);
+  }
+
+  /**
+   * Returns the numbered instance for the given state. Called by the lexer only when its state has changed,
+   * therefore the lock is taken rarely.
+   */
+  static AsciiDocLexerState of(Stack<Integer> stateStack, Stack<String> blockStack, int formatting, String style,
+                               char tableChar, int headerLines, int blockDelimiterLength) {
+    int[] states = new int[stateStack.size()];
+    for (int i = 0; i < states.length; ++i) {
+      states[i] = stateStack.get(i);
+    }
+    AsciiDocLexerState state = new AsciiDocLexerState(states, blockStack.toArray(new String[0]), formatting, style,
+      tableChar, headerLines, blockDelimiterLength);
+    synchronized (INTERNED) {
+      AsciiDocLexerState interned = INTERNED.get(state);
+      if (interned != null) {
+        // mark as recently used
+        BY_ID.get(interned.id);
+        return interned;
+      }
+      if (nextId >= OVERFLOW) {
+        state.id = OVERFLOW;
+        return state;
+      }
+      state.id = nextId++;
+      INTERNED.put(state, state);
+      BY_ID.put(state.id, state);
+      return state;
+    }
+  }
+
+  /**
+   * Checks if this state has been dropped. The lexer needs to ask for a new instance then.
+   */
+  boolean isDropped() {
+    return dropped;
+  }
+
+  /**
+   * Checks if this state is the same as the given state, without creating a new instance.
+   */
+  boolean matches(Stack<Integer> stateStack, Stack<String> blockStack, int formatting, String style,
+                  char tableChar, int headerLines, int blockDelimiterLength) {
+    if (this.formatting != formatting || this.tableChar != tableChar || this.headerLines != headerLines
+      || this.blockDelimiterLength != blockDelimiterLength || !Objects.equals(this.style, style)
+      || states.length != stateStack.size() || blocks.length != blockStack.size()) {
+      return false;
+    }
+    for (int i = 0; i < states.length; ++i) {
+      if (states[i] != stateStack.get(i)) {
+        return false;
+      }
+    }
+    for (int i = 0; i < blocks.length; ++i) {
+      if (!blocks[i].equals(blockStack.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static int encode(int lexicalState, AsciiDocLexerState state, boolean lineStart) {
+    if (lexicalState > LEXICAL_STATE_MASK) {
+      throw new IllegalStateException("lexical state out of range: " + lexicalState);
+    }
+    return (state.id << ID_SHIFT) | (lineStart ? LINE_START : 0) | lexicalState;
+  }
+
+  static int lexicalState(int encoded) {
+    return encoded & LEXICAL_STATE_MASK;
+  }
+
+  static AsciiDocLexerState decode(int encoded) {
+    int id = encoded >>> ID_SHIFT;
+    if (id == 0) {
+      return EMPTY;
+    }
+    synchronized (INTERNED) {
+      AsciiDocLexerState state = BY_ID.get(id);
+      if (state == null) {
+        // the state was not numbered or has been dropped; start with an empty state as the lexer did before
+        return EMPTY;
+      }
+      return state;
+    }
+  }
+
+  /**
+   * The lexer can restart at the initial state, and at the start of each line if the state is still numbered.
+   */
+  static boolean isRestartable(int encoded) {
+    if (encoded == 0) {
+      return true;
+    }
+    if ((encoded & LINE_START) == 0) {
+      return false;
+    }
+    int id = encoded >>> ID_SHIFT;
+    if (id == 0) {
+      return true;
+    }
+    synchronized (INTERNED) {
+      return BY_ID.containsKey(id);
+    }
+  }
+
+  /**
+   * Number of states currently kept.
+   */
+  static int size() {
+    synchronized (INTERNED) {
+      return BY_ID.size();
+    }
+  }
+
+  void restoreStateStack(Stack<Integer> stateStack) {
+    stateStack.clear();
+    for (int state : states) {
+      stateStack.push(state);
+    }
+  }
+
+  void restoreBlockStack(Stack<String> blockStack) {
+    blockStack.clear();
+    for (String block : blocks) {
+      blockStack.push(block);
+    }
+  }
+
+  int getFormatting() {
+    return formatting;
+  }
+
+  String getStyle() {
+    return style;
+  }
+
+  char getTableChar() {
+    return tableChar;
+  }
+
+  int getHeaderLines() {
+    return headerLines;
+  }
+
+  int getBlockDelimiterLength() {
+    return blockDelimiterLength;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    AsciiDocLexerState that = (AsciiDocLexerState) o;
+    return formatting == that.formatting && tableChar == that.tableChar && headerLines == that.headerLines
+      && blockDelimiterLength == that.blockDelimiterLength && Arrays.equals(states, that.states)
+      && Arrays.equals(blocks, that.blocks) && Objects.equals(style, that.style);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+}
@@ -1,11 +1,24 @@
 package org.asciidoc.intellij.parser;
 
-import com.intellij.psi.stubs.PsiFileStub;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.StubBuilder;
+import com.intellij.psi.stubs.DefaultStubBuilder;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubInputStream;
+import com.intellij.psi.stubs.StubOutputStream;
 import com.intellij.psi.tree.IStubFileElementType;
 import org.asciidoc.intellij.AsciiDocLanguage;
 import org.asciidoc.intellij.psi.AsciiDocFile;
+import org.asciidoc.intellij.psi.AsciiDocFileStub;
+import org.asciidoc.intellij.psi.AsciiDocFileStubImpl;
+import org.jetbrains.annotations.NotNull;
 
-public class AsciiDocFileElementType extends IStubFileElementType<PsiFileStub<AsciiDocFile>> {
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class AsciiDocFileElementType extends IStubFileElementType<AsciiDocFileStub> {
 
   public AsciiDocFileElementType() {
     super(AsciiDocLanguage.INSTANCE);
@@ -13,6 +26,49 @@ public class AsciiDocFileElementType extends IStubFileElementType<PsiFileStub<As
 
   @Override
   public int getStubVersion() {
-    return 9;
+    return 10;
+  }
+
+  @Override
+  public StubBuilder getBuilder() {
+    return new DefaultStubBuilder() {
+      @NotNull
+      @Override
+      protected StubElement createStubForFile(@NotNull PsiFile file) {
+        if (file instanceof AsciiDocFile) {
+          return AsciiDocFileStubImpl.create((AsciiDocFile) file);
+        }
+        return new AsciiDocFileStubImpl(null, Collections.emptyList());
+      }
+    };
+  }
+
+  @NotNull
+  @Override
+  public String getExternalId() {
+    return "asciidoc.FILE";
+  }
+
+  @Override
+  public void serialize(@NotNull AsciiDocFileStub stub, @NotNull StubOutputStream dataStream) throws IOException {
+    List<AsciiDocFileStub.Include> includes = stub.getIncludes();
+    dataStream.writeVarInt(includes.size());
+    for (AsciiDocFileStub.Include include : includes) {
+      dataStream.writeVarInt(include.getOffset());
+      dataStream.writeUTFFast(include.getTarget());
+    }
+  }
+
+  @NotNull
+  @Override
+  public AsciiDocFileStub deserialize(@NotNull StubInputStream dataStream, StubElement parentStub) throws IOException {
+    int size = dataStream.readVarInt();
+    List<AsciiDocFileStub.Include> includes = new ArrayList<>(size);
+    for (int i = 0; i < size; ++i) {
+      int offset = dataStream.readVarInt();
+      String target = dataStream.readUTFFast();
+      includes.add(new AsciiDocFileStub.Include(offset, target));
+    }
+    return new AsciiDocFileStubImpl(null, includes);
   }
 }
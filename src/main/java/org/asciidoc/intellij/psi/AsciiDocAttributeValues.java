@@ -0,0 +1,85 @@
+package org.asciidoc.intellij.psi;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataHolder;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import org.asciidoc.intellij.AsciiDoc;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Values of the attributes as seen from a document: the attributes of its Antora module, merged with the attributes
+ * declared in the project. The declared values are taken from the stubs of the {@link AsciiDocAttributeDeclarationKeyIndex}.
+ * There is one instance per Antora module, and one for all documents outside of Antora modules.
+ * Each attribute is looked up once, until the next change to a PSI file or the structure of the virtual file system.
+ */
+public final class AsciiDocAttributeValues {
+
+  private static final Key<CachedValue<AsciiDocAttributeValues>> KEY = Key.create("asciidoc.attributeValues");
+
+  private final Project project;
+  private final Map<String, String> antoraAttributes;
+  private final Map<String, Set<String>> values = new ConcurrentHashMap<>();
+
+  private AsciiDocAttributeValues(@NotNull Project project, @NotNull Map<String, String> antoraAttributes) {
+    this.project = project;
+    this.antoraAttributes = antoraAttributes;
+  }
+
+  /**
+   * Attribute values for the document containing the element. Needs to be called within a read action and outside dumb mode.
+   */
+  @NotNull
+  public static AsciiDocAttributeValues forElement(@NotNull PsiElement element) {
+    Project project = element.getProject();
+    VirtualFile antoraModuleDir = AsciiDocUtil.findAntoraModuleDir(element);
+    UserDataHolder holder = antoraModuleDir != null ? antoraModuleDir : project;
+    return CachedValuesManager.getManager(project).getCachedValue(holder, KEY, () -> {
+      Map<String, String> antoraAttributes = Collections.emptyMap();
+      if (antoraModuleDir != null) {
+        antoraAttributes = new HashMap<>();
+        for (Map.Entry<String, String> entry : AsciiDoc.collectAntoraAttributes(project, antoraModuleDir).entrySet()) {
+          // attribute names are case insensitive
+          antoraAttributes.putIfAbsent(entry.getKey().toLowerCase(Locale.US), entry.getValue());
+        }
+      }
+      return CachedValueProvider.Result.create(new AsciiDocAttributeValues(project, antoraAttributes),
+        PsiModificationTracker.MODIFICATION_COUNT, VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS);
+    }, false);
+  }
+
+  /**
+   * All distinct values of the attribute, the Antora value first. An unset attribute contributes a <code>null</code> value.
+   */
+  @NotNull
+  public Set<String> getValues(@NotNull String name) {
+    return values.computeIfAbsent(name.toLowerCase(Locale.US), this::collectValues);
+  }
+
+  private Set<String> collectValues(String name) {
+    Set<String> result = new LinkedHashSet<>();
+    String antoraValue = antoraAttributes.get(name);
+    if (antoraValue != null) {
+      result.add(antoraValue);
+    }
+    for (AsciiDocAttributeDeclaration declaration : AsciiDocUtil.findAttributes(project, name)) {
+      result.add(declaration.getAttributeValue());
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+}
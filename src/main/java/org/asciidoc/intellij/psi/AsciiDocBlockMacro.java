@@ -60,60 +60,7 @@ public class AsciiDocBlockMacro extends AsciiDocStandardBlock implements HasFile
       }
       TextRange range = getRangeOfBody(this);
       if (!range.isEmpty()) {
-        String file = this.getText().substring(range.getStartOffset(), range.getEndOffset());
-        ArrayList<PsiReference> references = new ArrayList<>();
-        int start = 0;
-        int i = 0;
-        boolean isAntora = false;
-        if (ANTORA_SUPPORTED.contains(getMacroName())) {
-          Matcher urlMatcher = URL_PREFIX_PATTERN.matcher(file);
-          if (!urlMatcher.find()) {
-            Matcher matcher = AsciiDocUtil.ANTORA_PREFIX_PATTERN.matcher(file);
-            if (matcher.find()) {
-              VirtualFile examplesDir = AsciiDocUtil.findAntoraModuleDir(this);
-              if (examplesDir != null) {
-                i += matcher.end();
-                isAntora = true;
-                references.add(
-                  new AsciiDocFileReference(this, getMacroName(), file.substring(0, start),
-                    TextRange.create(range.getStartOffset() + start, range.getStartOffset() + i - 1),
-                    true, isAntora, 1)
-                );
-                start = i;
-              }
-            }
-            matcher = AsciiDocUtil.ANTORA_FAMILY_PATTERN.matcher(file.substring(start));
-            if (matcher.find()) {
-              VirtualFile examplesDir = AsciiDocUtil.findAntoraModuleDir(this);
-              if (examplesDir != null) {
-                i += matcher.end();
-                isAntora = true;
-                references.add(
-                  new AsciiDocFileReference(this, getMacroName(), file.substring(0, start),
-                    TextRange.create(range.getStartOffset() + start, range.getStartOffset() + i - 1),
-                    true, isAntora, 1)
-                );
-                start = i;
-              }
-            }
-          }
-        }
-        for (; i < file.length(); ++i) {
-          if (file.charAt(i) == '/') {
-            references.add(
-              new AsciiDocFileReference(this, getMacroName(), file.substring(0, start),
-                TextRange.create(range.getStartOffset() + start, range.getStartOffset() + i),
-                true, isAntora)
-            );
-            start = i + 1;
-          }
-        }
-        references.add(
-          new AsciiDocFileReference(this, getMacroName(), file.substring(0, start),
-            TextRange.create(range.getStartOffset() + start, range.getStartOffset() + file.length()),
-            false, isAntora)
-        );
-        return references.toArray(new PsiReference[0]);
+        return createFileReferences(this, getMacroName(), range);
       }
     } else if ("operation".equals(getMacroName())) {
       TextRange range = getRangeOfBody(this);
@@ -237,7 +184,68 @@ public class AsciiDocBlockMacro extends AsciiDocStandardBlock implements HasFile
     }
   }
 
-  private static TextRange getRangeOfBody(AsciiDocBlockMacro element) {
+  /**
+   * File references for each segment of the path in the given range of the element, the last reference is for the file itself.
+   */
+  @NotNull
+  static PsiReference[] createFileReferences(@NotNull PsiElement element, @NotNull String macroName, @NotNull TextRange range) {
+    String file = element.getText().substring(range.getStartOffset(), range.getEndOffset());
+    ArrayList<PsiReference> references = new ArrayList<>();
+    int start = 0;
+    int i = 0;
+    boolean isAntora = false;
+    if (ANTORA_SUPPORTED.contains(macroName)) {
+      Matcher urlMatcher = URL_PREFIX_PATTERN.matcher(file);
+      if (!urlMatcher.find()) {
+        Matcher matcher = AsciiDocUtil.ANTORA_PREFIX_PATTERN.matcher(file);
+        if (matcher.find()) {
+          VirtualFile examplesDir = AsciiDocUtil.findAntoraModuleDir(element);
+          if (examplesDir != null) {
+            i += matcher.end();
+            isAntora = true;
+            references.add(
+              new AsciiDocFileReference(element, macroName, file.substring(0, start),
+                TextRange.create(range.getStartOffset() + start, range.getStartOffset() + i - 1),
+                true, isAntora, 1)
+            );
+            start = i;
+          }
+        }
+        matcher = AsciiDocUtil.ANTORA_FAMILY_PATTERN.matcher(file.substring(start));
+        if (matcher.find()) {
+          VirtualFile examplesDir = AsciiDocUtil.findAntoraModuleDir(element);
+          if (examplesDir != null) {
+            i += matcher.end();
+            isAntora = true;
+            references.add(
+              new AsciiDocFileReference(element, macroName, file.substring(0, start),
+                TextRange.create(range.getStartOffset() + start, range.getStartOffset() + i - 1),
+                true, isAntora, 1)
+            );
+            start = i;
+          }
+        }
+      }
+    }
+    for (; i < file.length(); ++i) {
+      if (file.charAt(i) == '/') {
+        references.add(
+          new AsciiDocFileReference(element, macroName, file.substring(0, start),
+            TextRange.create(range.getStartOffset() + start, range.getStartOffset() + i),
+            true, isAntora)
+        );
+        start = i + 1;
+      }
+    }
+    references.add(
+      new AsciiDocFileReference(element, macroName, file.substring(0, start),
+        TextRange.create(range.getStartOffset() + start, range.getStartOffset() + file.length()),
+        false, isAntora)
+    );
+    return references.toArray(new PsiReference[0]);
+  }
+
+  static TextRange getRangeOfBody(AsciiDocBlockMacro element) {
     PsiElement child = element.getFirstChild();
     // skip over pre-block until macro ID starts
     while (child != null && child.getNode().getElementType() != AsciiDocTokenTypes.BLOCK_MACRO_ID) {
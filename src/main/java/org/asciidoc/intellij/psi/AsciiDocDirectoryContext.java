@@ -0,0 +1,140 @@
+package org.asciidoc.intellij.psi;
+
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Supplier;
+
+/**
+ * Antora and Spring REST Docs directories as seen from a document's directory.
+ * Rendering a document and resolving its attributes asks for several of these directories back-to-back,
+ * and each lookup walks up the directory tree. This context memoizes the results per directory.
+ * It is discarded once the structure of the virtual file system changes, as any created, moved or deleted
+ * directory might change the results.
+ */
+final class AsciiDocDirectoryContext {
+
+  private static final Key<AsciiDocDirectoryContext> KEY = Key.create("asciidoc.directoryContext");
+
+  private final VirtualFile projectBasePath;
+  private final long modificationCount;
+
+  private final Value<VirtualFile> antoraModuleDir;
+  private final Value<VirtualFile> antoraPartials;
+  private final Value<VirtualFile> antoraAttachmentsDir;
+  private final Value<VirtualFile> antoraPagesDir;
+  private final Value<VirtualFile> antoraImagesDir;
+  private final Value<VirtualFile> antoraExamplesDir;
+  private final Value<String> antoraImagesDirRelative;
+  private final Value<String> antoraAttachmentsDirRelative;
+  private final Value<VirtualFile> springRestDocSnippets;
+
+  /**
+   * Lazily computed value. Concurrent callers might compute the value more than once, which is fine
+   * as the computation doesn't have side effects.
+   */
+  private static final class Value<T> {
+    private final Supplier<T> supplier;
+    private volatile boolean computed;
+    private volatile T value;
+
+    private Value(Supplier<T> supplier) {
+      this.supplier = supplier;
+    }
+
+    @Nullable
+    private T get() {
+      if (!computed) {
+        value = supplier.get();
+        computed = true;
+      }
+      return value;
+    }
+  }
+
+  private AsciiDocDirectoryContext(@Nullable VirtualFile projectBasePath, @Nullable VirtualFile fileBaseDir, long modificationCount) {
+    this.projectBasePath = projectBasePath;
+    this.modificationCount = modificationCount;
+    antoraModuleDir = new Value<>(() -> AsciiDocUtil.findAntoraModuleDirUncached(projectBasePath, fileBaseDir));
+    // all Antora directories are found within a module, so there is no need to walk the tree again if there is no module
+    antoraPartials = antora(() -> AsciiDocUtil.findAntoraPartialsUncached(projectBasePath, fileBaseDir));
+    antoraAttachmentsDir = antora(() -> AsciiDocUtil.findAntoraAttachmentsDirUncached(projectBasePath, fileBaseDir));
+    antoraPagesDir = antora(() -> AsciiDocUtil.findAntoraPagesDirUncached(projectBasePath, fileBaseDir));
+    antoraImagesDir = antora(() -> AsciiDocUtil.findAntoraImagesDirUncached(projectBasePath, fileBaseDir));
+    antoraExamplesDir = antora(() -> AsciiDocUtil.findAntoraExamplesDirUncached(projectBasePath, fileBaseDir));
+    antoraImagesDirRelative = antora(() -> AsciiDocUtil.findAntoraImagesDirRelativeUncached(projectBasePath, fileBaseDir));
+    antoraAttachmentsDirRelative = antora(() -> AsciiDocUtil.findAntoraAttachmentsDirRelativeUncached(projectBasePath, fileBaseDir));
+    springRestDocSnippets = new Value<>(() -> AsciiDocUtil.findSpringRestDocSnippetsUncached(projectBasePath, fileBaseDir));
+  }
+
+  private <T> Value<T> antora(Supplier<T> supplier) {
+    return new Value<>(() -> antoraModuleDir.get() != null ? supplier.get() : null);
+  }
+
+  /**
+   * Context for the given directory. Needs to be called within a read action.
+   */
+  @NotNull
+  static AsciiDocDirectoryContext of(@Nullable VirtualFile projectBasePath, @Nullable VirtualFile fileBaseDir) {
+    long modificationCount = VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS.getModificationCount();
+    if (projectBasePath == null || fileBaseDir == null || !fileBaseDir.isValid()) {
+      // nothing to attach the context to, use a throw-away context
+      return new AsciiDocDirectoryContext(projectBasePath, fileBaseDir, modificationCount);
+    }
+    AsciiDocDirectoryContext context = fileBaseDir.getUserData(KEY);
+    if (context == null || context.modificationCount != modificationCount || !projectBasePath.equals(context.projectBasePath)) {
+      context = new AsciiDocDirectoryContext(projectBasePath, fileBaseDir, modificationCount);
+      fileBaseDir.putUserData(KEY, context);
+    }
+    return context;
+  }
+
+  @Nullable
+  VirtualFile getAntoraModuleDir() {
+    return antoraModuleDir.get();
+  }
+
+  @Nullable
+  VirtualFile getAntoraPartials() {
+    return antoraPartials.get();
+  }
+
+  @Nullable
+  VirtualFile getAntoraAttachmentsDir() {
+    return antoraAttachmentsDir.get();
+  }
+
+  @Nullable
+  VirtualFile getAntoraPagesDir() {
+    return antoraPagesDir.get();
+  }
+
+  @Nullable
+  VirtualFile getAntoraImagesDir() {
+    return antoraImagesDir.get();
+  }
+
+  @Nullable
+  VirtualFile getAntoraExamplesDir() {
+    return antoraExamplesDir.get();
+  }
+
+  @Nullable
+  String getAntoraImagesDirRelative() {
+    return antoraImagesDirRelative.get();
+  }
+
+  @Nullable
+  String getAntoraAttachmentsDirRelative() {
+    return antoraAttachmentsDirRelative.get();
+  }
+
+  @Nullable
+  VirtualFile getSpringRestDocSnippets() {
+    return springRestDocSnippets.get();
+  }
+
+}
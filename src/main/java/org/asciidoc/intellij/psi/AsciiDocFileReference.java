@@ -3,12 +3,15 @@ package org.asciidoc.intellij.psi;
 import com.intellij.codeInsight.AutoPopupController;
 import com.intellij.codeInsight.completion.CompletionUtilCore;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Iconable;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.SystemInfo;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiElementResolveResult;
@@ -19,6 +22,10 @@ import com.intellij.psi.PsiPolyVariantReference;
 import com.intellij.psi.PsiReferenceBase;
 import com.intellij.psi.ResolveResult;
 import com.intellij.psi.impl.source.resolve.reference.impl.providers.FileInfoManager;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiUtilCore;
 import com.intellij.util.CommonProcessors;
 import com.intellij.util.IncorrectOperationException;
@@ -35,9 +42,13 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -47,6 +58,10 @@ import static org.asciidoc.intellij.psi.AsciiDocUtil.ATTRIBUTES;
 import static org.asciidoc.intellij.psi.AsciiDocUtil.URL_PREFIX_PATTERN;
 
 public class AsciiDocFileReference extends PsiReferenceBase<PsiElement> implements PsiPolyVariantReference {
+  private static final Logger LOG = Logger.getInstance(AsciiDocFileReference.class);
+  private static final Key<CachedValue<Map<String, ResolveResult[]>>> RESOLVE_CACHE = Key.create("asciidoc.fileReferenceResolveCache");
+  private static final AtomicLong HITS = new AtomicLong();
+  private static final AtomicLong MISSES = new AtomicLong();
   private static final int MAX_DEPTH = 10;
   /**
    * Detects strings that resemble URIs.
@@ -171,14 +186,45 @@ public class AsciiDocFileReference extends PsiReferenceBase<PsiElement> implemen
     key = element.getText().substring(textRange.getStartOffset(), textRange.getEndOffset());
   }
 
+  /**
+   * Resolve results of the references of an element, by a key describing the reference.
+   * Resolving needs to expand attributes against all declarations of the project, and the same reference is resolved
+   * by highlighting, inspections, find usages and when collecting block IDs. References are created anew
+   * each time they are requested from their element, therefore the results are kept on the element.
+   * They are discarded on any PSI modification, and on any change to the structure of the virtual file system.
+   */
   @NotNull
   @Override
   public ResolveResult[] multiResolve(boolean incompleteCode) {
+    Map<String, ResolveResult[]> cache = CachedValuesManager.getCachedValue(myElement, RESOLVE_CACHE,
+      () -> CachedValueProvider.Result.create(new ConcurrentHashMap<String, ResolveResult[]>(),
+        PsiModificationTracker.MODIFICATION_COUNT, VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS));
+    String cacheKey = macroName + ":" + base + ":" + key + ":" + getRangeInElement().getStartOffset()
+      + ":" + isAnchor + ":" + isFolder + ":" + isAntora;
+    ResolveResult[] results = cache.get(cacheKey);
+    if (results != null) {
+      logStatistics(HITS.incrementAndGet(), MISSES.get());
+      return results;
+    }
+    logStatistics(HITS.get(), MISSES.incrementAndGet());
+    results = multiResolveUncached();
+    cache.put(cacheKey, results);
+    return results;
+  }
+
+  private static void logStatistics(long hits, long misses) {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("file reference resolve cache: " + hits + " hits, " + misses + " misses, hit rate "
+        + (hits * 100 / Math.max(1, hits + misses)) + "%");
+    }
+  }
+
+  private ResolveResult[] multiResolveUncached() {
     List<ResolveResult> results = new ArrayList<>();
     if (isAnchor) {
       return multiResolveAnchor(false);
     }
-    resolve(base + key, results, 0);
+    resolve(base + key, results);
     return results.toArray(new ResolveResult[0]);
   }
 
@@ -187,8 +233,12 @@ public class AsciiDocFileReference extends PsiReferenceBase<PsiElement> implemen
     List<ResolveResult> fileResult = new ArrayList<>();
     if (base.equals("#") || base.length() == 0) {
       fileResult.add(new PsiElementResolveResult(myElement.getContainingFile()));
+      // the anchor might be declared in a different part of the documents including this file
+      for (AsciiDocFile rootDocument : AsciiDocUtil.findRootDocuments(myElement.getContainingFile())) {
+        fileResult.add(new PsiElementResolveResult(rootDocument));
+      }
     } else {
-      resolve(base.substring(0, base.length() - 1), fileResult, 0);
+      resolve(base.substring(0, base.length() - 1), fileResult);
     }
     List<LookupElementBuilder> items = new ArrayList<>();
     for (ResolveResult resolveResult : fileResult) {
@@ -197,35 +247,21 @@ public class AsciiDocFileReference extends PsiReferenceBase<PsiElement> implemen
         AsciiDocUtil.findBlockIds(items, element, 0);
       }
     }
-    multiResolveAnchor(items, key, results, ignoreCase, 0);
-    return results.toArray(new ResolveResult[0]);
-  }
-
-  private void multiResolveAnchor(List<LookupElementBuilder> items, String key, List<ResolveResult> results, boolean ignoreCase, int depth) {
-    if (depth > 10) {
-      return;
-    }
-    Matcher matcher = ATTRIBUTES.matcher(key);
-    if (matcher.find()) {
-      String attributeName = matcher.group(1);
-      List<AttributeDeclaration> declarations = AsciiDocUtil.findAttributes(myElement.getProject(), attributeName, myElement);
-      Set<String> searched = new HashSet<>(declarations.size());
-      for (AttributeDeclaration decl : declarations) {
-        String value = decl.getAttributeValue();
-        if (value == null) {
-          continue;
-        }
-        if (searched.contains(value)) {
-          continue;
-        }
-        searched.add(value);
-        multiResolveAnchor(items, matcher.replaceFirst(Matcher.quoteReplacement(value)), results, ignoreCase, depth + 1);
-      }
-      if (results.size() > 0) {
-        return;
+    if (ATTRIBUTES.matcher(key).find()) {
+      AttributeExpander expander = createExpander(false);
+      for (String expanded : expander.expand(key)) {
+        multiResolveAnchor(items, expanded, results, ignoreCase);
       }
+      logBudgetExhausted(expander, key);
+    }
+    if (results.size() == 0) {
       // if not found, try to match it with a block ID that has the attributes unreplaced
+      multiResolveAnchor(items, key, results, ignoreCase);
     }
+    return results.toArray(new ResolveResult[0]);
+  }
+
+  private void multiResolveAnchor(List<LookupElementBuilder> items, String key, List<ResolveResult> results, boolean ignoreCase) {
     for (LookupElementBuilder item : items) {
       PsiElement element = item.getPsiElement();
       if (ignoreCase) {
@@ -338,77 +374,95 @@ public class AsciiDocFileReference extends PsiReferenceBase<PsiElement> implemen
     return Collections.singletonList(key);
   }
 
-  private void resolve(String key, List<ResolveResult> results, int depth) {
+  private void resolve(String key, List<ResolveResult> results) {
     List<String> keys = Collections.singletonList(key);
     if (ANTORA_SUPPORTED.contains(macroName)) {
-      if (depth == 0) {
-        Matcher urlMatcher = URL_PREFIX_PATTERN.matcher(key);
-        if (!urlMatcher.find()) {
-          if (AsciiDocUtil.ANTORA_PREFIX_PATTERN.matcher(key).matches()) {
-            VirtualFile antoraModuleDir = AsciiDocUtil.findAntoraModuleDir(myElement);
-            if (antoraModuleDir != null) {
-              String resolvedKey = AsciiDocUtil.resolveAttributes(myElement, key);
-              if (resolvedKey != null) {
-                List<VirtualFile> virtualFiles = AsciiDocUtil.resolvePrefix(myElement.getProject(), antoraModuleDir, resolvedKey);
-                for (VirtualFile virtualFile : virtualFiles) {
-                  PsiElement psiFile = PsiManager.getInstance(myElement.getProject()).findDirectory(virtualFile);
-                  if (psiFile != null) {
-                    results.add(new PsiElementResolveResult(psiFile));
-                  }
-                }
-                if (virtualFiles.size() > 0) {
-                  return;
+      Matcher urlMatcher = URL_PREFIX_PATTERN.matcher(key);
+      if (!urlMatcher.find()) {
+        if (AsciiDocUtil.ANTORA_PREFIX_PATTERN.matcher(key).matches()) {
+          VirtualFile antoraModuleDir = AsciiDocUtil.findAntoraModuleDir(myElement);
+          if (antoraModuleDir != null) {
+            String resolvedKey = AsciiDocUtil.resolveAttributes(myElement, key);
+            if (resolvedKey != null) {
+              List<VirtualFile> virtualFiles = AsciiDocUtil.resolvePrefix(myElement.getProject(), antoraModuleDir, resolvedKey);
+              for (VirtualFile virtualFile : virtualFiles) {
+                PsiElement psiFile = PsiManager.getInstance(myElement.getProject()).findDirectory(virtualFile);
+                if (psiFile != null) {
+                  results.add(new PsiElementResolveResult(psiFile));
                 }
               }
+              if (virtualFiles.size() > 0) {
+                return;
+              }
             }
-          } else {
-            keys = handleAntora(key);
           }
+        } else {
+          keys = handleAntora(key);
         }
       }
     }
-    if (depth > MAX_DEPTH) {
-      return;
-    }
     for (String k : keys) {
       int c = results.size();
-      resolveAttributes(k, results, depth);
-      if (results.size() == c && "image".equals(macroName) && k.equals(key) && depth == 0) {
-        resolveAttributes("{imagesdir}/" + k, results, depth);
+      resolveAttributes(k, results);
+      if (results.size() == c && "image".equals(macroName) && k.equals(key)) {
+        resolveAttributes("{imagesdir}/" + k, results);
       }
     }
   }
 
-  private void resolveAttributes(String key, List<ResolveResult> results, int depth) {
-    Matcher matcher = ATTRIBUTES.matcher(key);
-    if (matcher.find()) {
-      String attributeName = matcher.group(1);
-      List<AttributeDeclaration> declarations = AsciiDocUtil.findAttributes(myElement.getProject(), attributeName, myElement);
-      Set<String> searched = new HashSet<>(declarations.size());
-      for (AttributeDeclaration decl : declarations) {
-        String value = decl.getAttributeValue();
-        if (value == null) {
-          continue;
-        }
-        if (searched.contains(value)) {
-          continue;
+  private void resolveAttributes(String key, List<ResolveResult> results) {
+    if (!ATTRIBUTES.matcher(key).find()) {
+      resolveExpanded(key, results);
+      return;
+    }
+    AttributeExpander expander = createExpander(true);
+    for (String expanded : expander.expand(key)) {
+      resolveExpanded(expanded, results);
+    }
+    logBudgetExhausted(expander, key);
+  }
+
+  /**
+   * Expander for attributes in this reference's key.
+   *
+   * @param isPath if the key is a path, then directories are checked before expanding further attributes
+   */
+  private AttributeExpander createExpander(boolean isPath) {
+    return new AttributeExpander(
+      attributeName -> {
+        List<AttributeDeclaration> declarations = AsciiDocUtil.findAttributes(myElement.getProject(), attributeName, myElement);
+        Set<String> values = new LinkedHashSet<>(declarations.size());
+        for (AttributeDeclaration decl : declarations) {
+          String value = decl.getAttributeValue();
+          if (value != null) {
+            values.add(value);
+          }
         }
-        searched.add(value);
-        resolve(matcher.replaceFirst(Matcher.quoteReplacement(value)), results, depth + 1);
-      }
-    } else {
-      PsiElement file = resolve(key);
+        return values;
+      },
+      isPath ? directory -> directory.contains(":") || resolve(directory) != null : directory -> true,
+      MAX_DEPTH, AttributeExpander.DEFAULT_BUDGET);
+  }
+
+  private void logBudgetExhausted(AttributeExpander expander, String key) {
+    if (expander.isBudgetExhausted() && LOG.isDebugEnabled()) {
+      LOG.debug("attribute expansion budget of " + AttributeExpander.DEFAULT_BUDGET + " exhausted for '" + key + "' in "
+        + myElement.getContainingFile().getName() + ", results are incomplete");
+    }
+  }
+
+  private void resolveExpanded(String key, List<ResolveResult> results) {
+    PsiElement file = resolve(key);
+    if (file != null) {
+      results.add(new PsiElementResolveResult(file));
+    } else if ("link".endsWith(macroName) || "xref".endsWith(macroName) || macroName.equals("xref-attr") || "<<".equals(macroName)) {
+      file = resolve(key + ".adoc");
       if (file != null) {
         results.add(new PsiElementResolveResult(file));
-      } else if ("link".endsWith(macroName) || "xref".endsWith(macroName) || macroName.equals("xref-attr") || "<<".equals(macroName)) {
-        file = resolve(key + ".adoc");
+      } else if (key.endsWith(".html")) {
+        file = resolve(key.replaceAll("\\.html$", ".adoc"));
         if (file != null) {
           results.add(new PsiElementResolveResult(file));
-        } else if (key.endsWith(".html")) {
-          file = resolve(key.replaceAll("\\.html$", ".adoc"));
-          if (file != null) {
-            results.add(new PsiElementResolveResult(file));
-          }
         }
       }
     }
@@ -511,9 +565,9 @@ public class AsciiDocFileReference extends PsiReferenceBase<PsiElement> implemen
 
     List<ResolveResult> results = new ArrayList<>();
     if (base.endsWith("/") || base.length() == 0) {
-      resolve(base + "..", results, 0);
+      resolve(base + "..", results);
     } else {
-      resolve(base + "/..", results, 0);
+      resolve(base + "/..", results);
     }
     for (ResolveResult result : results) {
       if (result.getElement() == null) {
@@ -552,7 +606,7 @@ public class AsciiDocFileReference extends PsiReferenceBase<PsiElement> implemen
         continue;
       }
       searched.add(key);
-      resolve(val + decl.getAttributeValue(), res, 0);
+      resolve(val + decl.getAttributeValue(), res);
       for (ResolveResult result : res) {
         if (result.getElement() == null) {
           continue;
@@ -605,7 +659,7 @@ public class AsciiDocFileReference extends PsiReferenceBase<PsiElement> implemen
     if (base.length() > 1) {
       // if a file has been specified, show anchors from that file
       List<ResolveResult> fileResult = new ArrayList<>();
-      resolve(base.substring(0, base.length() - 1), fileResult, 0);
+      resolve(base.substring(0, base.length() - 1), fileResult);
       for (ResolveResult resolveResult : fileResult) {
         PsiElement element = resolveResult.getElement();
         if (element instanceof AsciiDocFile) {
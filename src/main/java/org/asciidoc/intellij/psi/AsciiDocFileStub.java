@@ -0,0 +1,40 @@
+package org.asciidoc.intellij.psi;
+
+import com.intellij.psi.stubs.PsiFileStub;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Stub of an AsciiDoc file. In addition to the block IDs and sections in its children, it holds the targets of
+ * all includes of the file, so that the files it includes can be found without parsing it.
+ */
+public interface AsciiDocFileStub extends PsiFileStub<AsciiDocFile> {
+  @NotNull
+  List<Include> getIncludes();
+
+  /**
+   * Target of an <code>include::[]</code> block macro as written in the file, attributes are not resolved.
+   */
+  final class Include {
+    private final int offset;
+    private final String target;
+
+    public Include(int offset, @NotNull String target) {
+      this.offset = offset;
+      this.target = target;
+    }
+
+    /**
+     * Offset of the target within the file.
+     */
+    public int getOffset() {
+      return offset;
+    }
+
+    @NotNull
+    public String getTarget() {
+      return target;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package org.asciidoc.intellij.psi;
+
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.stubs.PsiFileStubImpl;
+import com.intellij.psi.tree.IStubFileElementType;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.asciidoc.intellij.parser.AsciiDocElementTypes;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class AsciiDocFileStubImpl extends PsiFileStubImpl<AsciiDocFile> implements AsciiDocFileStub {
+  private final List<Include> includes;
+
+  public AsciiDocFileStubImpl(@Nullable AsciiDocFile file, @NotNull List<Include> includes) {
+    super(file);
+    this.includes = Collections.unmodifiableList(includes);
+  }
+
+  /**
+   * Create the stub for a file, collecting the targets of all its includes.
+   */
+  @NotNull
+  public static AsciiDocFileStubImpl create(@NotNull AsciiDocFile file) {
+    List<Include> includes = new ArrayList<>();
+    for (AsciiDocBlockMacro macro : PsiTreeUtil.findChildrenOfType(file, AsciiDocBlockMacro.class)) {
+      if (!"include".equals(macro.getMacroName())) {
+        continue;
+      }
+      TextRange range = AsciiDocBlockMacro.getRangeOfBody(macro);
+      if (!range.isEmpty()) {
+        includes.add(new Include(macro.getTextRange().getStartOffset() + range.getStartOffset(), range.substring(macro.getText())));
+      }
+    }
+    return new AsciiDocFileStubImpl(file, includes);
+  }
+
+  @NotNull
+  @Override
+  public List<Include> getIncludes() {
+    return includes;
+  }
+
+  @Override
+  public IStubFileElementType getType() {
+    return (IStubFileElementType) AsciiDocElementTypes.FILE;
+  }
+}
@@ -0,0 +1,445 @@
+package org.asciidoc.intellij.psi;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiTreeAnyChangeAbstractAdapter;
+import org.asciidoc.intellij.file.AsciiDocFileType;
+import org.asciidoc.intellij.indexer.AsciiDocIncludeIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Include relations between the AsciiDoc files of a project.
+ * Files including a file are found via the {@link AsciiDocIncludeIndex}; the candidates from the index are confirmed
+ * by resolving their includes. All results, including the transitive closures, are cached.
+ * <p>
+ * When a file changes, it is marked as dirty. When files are created, deleted, moved or renamed, the files that might
+ * include them by name are marked as dirty. Before the next query, the includes of each dirty file are resolved again.
+ * Only if they changed, the relations and closures that contain the file or the files it includes are dropped.
+ * Queries between changes are map lookups.
+ * <p>
+ * All methods need to be called within a read action and outside of dumb mode.
+ */
+public class AsciiDocIncludeGraph implements Disposable {
+
+  private final Project project;
+
+  private final Map<VirtualFile, Set<VirtualFile>> includes = new ConcurrentHashMap<>();
+  private final Map<VirtualFile, Set<VirtualFile>> includedBy = new ConcurrentHashMap<>();
+  private final Map<VirtualFile, Set<VirtualFile>> includesClosure = new ConcurrentHashMap<>();
+  private final Map<VirtualFile, Set<VirtualFile>> includedByClosure = new ConcurrentHashMap<>();
+  private final Map<VirtualFile, Set<VirtualFile>> rootDocuments = new ConcurrentHashMap<>();
+
+  private final Set<VirtualFile> dirtyFiles = ConcurrentHashMap.newKeySet();
+  private final Set<String> dirtyNames = ConcurrentHashMap.newKeySet();
+  private volatile boolean dirtyAll;
+
+  /**
+   * Incremented each time cached relations are dropped. A relation computed while this changed is not cached.
+   */
+  private volatile long version;
+
+  public AsciiDocIncludeGraph(@NotNull Project project) {
+    this.project = project;
+    PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeAnyChangeAbstractAdapter() {
+      @Override
+      protected void onChange(@Nullable PsiFile file) {
+        if (file instanceof AsciiDocFile && file.isPhysical()) {
+          VirtualFile virtualFile = file.getVirtualFile();
+          if (virtualFile != null) {
+            dirtyFiles.add(virtualFile);
+          }
+        }
+      }
+    }, this);
+    project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          fileChanged(event);
+        }
+      }
+    });
+  }
+
+  public static AsciiDocIncludeGraph getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, AsciiDocIncludeGraph.class);
+  }
+
+  @Override
+  public void dispose() {
+  }
+
+  private void fileChanged(VFileEvent event) {
+    if (event instanceof VFileContentChangeEvent) {
+      VirtualFile file = ((VFileContentChangeEvent) event).getFile();
+      if (isAsciiDoc(file.getName())) {
+        dirtyFiles.add(file);
+      }
+      return;
+    }
+    if (event instanceof VFilePropertyChangeEvent && !((VFilePropertyChangeEvent) event).isRename()) {
+      return;
+    }
+    VirtualFile file = event.getFile();
+    if (event instanceof VFileCreateEvent ? ((VFileCreateEvent) event).isDirectory() : file != null && file.isDirectory()) {
+      VirtualFile parent = event instanceof VFileCreateEvent ? ((VFileCreateEvent) event).getParent() : file.getParent();
+      // the paths of all files below the directory change, don't try to track them individually;
+      // ignore directories outside of the content like build output
+      if (parent == null || ProjectFileIndex.getInstance(project).isInContent(parent)) {
+        dirtyAll = true;
+      }
+      return;
+    }
+    if (event instanceof VFileCreateEvent) {
+      addDirtyName(((VFileCreateEvent) event).getChildName());
+    } else if (event instanceof VFileCopyEvent) {
+      addDirtyName(((VFileCopyEvent) event).getNewChildName());
+    } else if (file != null) {
+      // deleted, moved or renamed: both the file's own includes and the files including it might change
+      if (event instanceof VFilePropertyChangeEvent) {
+        addDirtyName(String.valueOf(((VFilePropertyChangeEvent) event).getOldValue()));
+      }
+      if (addDirtyName(file.getName())) {
+        dirtyFiles.add(file);
+      }
+    }
+  }
+
+  private boolean addDirtyName(String name) {
+    // only AsciiDoc files are part of the graph
+    if (isAsciiDoc(name)) {
+      dirtyNames.add(name);
+      return true;
+    }
+    return false;
+  }
+
+  private static boolean isAsciiDoc(String name) {
+    return FileTypeManager.getInstance().getFileTypeByFileName(name) == AsciiDocFileType.INSTANCE;
+  }
+
+  /**
+   * Files the given file includes directly.
+   */
+  @NotNull
+  public Set<VirtualFile> getIncludedFiles(@NotNull VirtualFile file) {
+    processChanges();
+    return includedFiles(file);
+  }
+
+  /**
+   * Files that include the given file directly.
+   */
+  @NotNull
+  public Set<VirtualFile> getIncludingFiles(@NotNull VirtualFile file) {
+    processChanges();
+    return includingFiles(file);
+  }
+
+  /**
+   * Files the given file includes directly or via other includes, in the order they are included.
+   * Doesn't contain the file itself unless it includes itself.
+   */
+  @NotNull
+  public Set<VirtualFile> getIncludedFilesTransitively(@NotNull VirtualFile file) {
+    processChanges();
+    return includedFilesTransitively(file);
+  }
+
+  /**
+   * Files that include the given file directly or via other includes. Doesn't contain the file itself unless it includes itself.
+   */
+  @NotNull
+  public Set<VirtualFile> getIncludingFilesTransitively(@NotNull VirtualFile file) {
+    processChanges();
+    return includingFilesTransitively(file);
+  }
+
+  /**
+   * Documents that include the given file directly or via other includes, and that are not included themselves.
+   * A file that is not included anywhere is its own root document.
+   * If the file is only included as part of a cycle of includes, the files in the cycle are returned.
+   */
+  @NotNull
+  public Set<VirtualFile> getRootDocuments(@NotNull VirtualFile file) {
+    processChanges();
+    Set<VirtualFile> result = rootDocuments.get(file);
+    if (result == null) {
+      long stamp = version;
+      result = new LinkedHashSet<>();
+      Set<VirtualFile> including = includingFilesTransitively(file);
+      for (VirtualFile candidate : including) {
+        if (includingFiles(candidate).isEmpty()) {
+          result.add(candidate);
+        }
+      }
+      if (result.isEmpty()) {
+        if (including.isEmpty()) {
+          result.add(file);
+        } else {
+          result.addAll(including);
+        }
+      }
+      result = Collections.unmodifiableSet(result);
+      cache(rootDocuments, file, result, stamp);
+    }
+    return result;
+  }
+
+  /**
+   * Files that make up the documents the given file is part of: its root documents and all files they include.
+   */
+  @NotNull
+  public Set<VirtualFile> getDocumentFiles(@NotNull VirtualFile file) {
+    Set<VirtualFile> result = new HashSet<>();
+    for (VirtualFile root : getRootDocuments(file)) {
+      result.add(root);
+      result.addAll(includedFilesTransitively(root));
+    }
+    result.add(file);
+    return result;
+  }
+
+  private Set<VirtualFile> includedFiles(VirtualFile file) {
+    Set<VirtualFile> result = includes.get(file);
+    if (result == null) {
+      long stamp = version;
+      result = resolveIncludes(file);
+      cache(includes, file, result, stamp);
+    }
+    return result;
+  }
+
+  private Set<VirtualFile> resolveIncludes(VirtualFile file) {
+    Set<VirtualFile> result = new LinkedHashSet<>();
+    if (file.isValid()) {
+      PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+      if (psiFile instanceof AsciiDocFile) {
+        for (AsciiDocFile included : AsciiDocUtil.findDirectlyIncludedFiles((AsciiDocFile) psiFile)) {
+          VirtualFile virtualFile = included.getVirtualFile();
+          if (virtualFile != null) {
+            result.add(virtualFile);
+          }
+        }
+      }
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+  private Set<VirtualFile> includingFiles(VirtualFile file) {
+    Set<VirtualFile> result = includedBy.get(file);
+    if (result == null) {
+      long stamp = version;
+      result = new LinkedHashSet<>();
+      for (VirtualFile candidate : AsciiDocIncludeIndex.findIncludingCandidates(project, file.getName())) {
+        if (includedFiles(candidate).contains(file)) {
+          result.add(candidate);
+        }
+      }
+      result = Collections.unmodifiableSet(result);
+      cache(includedBy, file, result, stamp);
+    }
+    return result;
+  }
+
+  private Set<VirtualFile> includedFilesTransitively(VirtualFile file) {
+    Set<VirtualFile> result = includesClosure.get(file);
+    if (result == null) {
+      long stamp = version;
+      // depth first, so that the files are listed in the order they are included
+      result = new LinkedHashSet<>();
+      Deque<VirtualFile> stack = new ArrayDeque<>();
+      pushReversed(stack, includedFiles(file));
+      while (!stack.isEmpty()) {
+        VirtualFile current = stack.pop();
+        if (result.add(current)) {
+          pushReversed(stack, includedFiles(current));
+        }
+      }
+      result = Collections.unmodifiableSet(result);
+      cache(includesClosure, file, result, stamp);
+    }
+    return result;
+  }
+
+  private static void pushReversed(Deque<VirtualFile> stack, Set<VirtualFile> files) {
+    List<VirtualFile> list = new ArrayList<>(files);
+    for (int i = list.size() - 1; i >= 0; --i) {
+      stack.push(list.get(i));
+    }
+  }
+
+  private Set<VirtualFile> includingFilesTransitively(VirtualFile file) {
+    Set<VirtualFile> result = includedByClosure.get(file);
+    if (result == null) {
+      long stamp = version;
+      result = new LinkedHashSet<>();
+      Deque<VirtualFile> queue = new ArrayDeque<>();
+      queue.add(file);
+      while (!queue.isEmpty()) {
+        VirtualFile current = queue.poll();
+        for (VirtualFile next : includingFiles(current)) {
+          if (result.add(next)) {
+            queue.add(next);
+          }
+        }
+      }
+      result = Collections.unmodifiableSet(result);
+      cache(includedByClosure, file, result, stamp);
+    }
+    return result;
+  }
+
+  private void cache(Map<VirtualFile, Set<VirtualFile>> map, VirtualFile file, Set<VirtualFile> value, long stamp) {
+    synchronized (this) {
+      // don't keep a result that might have been computed from relations dropped in the meantime
+      if (stamp == version) {
+        map.put(file, value);
+      }
+    }
+  }
+
+  private void processChanges() {
+    if (!dirtyAll && dirtyFiles.isEmpty() && dirtyNames.isEmpty()) {
+      return;
+    }
+    if (dirtyAll) {
+      synchronized (this) {
+        if (dirtyAll) {
+          dirtyAll = false;
+          dirtyFiles.clear();
+          dirtyNames.clear();
+          ++version;
+          includes.clear();
+          includedBy.clear();
+          includesClosure.clear();
+          includedByClosure.clear();
+          rootDocuments.clear();
+          return;
+        }
+      }
+    }
+    // resolve the includes of the dirty files without holding the lock, as this reads from the index and parses files
+    Set<String> names = drain(dirtyNames);
+    Set<VirtualFile> files = drain(dirtyFiles);
+    Map<VirtualFile, Set<VirtualFile>> resolved = new HashMap<>();
+    boolean complete = false;
+    try {
+      for (String name : names) {
+        files.addAll(AsciiDocIncludeIndex.findIncludingCandidates(project, name));
+      }
+      for (VirtualFile file : files) {
+        resolved.put(file, resolveIncludes(file));
+      }
+      complete = true;
+    } finally {
+      if (!complete) {
+        // cancelled or failed: process the changes again with the next query
+        dirtyNames.addAll(names);
+        dirtyFiles.addAll(files);
+      }
+    }
+    if (resolved.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      ++version;
+      for (Map.Entry<VirtualFile, Set<VirtualFile>> entry : resolved.entrySet()) {
+        VirtualFile file = entry.getKey();
+        Set<VirtualFile> after = entry.getValue();
+        Set<VirtualFile> before = file.isValid() ? includes.put(file, after) : includes.get(file);
+        if (before != null && before.equals(after) && file.isValid()) {
+          continue;
+        }
+        Set<VirtualFile> changed = new HashSet<>();
+        changed.add(file);
+        if (before != null) {
+          changed.addAll(before);
+        }
+        changed.addAll(after);
+        dropRelations(file, changed);
+      }
+      ++version;
+    }
+  }
+
+  /**
+   * Drop all relations that depend on the includes of the file.
+   *
+   * @param file    file whose includes changed
+   * @param changed the file itself, and the files it included before and after the change
+   */
+  private void dropRelations(VirtualFile file, Set<VirtualFile> changed) {
+    if (!file.isValid()) {
+      includes.remove(file);
+      includedBy.remove(file);
+    }
+    for (VirtualFile target : changed) {
+      includedBy.remove(target);
+    }
+    // a file including the changed file transitively includes different files now
+    removeIf(includesClosure, changed, file);
+    // a file reachable from the changed file or one of its targets is included by different files now;
+    // this also changes its root documents
+    for (Iterator<Map.Entry<VirtualFile, Set<VirtualFile>>> iterator = includedByClosure.entrySet().iterator(); iterator.hasNext(); ) {
+      Map.Entry<VirtualFile, Set<VirtualFile>> entry = iterator.next();
+      if (changed.contains(entry.getKey()) || containsAny(entry.getValue(), changed)) {
+        rootDocuments.remove(entry.getKey());
+        iterator.remove();
+      }
+    }
+    for (VirtualFile target : changed) {
+      rootDocuments.remove(target);
+    }
+  }
+
+  private static void removeIf(Map<VirtualFile, Set<VirtualFile>> closures, Set<VirtualFile> keys, VirtualFile member) {
+    closures.entrySet().removeIf(entry -> keys.contains(entry.getKey()) || entry.getValue().contains(member));
+  }
+
+  private static boolean containsAny(Set<VirtualFile> set, Set<VirtualFile> candidates) {
+    for (VirtualFile candidate : candidates) {
+      if (set.contains(candidate)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static <T> Set<T> drain(Set<T> set) {
+    Set<T> result = new HashSet<>();
+    for (Iterator<T> iterator = set.iterator(); iterator.hasNext(); ) {
+      result.add(iterator.next());
+      iterator.remove();
+    }
+    return result;
+  }
+
+}
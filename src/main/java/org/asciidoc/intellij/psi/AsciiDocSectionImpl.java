@@ -6,6 +6,7 @@ import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiElementVisitor;
 import com.intellij.psi.stubs.IStubElementType;
+import com.intellij.psi.stubs.StubElement;
 import com.intellij.psi.tree.TokenSet;
 import icons.AsciiDocIcons;
 import org.asciidoc.intellij.inspections.AsciiDocVisitor;
@@ -91,6 +92,18 @@ public class AsciiDocSectionImpl extends AsciiDocSectionStubElementImpl<AsciiDoc
   @Nullable
   @Override
   public AsciiDocBlockId getBlockId() {
+    final AsciiDocSectionStub stub = getGreenStub();
+    if (stub != null) {
+      if (!stub.hasBlockId()) {
+        return null;
+      }
+      // the section's own ID is in front of its heading, and therefore the first ID in the section
+      for (StubElement<?> childStub : stub.getChildrenStubs()) {
+        if (childStub instanceof AsciiDocBlockIdStub) {
+          return ((AsciiDocBlockIdStub) childStub).getPsi();
+        }
+      }
+    }
     ASTNode child = this.getNode().getFirstChildNode();
     while (child != null) {
       if (child.getElementType() == AsciiDocElementTypes.BLOCKID) {
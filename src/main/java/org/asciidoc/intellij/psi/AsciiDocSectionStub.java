@@ -4,4 +4,9 @@ import com.intellij.psi.stubs.StubElement;
 
 public interface AsciiDocSectionStub extends StubElement<AsciiDocSectionImpl> {
   String getTitle();
+
+  /**
+   * If the section has its own block ID, and therefore no autogenerated ID.
+   */
+  boolean hasBlockId();
 }
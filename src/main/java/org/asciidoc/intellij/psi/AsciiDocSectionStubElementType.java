@@ -45,7 +45,7 @@ public class AsciiDocSectionStubElementType extends IStubElementType<AsciiDocSec
   @NotNull
   @Override
   public AsciiDocSectionStub createStub(@NotNull AsciiDocSection psi, StubElement parentStub) {
-    return new AsciiDocSectionStubImpl(parentStub, psi.getTitle());
+    return new AsciiDocSectionStubImpl(parentStub, psi.getTitle(), psi.getBlockId() != null);
   }
 
   @NotNull
@@ -57,6 +57,7 @@ public class AsciiDocSectionStubElementType extends IStubElementType<AsciiDocSec
   @Override
   public void serialize(@NotNull AsciiDocSectionStub stub, @NotNull StubOutputStream dataStream) throws IOException {
     dataStream.writeName(stub.getTitle());
+    dataStream.writeBoolean(stub.hasBlockId());
   }
 
   @NotNull
@@ -64,8 +65,10 @@ public class AsciiDocSectionStubElementType extends IStubElementType<AsciiDocSec
   public AsciiDocSectionStub deserialize(@NotNull StubInputStream dataStream, StubElement parentStub) throws IOException {
     final StringRef titleRef = dataStream.readName();
     Objects.requireNonNull(titleRef);
+    boolean hasBlockId = dataStream.readBoolean();
     return new AsciiDocSectionStubImpl(parentStub,
-      titleRef.getString()
+      titleRef.getString(),
+      hasBlockId
     );
   }
 
@@ -7,10 +7,12 @@ import org.jetbrains.annotations.NotNull;
 
 public class AsciiDocSectionStubImpl extends StubBase<AsciiDocSectionImpl> implements AsciiDocSectionStub {
   private final String title;
+  private final boolean hasBlockId;
 
-  public AsciiDocSectionStubImpl(StubElement parent, String title) {
+  public AsciiDocSectionStubImpl(StubElement parent, String title, boolean hasBlockId) {
     super(parent, AsciiDocElementTypes.SECTION);
     this.title = title;
+    this.hasBlockId = hasBlockId;
   }
 
   @NotNull
@@ -18,4 +20,9 @@ public class AsciiDocSectionStubImpl extends StubBase<AsciiDocSectionImpl> imple
   public String getTitle() {
     return title;
   }
+
+  @Override
+  public boolean hasBlockId() {
+    return hasBlockId;
+  }
 }
@@ -6,25 +6,40 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.Iconable;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.RecursionManager;
+import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiFileFactory;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiReference;
+import com.intellij.psi.impl.source.PsiFileImpl;
 import com.intellij.psi.impl.source.resolve.reference.impl.providers.FileInfoManager;
-import com.intellij.psi.search.FilenameIndex;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubTree;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.text.CharArrayUtil;
+import icons.AsciiDocIcons;
 import org.asciidoc.intellij.AsciiDoc;
 import org.asciidoc.intellij.AsciiDocLanguage;
+import org.asciidoc.intellij.antora.AntoraComponent;
+import org.asciidoc.intellij.antora.AntoraComponentIndex;
+import org.asciidoc.intellij.antora.AntoraModel;
 import org.intellij.lang.annotations.Language;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -40,6 +55,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -60,6 +76,9 @@ public class AsciiDocUtil {
 
   public static final Set<String> ANTORA_SUPPORTED = new HashSet<>();
 
+  private static final int MAX_INCLUDE_DEPTH = 64;
+  private static final Key<CachedValue<List<AsciiDocFile>>> INCLUDED_FILES = Key.create("asciidoc.includedFiles");
+
   public static final Pattern ATTRIBUTES = Pattern.compile("\\{([a-zA-Z0-9_]+[a-zA-Z0-9_-]*)}");
 
   static {
@@ -116,17 +135,52 @@ public class AsciiDocUtil {
   }
 
   public static void findBlockIds(List<LookupElementBuilder> items, PsiElement element, int level) {
-    if (level > 64) {
+    if (level > MAX_INCLUDE_DEPTH) {
       // avoid endless recursion
       return;
     }
-    Collection<AsciiDocBlockId> properties = PsiTreeUtil.findChildrenOfType(element, AsciiDocBlockId.class);
-    for (AsciiDocBlockId blockId : properties) {
-      final Icon icon = blockId.getParent().getIcon(Iconable.ICON_FLAG_READ_STATUS | Iconable.ICON_FLAG_VISIBILITY);
+    if (element instanceof AsciiDocFile) {
+      // the IDs of files that have not been parsed are read from their stubs
+      for (AsciiDocFile file : findIncludedFiles((AsciiDocFile) element)) {
+        StubTree stubTree = ((PsiFileImpl) file).getStubTree();
+        if (stubTree != null) {
+          List<AsciiDocBlockId> blockIds = new ArrayList<>();
+          List<AsciiDocSection> sections = new ArrayList<>();
+          for (StubElement<?> stub : stubTree.getPlainList()) {
+            if (stub instanceof AsciiDocBlockIdStub) {
+              blockIds.add(((AsciiDocBlockIdStub) stub).getPsi());
+            } else if (stub instanceof AsciiDocSectionStub) {
+              sections.add(((AsciiDocSectionStub) stub).getPsi());
+            }
+          }
+          addBlockIds(items, blockIds, sections, file);
+        } else {
+          addBlockIds(items, PsiTreeUtil.findChildrenOfType(file, AsciiDocBlockId.class),
+            PsiTreeUtil.findChildrenOfType(file, AsciiDocSection.class), file);
+        }
+      }
+      return;
+    }
+    addBlockIds(items, PsiTreeUtil.findChildrenOfType(element, AsciiDocBlockId.class),
+      PsiTreeUtil.findChildrenOfType(element, AsciiDocSection.class), element.getContainingFile());
+    Collection<AsciiDocBlockMacro> includes = PsiTreeUtil.findChildrenOfType(element, AsciiDocBlockMacro.class);
+    for (AsciiDocBlockMacro macro : includes) {
+      if ("include".equals(macro.getMacroName())) {
+        AsciiDocFile resolved = resolveInclude(macro.getReferences());
+        if (resolved != null) {
+          findBlockIds(items, resolved, level + 1);
+        }
+      }
+    }
+  }
+
+  private static void addBlockIds(List<LookupElementBuilder> items, Collection<? extends AsciiDocBlockId> blockIds,
+                                  Collection<? extends AsciiDocSection> sections, PsiFile file) {
+    for (AsciiDocBlockId blockId : blockIds) {
+      final Icon icon = getBlockIdIcon(blockId);
       items.add(FileInfoManager.getFileLookupItem(blockId, blockId.getName(), icon)
-        .withTypeText(element.getContainingFile().getName(), true));
+        .withTypeText(file.getName(), true));
     }
-    Collection<AsciiDocSection> sections = PsiTreeUtil.findChildrenOfType(element, AsciiDocSection.class);
     for (AsciiDocSection section : sections) {
       // element has an ID specified, therefore skip checking the autogenerated ID
       if (section.getBlockId() != null) {
@@ -134,28 +188,133 @@ public class AsciiDocUtil {
       }
       final Icon icon = section.getIcon(Iconable.ICON_FLAG_READ_STATUS | Iconable.ICON_FLAG_VISIBILITY);
       items.add(FileInfoManager.getFileLookupItem(section, section.getAutogeneratedId(), icon)
-        .withTypeText(element.getContainingFile().getName(), true));
+        .withTypeText(file.getName(), true));
     }
-    Collection<AsciiDocBlockMacro> includes = PsiTreeUtil.findChildrenOfType(element, AsciiDocBlockMacro.class);
-    for (AsciiDocBlockMacro macro : includes) {
-      if (!"include".equals(macro.getMacroName())) {
-        continue;
+  }
+
+  private static Icon getBlockIdIcon(AsciiDocBlockId blockId) {
+    if (blockId instanceof AsciiDocBlockIdImpl) {
+      AsciiDocBlockIdStub stub = ((AsciiDocBlockIdImpl) blockId).getGreenStub();
+      if (stub != null) {
+        // take the icon from the stubs to avoid loading the AST; blocks other than sections don't have stubs
+        return stub.getParentStub().getPsi() instanceof AsciiDocSection ? AsciiDocIcons.Structure.SECTION : AsciiDocIcons.Structure.BLOCK;
       }
-      List<PsiReference> references = Arrays.asList(macro.getReferences());
-      Collections.reverse(references);
-      for (PsiReference reference : references) {
-        if (reference instanceof AsciiDocFileReference) {
-          AsciiDocFileReference fileReference = (AsciiDocFileReference) reference;
-          if (!fileReference.isFolder()) {
-            PsiElement resolved = fileReference.resolve();
-            if (resolved instanceof AsciiDocFile) {
-              findBlockIds(items, resolved, level + 1);
-            }
+    }
+    return blockId.getParent().getIcon(Iconable.ICON_FLAG_READ_STATUS | Iconable.ICON_FLAG_VISIBILITY);
+  }
+
+  /**
+   * The file itself and all files it includes, directly or indirectly, in the order they are included.
+   * Each file is listed only once. The includes are taken from the {@link AsciiDocIncludeGraph} of the project.
+   * While indexing, or for files that are not stored on disk, the includes are collected from the file itself,
+   * reading the include targets from the stubs of files that have not been parsed.
+   */
+  @NotNull
+  public static List<AsciiDocFile> findIncludedFiles(@NotNull AsciiDocFile file) {
+    VirtualFile virtualFile = file.getVirtualFile();
+    Project project = file.getProject();
+    if (virtualFile != null && file.isPhysical() && !DumbService.isDumb(project)) {
+      List<AsciiDocFile> result = new ArrayList<>();
+      result.add(file);
+      PsiManager psiManager = PsiManager.getInstance(project);
+      for (VirtualFile included : AsciiDocIncludeGraph.getInstance(project).getIncludedFilesTransitively(virtualFile)) {
+        PsiFile psiFile = psiManager.findFile(included);
+        if (psiFile instanceof AsciiDocFile && psiFile != file) {
+          result.add((AsciiDocFile) psiFile);
+        }
+      }
+      return result;
+    }
+    return CachedValuesManager.getCachedValue(file, INCLUDED_FILES, () -> {
+      Set<AsciiDocFile> result = new LinkedHashSet<>();
+      collectIncludedFiles(file, result, 0);
+      return CachedValueProvider.Result.create(Collections.unmodifiableList(new ArrayList<>(result)),
+        PsiModificationTracker.MODIFICATION_COUNT, VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS);
+    });
+  }
+
+  /**
+   * Documents that include the given file directly or indirectly and are not included themselves,
+   * see {@link AsciiDocIncludeGraph#getRootDocuments(VirtualFile)}. Doesn't contain the file itself.
+   * Empty while indexing, or if the file is not stored on disk.
+   */
+  @NotNull
+  public static List<AsciiDocFile> findRootDocuments(@NotNull PsiFile file) {
+    VirtualFile virtualFile = file.getVirtualFile();
+    Project project = file.getProject();
+    if (virtualFile == null || !file.isPhysical() || DumbService.isDumb(project)) {
+      return Collections.emptyList();
+    }
+    List<AsciiDocFile> result = new ArrayList<>();
+    PsiManager psiManager = PsiManager.getInstance(project);
+    for (VirtualFile root : AsciiDocIncludeGraph.getInstance(project).getRootDocuments(virtualFile)) {
+      PsiFile psiFile = psiManager.findFile(root);
+      if (psiFile instanceof AsciiDocFile && psiFile != file) {
+        result.add((AsciiDocFile) psiFile);
+      }
+    }
+    return result;
+  }
+
+  private static void collectIncludedFiles(AsciiDocFile file, Set<AsciiDocFile> result, int level) {
+    if (level > MAX_INCLUDE_DEPTH || !result.add(file)) {
+      return;
+    }
+    for (AsciiDocFile included : findDirectlyIncludedFiles(file)) {
+      collectIncludedFiles(included, result, level + 1);
+    }
+  }
+
+  /**
+   * Files included by the given file, in the order of their includes. Includes that can't be resolved are skipped.
+   * Files that have not been parsed are not parsed to find their includes, the include targets are taken from their stubs instead.
+   */
+  @NotNull
+  public static List<AsciiDocFile> findDirectlyIncludedFiles(@NotNull AsciiDocFile file) {
+    List<AsciiDocFile> result = new ArrayList<>();
+    StubTree stubTree = ((PsiFileImpl) file).getStubTree();
+    if (stubTree != null && stubTree.getRoot() instanceof AsciiDocFileStub) {
+      String text = file.getText();
+      for (AsciiDocFileStub.Include include : ((AsciiDocFileStub) stubTree.getRoot()).getIncludes()) {
+        TextRange range = TextRange.from(include.getOffset(), include.getTarget().length());
+        if (range.getEndOffset() > text.length() || !include.getTarget().equals(range.substring(text))) {
+          // stub doesn't match the file's content
+          continue;
+        }
+        AsciiDocFile resolved = resolveInclude(AsciiDocBlockMacro.createFileReferences(file, "include", range));
+        if (resolved != null) {
+          result.add(resolved);
+        }
+      }
+    } else {
+      for (AsciiDocBlockMacro macro : PsiTreeUtil.findChildrenOfType(file, AsciiDocBlockMacro.class)) {
+        if ("include".equals(macro.getMacroName())) {
+          AsciiDocFile resolved = resolveInclude(macro.getReferences());
+          if (resolved != null) {
+            result.add(resolved);
           }
-          break;
         }
       }
     }
+    return result;
+  }
+
+  @Nullable
+  private static AsciiDocFile resolveInclude(PsiReference[] references) {
+    // the last file reference is the one for the file, the ones in front of it are for its folders
+    for (int i = references.length - 1; i >= 0; --i) {
+      if (references[i] instanceof AsciiDocFileReference) {
+        AsciiDocFileReference fileReference = (AsciiDocFileReference) references[i];
+        if (!fileReference.isFolder()) {
+          PsiElement resolved = fileReference.resolve();
+          if (resolved instanceof AsciiDocFile) {
+            return (AsciiDocFile) resolved;
+          }
+        }
+        break;
+      }
+    }
+    return null;
   }
 
   static List<AsciiDocBlockId> findIds(Project project) {
@@ -270,7 +429,7 @@ public class AsciiDocUtil {
         vf = current.getContainingFile().getOriginalFile().getVirtualFile();
       }
       if (vf != null && vf.getParent() != null && vf.getParent().getCanonicalPath() != null) {
-        Map<String, String> antoraAttributes = AsciiDoc.populateAntoraAttributes(project.getBasePath(), new File(vf.getParent().getCanonicalPath()), antoraModuleDir);
+        Map<String, String> antoraAttributes = AsciiDoc.populateAntoraAttributes(project, new File(vf.getParent().getCanonicalPath()), antoraModuleDir);
         String value = antoraAttributes.get(key);
         if (value != null) {
           result.add(new AsciiDocAttributeDeclarationDummy(key, value));
@@ -280,16 +439,44 @@ public class AsciiDocUtil {
 
     // ignore other declarations when we found a specific value
     if (result.size() == 0) {
-      result.addAll(findAttributes(project, key));
+      result.addAll(restrictToDocument(findAttributes(project, key), current));
     }
 
     return result;
   }
 
+  /**
+   * If an attribute is declared in several places, prefer the declarations in the documents the element is part of:
+   * the documents including its file, and all files they include.
+   */
+  private static List<AsciiDocAttributeDeclaration> restrictToDocument(List<AsciiDocAttributeDeclaration> declarations, PsiElement current) {
+    if (declarations.size() <= 1) {
+      return declarations;
+    }
+    PsiFile file = current.getContainingFile().getOriginalFile();
+    VirtualFile virtualFile = file.getVirtualFile();
+    if (virtualFile == null || DumbService.isDumb(file.getProject())) {
+      return declarations;
+    }
+    // resolving the includes for the graph might look up attributes again; use all declarations then
+    Set<VirtualFile> documentFiles = RecursionManager.doPreventingRecursion(AsciiDocIncludeGraph.class, false,
+      () -> AsciiDocIncludeGraph.getInstance(file.getProject()).getDocumentFiles(virtualFile));
+    if (documentFiles == null) {
+      return declarations;
+    }
+    List<AsciiDocAttributeDeclaration> result = new ArrayList<>();
+    for (AsciiDocAttributeDeclaration declaration : declarations) {
+      if (documentFiles.contains(declaration.getContainingFile().getVirtualFile())) {
+        result.add(declaration);
+      }
+    }
+    return result.isEmpty() ? declarations : result;
+  }
+
   public static Map<String, String> collectAntoraAttributes(PsiElement element) {
     VirtualFile antoraModuleDir = AsciiDocUtil.findAntoraModuleDir(element);
     if (antoraModuleDir != null) {
-      return AsciiDoc.collectAntoraAttributes(antoraModuleDir);
+      return AsciiDoc.collectAntoraAttributes(element.getProject(), antoraModuleDir);
     } else {
       return Collections.emptyMap();
     }
@@ -359,6 +546,10 @@ public class AsciiDocUtil {
 
   @Nullable
   public static VirtualFile findAntoraPartials(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
+    return AsciiDocDirectoryContext.of(projectBasePath, fileBaseDir).getAntoraPartials();
+  }
+
+  static VirtualFile findAntoraPartialsUncached(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
     VirtualFile dir = fileBaseDir;
     while (dir != null) {
       if (dir.getParent() != null && dir.getParent().getName().equals("modules") &&
@@ -384,6 +575,10 @@ public class AsciiDocUtil {
   }
 
   public static VirtualFile findAntoraAttachmentsDir(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
+    return AsciiDocDirectoryContext.of(projectBasePath, fileBaseDir).getAntoraAttachmentsDir();
+  }
+
+  static VirtualFile findAntoraAttachmentsDirUncached(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
     VirtualFile dir = fileBaseDir;
     while (dir != null) {
       if (dir.getParent() != null && dir.getParent().getName().equals("modules") &&
@@ -409,6 +604,10 @@ public class AsciiDocUtil {
   }
 
   public static VirtualFile findAntoraPagesDir(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
+    return AsciiDocDirectoryContext.of(projectBasePath, fileBaseDir).getAntoraPagesDir();
+  }
+
+  static VirtualFile findAntoraPagesDirUncached(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
     VirtualFile dir = fileBaseDir;
     while (dir != null) {
       if (dir.getParent() != null && dir.getParent().getName().equals("modules") &&
@@ -427,6 +626,10 @@ public class AsciiDocUtil {
   }
 
   public static VirtualFile findAntoraModuleDir(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
+    return AsciiDocDirectoryContext.of(projectBasePath, fileBaseDir).getAntoraModuleDir();
+  }
+
+  static VirtualFile findAntoraModuleDirUncached(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
     VirtualFile dir = fileBaseDir;
     while (dir != null) {
       if (dir.getParent() != null && dir.getParent().getName().equals("modules") &&
@@ -442,6 +645,10 @@ public class AsciiDocUtil {
   }
 
   public static String findAntoraImagesDirRelative(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
+    return AsciiDocDirectoryContext.of(projectBasePath, fileBaseDir).getAntoraImagesDirRelative();
+  }
+
+  static String findAntoraImagesDirRelativeUncached(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
     VirtualFile dir = fileBaseDir;
     StringBuilder imagesDir = new StringBuilder();
     while (dir != null) {
@@ -469,6 +676,10 @@ public class AsciiDocUtil {
   }
 
   public static String findAntoraAttachmentsDirRelative(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
+    return AsciiDocDirectoryContext.of(projectBasePath, fileBaseDir).getAntoraAttachmentsDirRelative();
+  }
+
+  static String findAntoraAttachmentsDirRelativeUncached(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
     VirtualFile dir = fileBaseDir;
     StringBuilder attachmentsDir = new StringBuilder();
     while (dir != null) {
@@ -496,6 +707,10 @@ public class AsciiDocUtil {
   }
 
   public static VirtualFile findAntoraImagesDir(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
+    return AsciiDocDirectoryContext.of(projectBasePath, fileBaseDir).getAntoraImagesDir();
+  }
+
+  static VirtualFile findAntoraImagesDirUncached(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
     VirtualFile dir = fileBaseDir;
     while (dir != null) {
       if (dir.getParent() != null && dir.getParent().getName().equals("modules") &&
@@ -521,6 +736,10 @@ public class AsciiDocUtil {
   }
 
   public static VirtualFile findAntoraExamplesDir(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
+    return AsciiDocDirectoryContext.of(projectBasePath, fileBaseDir).getAntoraExamplesDir();
+  }
+
+  static VirtualFile findAntoraExamplesDirUncached(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
     VirtualFile dir = fileBaseDir;
     while (dir != null) {
       if (dir.getParent() != null && dir.getParent().getName().equals("modules") &&
@@ -546,54 +765,62 @@ public class AsciiDocUtil {
     if (antoraFile == null) {
       return Collections.emptyList();
     }
+    AntoraModel antoraModel = AntoraModel.getInstance(project);
     String myComponentName;
     String myComponentVersion;
     try {
-      Map<String, Object> myAntora = AsciiDoc.readAntoraYaml(antoraFile);
-      myComponentName = getAttributeAsString(myAntora, "name");
-      myComponentVersion = getAttributeAsString(myAntora, "version");
+      AntoraComponent myAntora = antoraModel.getComponent(antoraFile);
+      myComponentName = myAntora.getName();
+      myComponentVersion = myAntora.getVersion();
     } catch (YAMLException ex) {
       return Collections.emptyList();
     }
 
-    PsiFile[] files =
-      FilenameIndex.getFilesByName(project, ANTORA_YML, GlobalSearchScope.projectScope(project));
+    List<VirtualFile> antoraFiles = new ArrayList<>();
+    if (myComponentName != null) {
+      for (AntoraComponentIndex.Component component : AntoraComponentIndex.findComponents(project, myComponentName)) {
+        if (Objects.equals(myComponentVersion, component.getVersion())) {
+          antoraFiles.add(component.getAntoraFile());
+        }
+      }
+    } else {
+      // components without a name are not indexed
+      antoraFiles.add(antoraFile);
+    }
     ProjectFileIndex index = ProjectRootManager.getInstance(project).getFileIndex();
     Collection<VirtualFile> result = new HashSet<>();
-    for (PsiFile file : files) {
-      if (index.isInLibrary(file.getVirtualFile())
-        || index.isExcluded(file.getVirtualFile())
-        || index.isInLibraryClasses(file.getVirtualFile())
-        || index.isInLibrarySource(file.getVirtualFile())) {
+    for (VirtualFile file : antoraFiles) {
+      if (isInLibraryOrExcluded(index, file)) {
         continue;
       }
-      Map<String, Object> antora;
+      AntoraComponent antora;
       try {
-        antora = AsciiDoc.readAntoraYaml(antoraFile);
+        antora = antoraModel.getComponent(file);
       } catch (YAMLException ex) {
         continue;
       }
-
-      if (!Objects.equals(myComponentName, getAttributeAsString(antora, "name"))) {
-        continue;
-      }
-      if (!Objects.equals(myComponentVersion, getAttributeAsString(antora, "version"))) {
-        continue;
-      }
-      Object nav = antora.get("nav");
-      if (nav instanceof Collection) {
-        for (Object item : (Collection<?>) nav) {
-          VirtualFile fileByRelativePath = file.getVirtualFile().getParent().findFileByRelativePath(item.toString());
-          if (fileByRelativePath != null) {
-            result.add(fileByRelativePath);
-          }
+      for (String item : antora.getNav()) {
+        VirtualFile fileByRelativePath = file.getParent().findFileByRelativePath(item);
+        if (fileByRelativePath != null) {
+          result.add(fileByRelativePath);
         }
       }
     }
     return result;
   }
 
+  private static boolean isInLibraryOrExcluded(ProjectFileIndex index, VirtualFile file) {
+    return index.isInLibrary(file)
+      || index.isExcluded(file)
+      || index.isInLibraryClasses(file)
+      || index.isInLibrarySource(file);
+  }
+
   public static VirtualFile findSpringRestDocSnippets(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
+    return AsciiDocDirectoryContext.of(projectBasePath, fileBaseDir).getSpringRestDocSnippets();
+  }
+
+  static VirtualFile findSpringRestDocSnippetsUncached(VirtualFile projectBasePath, VirtualFile fileBaseDir) {
     VirtualFile dir = fileBaseDir;
     while (dir != null) {
       VirtualFile pom = dir.findChild("pom.xml");
@@ -814,14 +1041,14 @@ public class AsciiDocUtil {
         if (antoraFile == null) {
           return Collections.singletonList(originalKey);
         }
-        Map<String, Object> antora;
+        AntoraComponent antora;
         try {
-          antora = AsciiDoc.readAntoraYaml(antoraFile);
+          antora = AntoraModel.getInstance(project).getComponent(antoraFile);
         } catch (YAMLException ex) {
           return Collections.singletonList(originalKey);
         }
-        String myComponentName = getAttributeAsString(antora, "name");
-        String myComponentVersion = getAttributeAsString(antora, "version");
+        String myComponentName = antora.getName();
+        String myComponentVersion = antora.getVersion();
 
         String otherComponentVersion = null;
         String otherComponentName = null;
@@ -915,7 +1142,7 @@ public class AsciiDocUtil {
                                                            String myModuleName, String myComponentName, String myComponentVersion,
                                                            String otherComponentVersion, String otherComponentName, String otherModuleName) {
     if (project.isDisposed()) {
-      // FilenameIndex.getFilesByName will otherwise log an error later
+      // FileBasedIndex will otherwise log an error later
       throw new ProcessCanceledException();
     }
     boolean useLatest = false;
@@ -938,34 +1165,20 @@ public class AsciiDocUtil {
       if (otherModuleName == null || otherModuleName.length() == 0) {
         otherModuleName = "ROOT";
       }
-      PsiFile[] files =
-        FilenameIndex.getFilesByName(project, ANTORA_YML, GlobalSearchScope.projectScope(project));
+      List<AntoraComponentIndex.Component> components = AntoraComponentIndex.findComponents(project, otherComponentName);
       // sort by path proximity
-      Arrays.sort(files,
-        Comparator.comparingInt(value -> countNumberOfSameStartingCharacters(value, moduleDir.getPath()) * -1));
+      components.sort(Comparator.comparingInt(value -> countNumberOfSameStartingCharacters(value.getAntoraFile(), moduleDir.getPath()) * -1));
       ProjectFileIndex index = ProjectRootManager.getInstance(project).getFileIndex();
-      for (PsiFile file : files) {
-        if (index.isInLibrary(file.getVirtualFile())
-          || index.isExcluded(file.getVirtualFile())
-          || index.isInLibraryClasses(file.getVirtualFile())
-          || index.isInLibrarySource(file.getVirtualFile())) {
-          continue;
-        }
-        Map<String, Object> antora;
-        try {
-          antora = AsciiDoc.readAntoraYaml(file);
-        } catch (YAMLException ex) {
-          continue;
-        }
-        if (!Objects.equals(otherComponentName, getAttributeAsString(antora, "name"))) {
+      for (AntoraComponentIndex.Component component : components) {
+        if (isInLibraryOrExcluded(index, component.getAntoraFile())) {
           continue;
         }
         if (!useLatest) {
-          if (!Objects.equals(otherComponentVersion, getAttributeAsString(antora, "version"))) {
+          if (!Objects.equals(otherComponentVersion, component.getVersion())) {
             continue;
           }
         } else {
-          AntoraVersionDescriptor otherVersion = new AntoraVersionDescriptor(getAttributeAsString(antora, "version"), getAttributeAsString(antora, "prerelease"));
+          AntoraVersionDescriptor otherVersion = new AntoraVersionDescriptor(component.getVersion(), component.getPrerelease());
           if (latestVersion == null) {
             latestVersion = otherVersion;
           } else {
@@ -978,70 +1191,43 @@ public class AsciiDocUtil {
             }
           }
         }
-        PsiDirectory parent = file.getParent();
-        if (parent == null) {
-          continue;
-        }
-        PsiDirectory antoraModulesDir = parent.findSubdirectory("modules");
-        if (antoraModulesDir == null) {
-          continue;
-        }
-        PsiDirectory antoraModule = antoraModulesDir.findSubdirectory(otherModuleName);
-        if (antoraModule == null) {
-          continue;
+        for (VirtualFile antoraModule : component.getModuleDirs()) {
+          if (antoraModule.getName().equals(otherModuleName)) {
+            result.add(antoraModule);
+          }
         }
-        result.add(antoraModule.getVirtualFile());
       }
     }
     return result;
   }
 
-  @Nullable
-  public static String getAttributeAsString(Map<String, Object> antora, String name) {
-    Object value = antora.get(name);
-    if (value == null) {
-      return null;
-    }
-    return value.toString();
-  }
-
   public static List<AntoraModule> collectPrefixes(Project project, VirtualFile moduleDir) {
     return ApplicationManager.getApplication().runReadAction((Computable<List<AntoraModule>>) () -> {
-      PsiFile[] files =
-        FilenameIndex.getFilesByName(project, ANTORA_YML, GlobalSearchScope.projectScope(project));
       List<AntoraModule> result = new ArrayList<>();
-      // sort by path proximity
-      Arrays.sort(files,
-        Comparator.comparingInt(value -> countNumberOfSameStartingCharacters(value, moduleDir.getPath()) * -1));
-      ProjectFileIndex index = ProjectRootManager.getInstance(project).getFileIndex();
       VirtualFile antoraFile = moduleDir.getParent().getParent().findChild(ANTORA_YML);
       if (antoraFile == null) {
         return result;
       }
-      Map<String, Object> antora;
+      AntoraComponent antora;
       try {
-        antora = AsciiDoc.readAntoraYaml(antoraFile);
+        antora = AntoraModel.getInstance(project).getComponent(antoraFile);
       } catch (YAMLException ex) {
         return result;
       }
-      String myComponentName = getAttributeAsString(antora, "name");
-      String myComponentVersion = getAttributeAsString(antora, "version");
+      String myComponentName = antora.getName();
+      String myComponentVersion = antora.getVersion();
+      List<AntoraComponentIndex.Component> components = AntoraComponentIndex.findAllComponents(project);
+      // sort by path proximity
+      components.sort(Comparator.comparingInt(value -> countNumberOfSameStartingCharacters(value.getAntoraFile(), moduleDir.getPath()) * -1));
+      ProjectFileIndex index = ProjectRootManager.getInstance(project).getFileIndex();
       Map<String, String> componentTitles = new HashMap<>();
-      for (PsiFile file : files) {
-        if (index.isInLibrary(file.getVirtualFile())
-          || index.isExcluded(file.getVirtualFile())
-          || index.isInLibraryClasses(file.getVirtualFile())
-          || index.isInLibrarySource(file.getVirtualFile())) {
+      for (AntoraComponentIndex.Component component : components) {
+        if (isInLibraryOrExcluded(index, component.getAntoraFile())) {
           continue;
         }
-        try {
-          antora = AsciiDoc.readAntoraYaml(file);
-        } catch (YAMLException ex) {
-          continue;
-        }
-        String otherComponentName = getAttributeAsString(antora, "name");
-        String otherComponentVersion = getAttributeAsString(antora, "version");
-        String title = getAttributeAsString(antora, "title");
+        String otherComponentName = component.getName();
+        String otherComponentVersion = component.getVersion();
+        String title = component.getTitle();
         if (title != null && componentTitles.get(otherComponentName) == null) {
           componentTitles.put(otherComponentName, title);
         }
@@ -1049,19 +1235,15 @@ public class AsciiDocUtil {
         if (!Objects.equals(myComponentVersion, otherComponentVersion)) {
           versionPrefix = otherComponentVersion + "@";
         }
-        VirtualFile md = file.getVirtualFile().getParent().findChild("modules");
-        if (md != null) {
-          VirtualFile[] modules = md.getChildren();
-          for (VirtualFile module : modules) {
-            if (MODULE.matcher(module.getName() + ":").matches()) {
-              if (Objects.equals(myComponentName, otherComponentName)) {
-                result.add(new AntoraModule(versionPrefix + module.getName() + ":", otherComponentName, module.getName(), title, module));
-              }
-              if (module.getName().equals("ROOT")) {
-                result.add(new AntoraModule(versionPrefix + otherComponentName + "::", otherComponentName, module.getName(), title, module));
-              }
-              result.add(new AntoraModule(versionPrefix + otherComponentName + ":" + module.getName() + ":", otherComponentName, module.getName(), title, module));
+        for (VirtualFile module : component.getModuleDirs()) {
+          if (MODULE.matcher(module.getName() + ":").matches()) {
+            if (Objects.equals(myComponentName, otherComponentName)) {
+              result.add(new AntoraModule(versionPrefix + module.getName() + ":", otherComponentName, module.getName(), title, module));
+            }
+            if (module.getName().equals("ROOT")) {
+              result.add(new AntoraModule(versionPrefix + otherComponentName + "::", otherComponentName, module.getName(), title, module));
             }
+            result.add(new AntoraModule(versionPrefix + otherComponentName + ":" + module.getName() + ":", otherComponentName, module.getName(), title, module));
           }
         }
       }
@@ -1090,14 +1272,14 @@ public class AsciiDocUtil {
       if (antoraFile == null) {
         return null;
       }
-      Map<String, Object> antora;
+      AntoraComponent antora;
       try {
-        antora = AsciiDoc.readAntoraYaml(antoraFile);
+        antora = AntoraModel.getInstance(project).getComponent(antoraFile);
       } catch (YAMLException ex) {
         return null;
       }
-      String myComponentName = getAttributeAsString(antora, "name");
-      String myComponentVersion = getAttributeAsString(antora, "version");
+      String myComponentName = antora.getName();
+      String myComponentVersion = antora.getVersion();
 
       String otherComponentName = null;
       String otherModuleName = null;
@@ -1124,8 +1306,8 @@ public class AsciiDocUtil {
     });
   }
 
-  private static int countNumberOfSameStartingCharacters(PsiFile value, String origin) {
-    String path = value.getVirtualFile().getPath();
+  private static int countNumberOfSameStartingCharacters(VirtualFile value, String origin) {
+    String path = value.getPath();
     int i = 0;
     for (; i < origin.length() && i < path.length(); ++i) {
       if (path.charAt(i) != origin.charAt(i)) {
@@ -0,0 +1,128 @@
+package org.asciidoc.intellij.psi;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+
+import static org.asciidoc.intellij.psi.AsciiDocUtil.ATTRIBUTES;
+
+/**
+ * Expands the attribute references in a path or an ID to all combinations of the attributes' declared values.
+ * <p>
+ * Attributes are replaced left to right. To keep the number of combinations small:
+ * <ul>
+ * <li>the values of each attribute are looked up only once,</li>
+ * <li>partial expansions that have been seen before are not expanded again,</li>
+ * <li>the already expanded directory part of a path is checked before the next attribute is expanded;
+ * if the directory doesn't exist, none of the expansions can be resolved,</li>
+ * <li>the number of expansion steps is limited by a budget.</li>
+ * </ul>
+ * An instance is meant to be used for a single lookup, it is not thread safe.
+ */
+final class AttributeExpander {
+
+  /**
+   * Maximum number of partial expansions per lookup, can be changed with the system property
+   * <code>asciidoc.attributes.expansionBudget</code>.
+   */
+  static final int DEFAULT_BUDGET = Math.max(1, Integer.getInteger("asciidoc.attributes.expansionBudget", 1000));
+
+  private final Function<String, Collection<String>> attributeValues;
+  private final Predicate<String> directoryFilter;
+  private final int maxDepth;
+  private final int budget;
+
+  private final Map<String, Collection<String>> values = new HashMap<>();
+  private final Map<String, Boolean> directories = new HashMap<>();
+  private int steps;
+  private boolean budgetExhausted;
+
+  /**
+   * @param attributeValues all values declared for an attribute name
+   * @param directoryFilter checks if an expanded directory part of a path (ending with a <code>/</code>) exists
+   * @param maxDepth        maximum number of attributes to replace in one expansion, including attributes in values
+   * @param budget          maximum number of partial expansions
+   */
+  AttributeExpander(@NotNull Function<String, Collection<String>> attributeValues, @NotNull Predicate<String> directoryFilter,
+                    int maxDepth, int budget) {
+    this.attributeValues = attributeValues;
+    this.directoryFilter = directoryFilter;
+    this.maxDepth = maxDepth;
+    this.budget = budget;
+  }
+
+  /**
+   * All expansions of the key that don't contain any more attributes, in the order of the declarations.
+   * Attributes without a declaration don't expand to anything.
+   */
+  @NotNull
+  List<String> expand(@NotNull String key) {
+    Set<String> result = new LinkedHashSet<>();
+    expand(key, 0, new HashSet<>(), result);
+    return new ArrayList<>(result);
+  }
+
+  private void expand(String key, int depth, Set<String> visited, Set<String> result) {
+    if (!visited.add(key)) {
+      return;
+    }
+    if (steps >= budget) {
+      budgetExhausted = true;
+      return;
+    }
+    ++steps;
+    Matcher matcher = ATTRIBUTES.matcher(key);
+    if (!matcher.find()) {
+      result.add(key);
+      return;
+    }
+    if (depth >= maxDepth) {
+      return;
+    }
+    String prefix = key.substring(0, matcher.start());
+    if (!directoryExists(prefix)) {
+      return;
+    }
+    String suffix = key.substring(matcher.end());
+    for (String value : values.computeIfAbsent(matcher.group(1), attributeValues)) {
+      expand(prefix + value + suffix, depth + 1, visited, result);
+      if (budgetExhausted) {
+        return;
+      }
+    }
+  }
+
+  private boolean directoryExists(String prefix) {
+    int end = prefix.lastIndexOf('/');
+    if (end <= 0) {
+      // no directory, or the root directory
+      return true;
+    }
+    return directories.computeIfAbsent(prefix.substring(0, end + 1), directoryFilter::test);
+  }
+
+  /**
+   * Number of partial expansions calculated so far.
+   */
+  int getSteps() {
+    return steps;
+  }
+
+  /**
+   * If the budget has been exhausted; the expansions returned are incomplete in this case.
+   */
+  boolean isBudgetExhausted() {
+    return budgetExhausted;
+  }
+
+}
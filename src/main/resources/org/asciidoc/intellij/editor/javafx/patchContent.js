@@ -0,0 +1,224 @@
+if (window.__IntelliJTools === undefined) {
+  window.__IntelliJTools = {}
+}
+
+// Patch the content of the preview with the blocks that changed since the last rendering.
+// The patch is calculated by the IDE (see PreviewBlocks) relative to the content as of the iteration 'baseIteration'.
+// Unchanged blocks stay in the DOM, therefore their formulas don't need to be typeset again by MathJax.
+// For each container the patch lists the markers of the unchanged blocks at its start ('head') and its end ('tail'),
+// and either the patch of the single changed container in between ('inner'), or the number of blocks
+// to remove and the HTML of the blocks to add in between.
+// If the content can't be patched, the IDE replaces the content as a whole using replaceContent().
+
+window.__IntelliJTools.linesOf = function (node) {
+  var nodes = Array.prototype.slice.call(node.getElementsByClassName('has-source-line'))
+  if (node.classList.contains('has-source-line')) {
+    nodes.unshift(node)
+  }
+  return nodes
+}
+
+window.__IntelliJTools.setMarker = function (node, marker) {
+  node.className = node.className.replace(/(^|\s)data-line-\S*/, '$1' + marker)
+}
+
+// the line numbers of the block changed, but the content is the same: update the markers in place
+window.__IntelliJTools.updateMarkers = function (node, markers) {
+  if (markers === null) {
+    return
+  }
+  var nodes = window.__IntelliJTools.linesOf(node)
+  if (nodes.length !== markers.length) {
+    return
+  }
+  for (var i = 0; i < nodes.length; i++) {
+    window.__IntelliJTools.setMarker(nodes[i], markers[i])
+  }
+}
+
+// Check that the patch matches the current structure of the DOM, so that it can be applied.
+window.__IntelliJTools.checkPatch = function (node, patch) {
+  var children = node.children
+  var middle = patch.inner ? 1 : patch.removed
+  if (patch.head.length + patch.tail.length + middle !== children.length) {
+    return false
+  }
+  return !patch.inner || window.__IntelliJTools.checkPatch(children[patch.head.length], patch.inner.patch)
+}
+
+// Parse the HTML of the added blocks, and collect their nodes.
+// Returns false if the browser doesn't parse a block into a single element.
+window.__IntelliJTools.parseBlocks = function (patch, parent, added) {
+  if (patch.inner) {
+    return window.__IntelliJTools.parseBlocks(patch.inner.patch, parent, added)
+  }
+  var nodes = []
+  for (var i = 0; i < patch.added.length; i++) {
+    var div = document.createElement('div')
+    div.innerHTML = patch.added[i]
+    var node = div.firstElementChild
+    if (!node || div.children.length !== 1) {
+      return false
+    }
+    parent.appendChild(node)
+    nodes.push(node)
+    added.push(node)
+  }
+  patch.addedNodes = nodes
+  return true
+}
+
+window.__IntelliJTools.applyPatch = function (node, patch) {
+  var children = Array.prototype.slice.call(node.children)
+  var i
+  for (i = 0; i < patch.head.length; i++) {
+    window.__IntelliJTools.updateMarkers(children[i], patch.head[i])
+  }
+  var tailStart = children.length - patch.tail.length
+  for (i = 0; i < patch.tail.length; i++) {
+    window.__IntelliJTools.updateMarkers(children[tailStart + i], patch.tail[i])
+  }
+  if (patch.inner) {
+    var inner = children[patch.head.length]
+    if (patch.inner.marker !== null) {
+      window.__IntelliJTools.setMarker(inner, patch.inner.marker)
+    }
+    window.__IntelliJTools.applyPatch(inner, patch.inner.patch)
+    return
+  }
+  for (i = patch.head.length; i < tailStart; i++) {
+    node.removeChild(children[i])
+  }
+  var before = tailStart < children.length ? children[tailStart] : null
+  for (i = 0; i < patch.addedNodes.length; i++) {
+    node.insertBefore(patch.addedNodes[i], before)
+  }
+}
+
+// Update the contents of the element with the ID 'content'.
+// Returns false if the patch doesn't match the content, then the caller needs to replace the content as a whole.
+window.__IntelliJTools.patchContent = function (patch, lineCount, iterationStamp, baseIteration) {
+  var elem = document.getElementById('content')
+  if (!elem || !elem.parentNode || window.__IntelliJTools.patchFailed) {
+    return false
+  }
+  var currentIteration = function () {
+    return window.__IntelliJTools.contentIteration !== undefined ? window.__IntelliJTools.contentIteration : window.iterationStamp
+  }
+  if (currentIteration() !== baseIteration || !window.__IntelliJTools.checkPatch(elem, patch.patch)) {
+    return false
+  }
+
+  var errortext = document.getElementById('mathjaxerrortext')
+  var errorformula = document.getElementById('mathjaxerrorformula')
+  if (errorformula && errortext) {
+    errortext.textContent = ''
+    errorformula.textContent = ''
+  }
+
+  var div = document.createElement('div')
+  div.style.cssText = 'display: none'
+  // need to add the element to the DOM as MathJAX will use document.getElementById in some places
+  elem.parentNode.appendChild(div)
+  var added = []
+  if (!window.__IntelliJTools.parseBlocks(patch.patch, div, added)) {
+    elem.parentNode.removeChild(div)
+    return false
+  }
+
+  // runs only after MathJax has typeset the new blocks; the content is checked again, as it is only now that
+  // the patch is applied, and patches that have been overtaken by a newer rendering are dropped
+  var finish = function () {
+    if (div.parentNode) {
+      div.parentNode.removeChild(div)
+    }
+    var content = document.getElementById('content')
+    if (currentIteration() !== baseIteration || !content || !window.__IntelliJTools.checkPatch(content, patch.patch)) {
+      // the IDE assumes the patch has been applied, therefore replace the content as a whole with the next rendering
+      window.__IntelliJTools.patchFailed = true
+      window.JavaPanelBridge && window.JavaPanelBridge.log('dropping outdated patch of iteration ' + iterationStamp)
+      window.JavaPanelBridge && window.JavaPanelBridge.rendered(iterationStamp)
+      return
+    }
+    if ('__IntelliJTools' in window) {
+      __IntelliJTools.clearLinks && __IntelliJTools.clearLinks()
+      __IntelliJTools.clearSourceLine && __IntelliJTools.clearSourceLine()
+    }
+    window.__IntelliJTools.applyPatch(content, patch.patch)
+    window.__IntelliJTools.contentIteration = iterationStamp
+    if ('__IntelliJTools' in window) {
+      __IntelliJTools.processLinks && __IntelliJTools.processLinks()
+      __IntelliJTools.pickSourceLine && __IntelliJTools.pickSourceLine(lineCount)
+    }
+    window.JavaPanelBridge && window.JavaPanelBridge.rendered(iterationStamp)
+  }
+
+  // typeset only the formulas of the blocks that changed, and only then show them to avoid flickering
+  if (added.length > 0 && 'MathJax' in window && MathJax.Hub) {
+    MathJax.Hub.Queue(['Typeset', MathJax.Hub, added], finish)
+  } else if ('MathJax' in window && MathJax.Hub) {
+    // keep the order with patches still waiting for MathJax
+    MathJax.Hub.Queue(finish)
+  } else {
+    finish()
+  }
+  return true
+}
+
+// Replace the element with the ID 'content' as a whole.
+// Returns false if there is no content yet, then the caller needs to load the full page.
+window.__IntelliJTools.replaceContent = function (html, lineCount, iterationStamp) {
+  var elem = document.getElementById('content')
+  if (!elem || !elem.parentNode) {
+    return false
+  }
+
+  var errortext = document.getElementById('mathjaxerrortext')
+  var errorformula = document.getElementById('mathjaxerrorformula')
+  if (errorformula && errortext) {
+    errortext.textContent = ''
+    errorformula.textContent = ''
+  }
+
+  var div = document.createElement('div')
+  div.innerHTML = html
+  div.style.cssText = 'display: none'
+  // need to add the element to the DOM as MathJAX will use document.getElementById in some places
+  elem.parentNode.appendChild(div)
+  var newContent = div.firstElementChild
+  if (!newContent) {
+    elem.parentNode.removeChild(div)
+    return false
+  }
+
+  var finish = function () {
+    if (div.parentNode) {
+      div.parentNode.removeChild(div)
+    }
+    // re-evaluate the content element as it might have been patched in the meantime
+    var content = document.getElementById('content')
+    if ('__IntelliJTools' in window) {
+      __IntelliJTools.clearLinks && __IntelliJTools.clearLinks()
+      __IntelliJTools.clearSourceLine && __IntelliJTools.clearSourceLine()
+    }
+    if (content && content.parentNode) {
+      content.parentNode.replaceChild(newContent, content)
+    }
+    window.__IntelliJTools.contentIteration = iterationStamp
+    window.__IntelliJTools.patchFailed = false
+    if ('__IntelliJTools' in window) {
+      __IntelliJTools.processLinks && __IntelliJTools.processLinks()
+      __IntelliJTools.pickSourceLine && __IntelliJTools.pickSourceLine(lineCount)
+    }
+    window.JavaPanelBridge && window.JavaPanelBridge.rendered(iterationStamp)
+  }
+
+  // typeset the formulas before showing the new content to avoid flickering,
+  // and keep the order with patches still waiting for MathJax
+  if ('MathJax' in window && MathJax.Hub) {
+    MathJax.Hub.Queue(['Typeset', MathJax.Hub, newContent], finish)
+  } else {
+    finish()
+  }
+  return true
+}
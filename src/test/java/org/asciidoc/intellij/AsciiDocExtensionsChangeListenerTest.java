@@ -0,0 +1,37 @@
+package org.asciidoc.intellij;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsciiDocExtensionsChangeListenerTest extends BasePlatformTestCase {
+
+  public void testChangeInExtensionsFolderClearsHash() throws IOException {
+    // given...
+    File projectDir = FileUtil.createTempDirectory("asciidoc", null);
+    File lib = new File(projectDir, ".asciidoctor/lib");
+    File extension = new File(lib, "extension.rb");
+    File helper = new File(lib, "helper/helper.rb");
+    FileUtil.writeToFile(extension, "require_relative 'helper/helper'\n");
+    FileUtil.writeToFile(helper, "# helper\n");
+    LocalFileSystem.getInstance().refreshAndFindFileByIoFile(lib);
+    AsciiDoc asciidoc = new AsciiDoc(getProject(), projectDir, null, "test");
+    asciidoc.calcMd(projectDir.getPath(), Collections.singletonList(extension.getPath()));
+    assertThat(AsciiDoc.hasExtensionHashes()).isTrue();
+
+    // when...
+    FileUtil.writeToFile(helper, "# changed helper\n");
+    VfsUtil.markDirtyAndRefresh(false, true, true, lib);
+
+    // then...
+    assertThat(AsciiDoc.hasExtensionHashes()).isFalse();
+  }
+
+}
@@ -1,6 +1,13 @@
 package org.asciidoc.intellij;
 
+import com.intellij.openapi.application.WriteAction;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.testFramework.fixtures.BasePlatformTestCase;
 import org.asciidoc.intellij.editor.AsciiDocHtmlPanel;
 import org.asciidoc.intellij.editor.javafx.JavaFxHtmlPanelProvider;
@@ -18,6 +25,11 @@ import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -50,6 +62,111 @@ public class AsciiDocTest extends BasePlatformTestCase {
     assertThat(html).withFailMessage("should contain data line to allow navigation to source line in preview").contains("data-line-stdin-1");
   }
 
+  public void testShouldRenderInParallel() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 8; ++i) {
+        String text = "document *number" + i + "*.";
+        results.add(executor.submit(() -> asciidoc.render(text, Collections.emptyList())));
+      }
+      for (int i = 0; i < results.size(); ++i) {
+        assertThat(results.get(i).get(60, TimeUnit.SECONDS)).contains("<strong>number" + i + "</strong>");
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void testShouldIsolateParallelRendersOfDifferentAntoraModules() throws Exception {
+    File root = Files.createTempDirectory("asciidoc-antora").toFile();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<AsciiDoc> documents = new ArrayList<>();
+      for (int i = 0; i < 4; ++i) {
+        File component = new File(root, "component" + i);
+        File pages = new File(component, "modules/module" + i + "/pages");
+        File partials = new File(component, "modules/module" + i + "/partials");
+        assertTrue(pages.mkdirs());
+        assertTrue(partials.mkdirs());
+        Files.write(new File(component, "antora.yml").toPath(), ("name: component" + i + "\nversion: '1.0'\n").getBytes(UTF_8));
+        Files.write(new File(partials, "part.adoc").toPath(), ("partial of module" + i + "\n").getBytes(UTF_8));
+        documents.add(new AsciiDoc(getProject(), pages, null, "page" + i + ".adoc"));
+      }
+      VfsUtil.markDirtyAndRefresh(false, true, true, root);
+
+      List<Future<String>> results = new ArrayList<>();
+      for (int round = 0; round < 5; ++round) {
+        for (int i = 0; i < documents.size(); ++i) {
+          AsciiDoc document = documents.get(i);
+          String config = ":config-marker: config" + i + "\n";
+          results.add(executor.submit(() -> document.render("module={page-module} component={page-component-name} " +
+            "config={config-marker} doc={docname}\n\ninclude::partial$part.adoc[]\n", config, Collections.emptyList())));
+        }
+      }
+      for (int r = 0; r < results.size(); ++r) {
+        int i = r % documents.size();
+        String html = results.get(r).get(120, TimeUnit.SECONDS);
+        assertThat(html).contains("module=module" + i + " component=component" + i + " config=config" + i + " doc=page" + i);
+        assertThat(html).contains("partial of module" + i);
+        for (int other = 0; other < documents.size(); ++other) {
+          if (other != i) {
+            assertThat(html).doesNotContain("module" + other).doesNotContain("config" + other);
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+      FileUtil.delete(root);
+    }
+  }
+
+  public void testShouldReuseRenderResultForSameContent() {
+    String text = "this is *cached*.";
+    Document document = EditorFactory.getInstance().createDocument(text);
+    RenderResultCache.Result first = RenderResultCache.render(document, asciidoc, text, "", Collections.emptyList(),
+      (boasOut, boasErr, logRecords) -> {
+      }, AsciiDoc.FileType.JAVAFX, true);
+    RenderResultCache.Result second = RenderResultCache.render(document, asciidoc, text, "", Collections.emptyList(),
+      (boasOut, boasErr, logRecords) -> {
+      }, AsciiDoc.FileType.JAVAFX, false);
+    assertThat(second).isSameAs(first);
+    assertThat(first.getHtml()).contains("<strong>cached</strong>");
+
+    RenderResultCache.Result changed = RenderResultCache.render(document, asciidoc, text, ":attr: value", Collections.emptyList(),
+      (boasOut, boasErr, logRecords) -> {
+      }, AsciiDoc.FileType.JAVAFX, false);
+    assertThat(changed).isNotSameAs(first);
+  }
+
+  public void testShouldReuseRenderResultUntilIncludedFileChanges() throws IOException {
+    // given...
+    VirtualFile included = myFixture.addFileToProject("included.adoc", "included").getVirtualFile();
+    VirtualFile unrelated = myFixture.addFileToProject("unrelated.adoc", "unrelated").getVirtualFile();
+    // the include is seen by the include graph, but skipped by Asciidoctor, so that the conversion reports no problems
+    VirtualFile main = myFixture.addFileToProject("main.adoc", "ifdef::never[]\ninclude::included.adoc[]\nendif::[]\n").getVirtualFile();
+    Document document = FileDocumentManager.getInstance().getDocument(main);
+    assertThat(document).isNotNull();
+    String text = document.getText();
+    RenderResultCache.Result first = render(document, text);
+
+    // when...
+    WriteAction.runAndWait(() -> VfsUtil.saveText(unrelated, "unrelated changed"));
+    RenderResultCache.Result afterUnrelatedChange = render(document, text);
+    WriteAction.runAndWait(() -> VfsUtil.saveText(included, "included changed"));
+    RenderResultCache.Result afterIncludedChange = render(document, text);
+
+    // then...
+    assertThat(afterUnrelatedChange).isSameAs(first);
+    assertThat(afterIncludedChange).isNotSameAs(first);
+  }
+
+  private RenderResultCache.Result render(Document document, String text) {
+    return RenderResultCache.render(document, asciidoc, text, "", Collections.emptyList(),
+      (boasOut, boasErr, logRecords) -> {
+      }, AsciiDoc.FileType.JAVAFX, false);
+  }
+
   public void testShouldUseCustomStylesheet() throws IOException {
     File testCss = new File(System.getProperty("java.io.tmpdir"), "test.css");
     try (BufferedWriter writer = Files.newBufferedWriter(testCss.toPath(), UTF_8)) {
@@ -0,0 +1,59 @@
+package org.asciidoc.intellij.editor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PreviewBlocksTest {
+
+  private static final String CONTENT = "<div id=\"content\">\n"
+    + "<div class=\"paragraph has-source-line data-line-stdin-1\">\n<p>first</p>\n</div>\n"
+    + "<div class=\"sect1 has-source-line data-line-stdin-3\">\n<h2 id=\"_section\">Section</h2>\n<div class=\"sectionbody\">\n"
+    + "<div class=\"paragraph has-source-line data-line-stdin-5\">\n<p>second</p>\n</div>\n"
+    + "<div class=\"paragraph has-source-line data-line-stdin-7\">\n<p>third</p>\n</div>\n"
+    + "</div>\n</div>\n"
+    + "</div>";
+
+  @Test
+  public void shouldSendOnlyTheChangedBlock() {
+    PreviewBlocks.Block previous = PreviewBlocks.parse(CONTENT);
+    PreviewBlocks.Block current = PreviewBlocks.parse(CONTENT.replace("<p>third</p>", "<p>changed</p>"));
+
+    String patch = PreviewBlocks.diff(previous, current);
+
+    assertEquals("{marker:null,patch:{head:[null],tail:[],inner:{marker:null,patch:{head:[null],tail:[],"
+      + "inner:{marker:null,patch:{head:[null],tail:[],inner:{marker:null,patch:{head:[],tail:[],removed:1,added:["
+      + "'<p>changed<\\/p>']}}}}}}}}", patch);
+  }
+
+  @Test
+  public void shouldOnlyUpdateMarkersOfMovedBlocks() {
+    PreviewBlocks.Block previous = PreviewBlocks.parse(CONTENT);
+    PreviewBlocks.Block current = PreviewBlocks.parse(CONTENT
+      .replace("data-line-stdin-7", "data-line-stdin-8")
+      .replace("data-line-stdin-5", "data-line-stdin-6")
+      .replace("data-line-stdin-3", "data-line-stdin-4")
+      .replace("data-line-stdin-1\">\n<p>first</p>", "data-line-stdin-1\">\n<p>first\nline</p>"));
+
+    String patch = PreviewBlocks.diff(previous, current);
+
+    assertEquals("{marker:null,patch:{head:[],tail:[['data-line-stdin-4','data-line-stdin-6','data-line-stdin-8']],"
+      + "inner:{marker:null,patch:{head:[],tail:[],removed:1,added:['<p>first\\nline<\\/p>']}}}}", patch);
+  }
+
+  @Test
+  public void shouldNotSplitMalformedHtml() {
+    assertNull(PreviewBlocks.parse("<div id=\"content\"><p>unclosed</div>"));
+    assertNull(PreviewBlocks.parse("<div id=\"content\"></div><div></div>"));
+  }
+
+  @Test
+  public void shouldReplaceContentWithDifferentShell() {
+    PreviewBlocks.Block previous = PreviewBlocks.parse(CONTENT);
+    PreviewBlocks.Block current = PreviewBlocks.parse(CONTENT.replace("<div id=\"content\">", "<div id=\"content\" class=\"doc\">"));
+
+    assertNull(PreviewBlocks.diff(previous, current));
+  }
+
+}
@@ -0,0 +1,52 @@
+package org.asciidoc.intellij.editor;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class PreviewImagesTest {
+
+  @Test
+  public void shouldReplaceAllMatchesInOnePass() {
+    Pattern pattern = Pattern.compile("<img src=\"(?<img>[^:\"]*)\"");
+    String html = "<p><img src=\"a.png\"></p><p>text</p><img src=\"http://example.com/b.png\"><img src=\"c.png\">";
+    String result = PreviewImages.replaceAll(html, pattern, matcher -> "<img src=\"file:///" + matcher.group("img") + "\"");
+    assertEquals("<p><img src=\"file:///a.png\"></p><p>text</p><img src=\"http://example.com/b.png\"><img src=\"file:///c.png\">", result);
+  }
+
+  @Test
+  public void shouldReturnSameHtmlWithoutMatches() {
+    String html = "<p>text</p>";
+    assertEquals(html, PreviewImages.replaceAll(html, Pattern.compile("<img"), matcher -> "x"));
+  }
+
+  @Test
+  public void shouldUpdateFingerprintWhenFileChanges() throws IOException {
+    File file = File.createTempFile("image", ".png");
+    try {
+      Files.write(file.toPath(), "first".getBytes(StandardCharsets.UTF_8));
+      String first = PreviewImages.fingerprint(file.getAbsolutePath());
+      assertEquals(first, PreviewImages.fingerprint(file.getAbsolutePath()));
+
+      Files.write(file.toPath(), "second content".getBytes(StandardCharsets.UTF_8));
+      String second = PreviewImages.fingerprint(file.getAbsolutePath());
+      assertNotEquals(first, second);
+    } finally {
+      //noinspection ResultOfMethodCallIgnored
+      file.delete();
+    }
+  }
+
+  @Test
+  public void shouldReturnNoneForMissingFile() {
+    assertEquals("none", PreviewImages.fingerprint(new File("does-not-exist.png").getAbsolutePath()));
+  }
+
+}
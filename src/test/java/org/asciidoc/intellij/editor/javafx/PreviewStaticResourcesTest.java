@@ -0,0 +1,56 @@
+package org.asciidoc.intellij.editor.javafx;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PreviewStaticResourcesTest {
+
+  @Test
+  public void shouldServeRepeatedRequestsFromCache() throws IOException {
+    PreviewStaticResources resources = new PreviewStaticResources(JavaFxHtmlPanel.class);
+
+    PreviewStaticResources.Resource first = resources.get("darcula.css");
+    PreviewStaticResources.Resource second = resources.get("darcula.css");
+
+    assertThat(second).isSameAs(first);
+    assertThat(resources.getRequestCount()).isEqualTo(2);
+    assertThat(resources.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldUseContentHashAsEtag() throws IOException {
+    PreviewStaticResources resources = new PreviewStaticResources(JavaFxHtmlPanel.class);
+
+    PreviewStaticResources.Resource css = resources.get("darcula.css");
+    PreviewStaticResources.Resource otherCss = resources.get("coderay-darcula.css");
+
+    assertThat(css).isNotNull();
+    assertThat(otherCss).isNotNull();
+    assertThat(css.getEtag()).matches("\"[0-9a-f]{32}\"").isNotEqualTo(otherCss.getEtag());
+    assertThat(css.getGzippedEtag()).isNotEqualTo(css.getEtag());
+    assertThat(new PreviewStaticResources(JavaFxHtmlPanel.class).get("darcula.css").getEtag()).isEqualTo(css.getEtag());
+  }
+
+  @Test
+  public void shouldPrecompressText() throws IOException {
+    PreviewStaticResources.Resource css = new PreviewStaticResources(JavaFxHtmlPanel.class).get("darcula.css");
+
+    assertThat(css).isNotNull();
+    assertThat(css.getGzipped()).isNotNull();
+    try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(css.getGzipped()))) {
+      assertThat(is).hasSameContentAs(new ByteArrayInputStream(css.getContent()));
+    }
+  }
+
+  @Test
+  public void shouldReturnNullForMissingResource() throws IOException {
+    assertThat(new PreviewStaticResources(JavaFxHtmlPanel.class).get("does-not-exist.js")).isNull();
+  }
+
+}
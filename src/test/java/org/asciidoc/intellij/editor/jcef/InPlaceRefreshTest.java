@@ -0,0 +1,70 @@
+package org.asciidoc.intellij.editor.jcef;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InPlaceRefreshTest {
+
+  private static final String CONTENT = "<div id=\"content\">\n"
+    + "<div class=\"paragraph has-source-line data-line-stdin-1\">\n<p>first</p>\n</div>\n"
+    + "<div class=\"paragraph has-source-line data-line-stdin-3\">\n<p>second</p>\n</div>\n"
+    + "</div>";
+
+  private final List<String> scripts = new ArrayList<>();
+
+  @Test
+  public void shouldLoadPageOnFirstRendering() {
+    InPlaceRefresh refresh = new InPlaceRefresh();
+
+    assertFalse(refresh.update(CONTENT, 3, 1, this::execute));
+    assertTrue(scripts.isEmpty());
+  }
+
+  @Test
+  public void shouldPatchChangedBlock() {
+    InPlaceRefresh refresh = new InPlaceRefresh();
+    refresh.loaded(CONTENT, 1);
+
+    assertTrue(refresh.update(CONTENT.replace("second", "changed"), 3, 2, this::execute));
+    assertEquals(1, scripts.size());
+    assertTrue(scripts.get(0).startsWith("__IntelliJTools.patchContent("));
+    assertTrue(scripts.get(0).endsWith(", 3, 2, 1)"));
+  }
+
+  @Test
+  public void shouldReplaceUnparseableContentInPlace() {
+    InPlaceRefresh refresh = new InPlaceRefresh();
+    refresh.loaded(CONTENT, 1);
+
+    assertTrue(refresh.update("<div id=\"content\"><p>unclosed</div>", 3, 2, this::execute));
+    assertEquals(1, scripts.size());
+    assertEquals("__IntelliJTools.replaceContent('<div id=\\\"content\\\"><p>unclosed<\\/div>', 3, 2)", scripts.get(0));
+
+    // the next rendering can't be patched either, as the browser shows content that couldn't be parsed
+    assertTrue(refresh.update(CONTENT, 3, 3, this::execute));
+    assertTrue(scripts.get(1).startsWith("__IntelliJTools.replaceContent("));
+  }
+
+  @Test
+  public void shouldReplaceContentInPlaceWhenPatchFails() {
+    InPlaceRefresh refresh = new InPlaceRefresh();
+    refresh.loaded(CONTENT, 1);
+
+    assertTrue(refresh.update(CONTENT.replace("second", "changed"), 3, 2,
+      script -> execute(script) && !script.startsWith("__IntelliJTools.patchContent(")));
+    assertEquals(2, scripts.size());
+    assertTrue(scripts.get(1).startsWith("__IntelliJTools.replaceContent("));
+  }
+
+  private boolean execute(String script) {
+    scripts.add(script);
+    return true;
+  }
+
+}
@@ -0,0 +1,126 @@
+package org.asciidoc.intellij.folding;
+
+import com.intellij.lang.folding.FoldingDescriptor;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import org.asciidoc.intellij.file.AsciiDocFileType;
+import org.asciidoc.intellij.inspections.AsciiDocVisitor;
+import org.asciidoc.intellij.psi.AsciiDocAttributeReference;
+import org.asciidoc.intellij.psi.AsciiDocBlock;
+import org.asciidoc.intellij.psi.AsciiDocHtmlEntity;
+import org.asciidoc.intellij.psi.AsciiDocSection;
+import org.assertj.core.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AsciiDocFoldingBuilderTest extends BasePlatformTestCase {
+
+  public void testFoldsSectionsBlocksAttributesAndEntities() {
+    // given...
+    PsiFile file = myFixture.configureByText(AsciiDocFileType.INSTANCE,
+      "= Title\n\n== Section\n\nText with {nbsp} and &amp; and {imagesdir}.\n\n----\nlisting\n----\n");
+
+    // when...
+    List<String> folded = foldedTexts(file);
+
+    // then...
+    Assertions.assertThat(folded).contains("{nbsp}", "&amp;")
+      .doesNotContain("{imagesdir}")
+      .anyMatch(text -> text.startsWith("== Section"))
+      .anyMatch(text -> text.startsWith("----\nlisting"));
+  }
+
+  /**
+   * Compares the folding of a large document with the previous implementation,
+   * which visited the PSI tree recursively and computed two line numbers for each candidate.
+   * See <code>FoldingBenchmark</code> in the JMH benchmarks for the timing.
+   */
+  public void testSameFoldingAsVisitorOnLargeDocument() {
+    // given...
+    PsiFile file = myFixture.configureByText(AsciiDocFileType.INSTANCE, largeDocument(200));
+    Document document = myFixture.getEditor().getDocument();
+    List<FoldingDescriptor> expected = new ArrayList<>();
+    buildWithVisitor(expected, file, document);
+
+    // when...
+    List<FoldingDescriptor> actual = new ArrayList<>();
+    AsciiDocFoldingBuilder.buildFoldRegions(actual, file, document, true);
+
+    // then...
+    Assertions.assertThat(ranges(actual)).isNotEmpty().containsExactlyElementsOf(ranges(expected));
+  }
+
+  private static String largeDocument(int sections) {
+    StringBuilder sb = new StringBuilder("= Book\n\n");
+    for (int i = 0; i < sections; ++i) {
+      sb.append("== Section ").append(i).append("\n\n");
+      sb.append("Some text with {nbsp} and &amp; and {product}.\n");
+      sb.append("More text on another line.\n\n");
+      sb.append("----\nsome listing\nwith two lines\n----\n\n");
+      sb.append("====\nAn example with {imagesdir}.\n====\n\n");
+    }
+    return sb.toString();
+  }
+
+  private static List<String> foldedTexts(PsiFile file) {
+    List<FoldingDescriptor> descriptors = new ArrayList<>();
+    AsciiDocFoldingBuilder.buildFoldRegions(descriptors, file, file.getViewProvider().getDocument(), true);
+    List<String> result = new ArrayList<>();
+    for (FoldingDescriptor descriptor : descriptors) {
+      result.add(descriptor.getRange().substring(file.getText()));
+    }
+    return result;
+  }
+
+  private static List<TextRange> ranges(List<FoldingDescriptor> descriptors) {
+    List<TextRange> result = new ArrayList<>();
+    for (FoldingDescriptor descriptor : descriptors) {
+      result.add(descriptor.getRange());
+    }
+    return result;
+  }
+
+  /**
+   * The previous implementation with attribute folding enabled, as a reference for the expected folding.
+   */
+  private static void buildWithVisitor(List<FoldingDescriptor> descriptors, PsiElement root, Document document) {
+    root.accept(new AsciiDocVisitor() {
+      @Override
+      public void visitElement(PsiElement element) {
+        if (element instanceof AsciiDocAttributeReference) {
+          if (!element.getText().toLowerCase().endsWith("dir}")) {
+            addDescriptors(element);
+          }
+        } else if (element instanceof AsciiDocHtmlEntity) {
+          addDescriptors(element);
+        }
+        super.visitElement(element);
+        element.acceptChildren(this);
+      }
+
+      @Override
+      public void visitSections(AsciiDocSection section) {
+        addDescriptors(section);
+        super.visitSections(section);
+      }
+
+      @Override
+      public void visitBlocks(AsciiDocBlock block) {
+        addDescriptors(block);
+        super.visitBlocks(block);
+      }
+
+      private void addDescriptors(PsiElement element) {
+        if (document.getLineNumber(element.getTextRange().getStartOffset()) != document.getLineNumber(element.getTextRange().getEndOffset() - 1)
+          || element instanceof AsciiDocAttributeReference || element instanceof AsciiDocHtmlEntity) {
+          descriptors.add(new FoldingDescriptor(element, element.getTextRange()));
+        }
+      }
+    });
+  }
+
+}
@@ -0,0 +1,57 @@
+package org.asciidoc.intellij.injection;
+
+import com.intellij.lang.Language;
+import com.intellij.openapi.fileTypes.PlainTextLanguage;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import org.assertj.core.api.Assertions;
+
+import java.util.Map;
+
+public class LanguageGuesserTest extends BasePlatformTestCase {
+
+  public void testGuessLanguageOfSourceBlock() {
+    Assertions.assertThat(LanguageGuesser.guessLanguage("source-text")).isSameAs(PlainTextLanguage.INSTANCE);
+    Assertions.assertThat(LanguageGuesser.guessLanguage("source-unknownlanguage")).isNull();
+    Assertions.assertThat(LanguageGuesser.guessLanguage("quote")).isNull();
+  }
+
+  public void testReuseLanguageMapUntilPluginsChange() {
+    // given...
+    LanguageGuesser.clearCache();
+    Map<String, Language> first = LanguageGuesser.getLangToLanguageMap();
+
+    // when...
+    Map<String, Language> second = LanguageGuesser.getLangToLanguageMap();
+    LanguageGuesser.clearCache();
+    Map<String, Language> afterPluginChange = LanguageGuesser.getLangToLanguageMap();
+
+    // then...
+    Assertions.assertThat(second).isSameAs(first);
+    Assertions.assertThat(afterPluginChange).isNotSameAs(first).isEqualTo(first);
+  }
+
+  public void testPickUpLanguagesRegisteredAfterMapWasBuilt() {
+    // given...
+    LanguageGuesser.getLangToLanguageMap();
+
+    // when...
+    Language language = new Language("AsciiDocLazilyRegisteredLanguage") {
+    };
+
+    // then...
+    Assertions.assertThat(LanguageGuesser.getLangToLanguageMap()).containsEntry("asciidoclazilyregisteredlanguage", language);
+  }
+
+  public void testGuessLanguageRegisteredAfterMapWasBuilt() {
+    // given...
+    LanguageGuesser.guessLanguage("source-text");
+
+    // when...
+    Language language = new Language("AsciiDocLazilyGuessedLanguage") {
+    };
+
+    // then...
+    Assertions.assertThat(LanguageGuesser.guessLanguage("source-asciidoclazilyguessedlanguage")).isSameAs(language);
+  }
+
+}
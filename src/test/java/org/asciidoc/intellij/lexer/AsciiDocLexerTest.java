@@ -1,11 +1,16 @@
 package org.asciidoc.intellij.lexer;
 
 import com.intellij.lexer.Lexer;
+import com.intellij.lexer.RestartableLexer;
 import com.intellij.testFramework.LexerTestCase;
 import org.intellij.lang.annotations.Language;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+
 /**
  * @author yole
  */
@@ -2202,6 +2207,73 @@ public class AsciiDocLexerTest extends LexerTestCase {
         "AsciiDoc:TEXT ('word')");
   }
 
+  public void testRestartAtStartOfLinesInsideBlocks() {
+    String text = "= Title\n\n" +
+      "====\n" +
+      "Text with *bold\nand* _italic_.\n\n" +
+      "[source,java]\n" +
+      "----\n" +
+      "code\n" +
+      "----\n\n" +
+      "|===\n" +
+      "|cell a|cell b\n" +
+      "a|* item\n" +
+      "|===\n\n" +
+      "****\n" +
+      "sidebar `mono`\n" +
+      "****\n" +
+      "====\n" +
+      "end\n";
+    List<String> expected = tokens(text, 0, 0);
+    Lexer lexer = createLexer();
+    lexer.start(text);
+    int restarts = 0;
+    int index = 0;
+    while (lexer.getTokenType() != null) {
+      int state = lexer.getState();
+      if (((RestartableLexer) lexer).isRestartableState(state) && lexer.getTokenStart() > 0) {
+        assertEquals("restart at offset " + lexer.getTokenStart(),
+          expected.subList(index, expected.size()), tokens(text, lexer.getTokenStart(), state));
+        ++restarts;
+      }
+      ++index;
+      lexer.advance();
+    }
+    // restarting is possible at the start of lines inside of the example block
+    assertTrue(restarts > 10);
+  }
+
+  public void testKeepOnlyRecentlyUsedStates() {
+    Stack<Integer> stateStack = new Stack<>();
+    stateStack.push(1);
+    Stack<String> blockStack = new Stack<>();
+    AsciiDocLexerState first = AsciiDocLexerState.of(stateStack, blockStack, 0, "style0", (char) 0, 0, 0);
+    int encoded = AsciiDocLexerState.encode(1, first, true);
+    assertTrue(AsciiDocLexerState.isRestartable(encoded));
+
+    for (int i = 1; i <= AsciiDocLexerState.MAX_STATES; ++i) {
+      AsciiDocLexerState.of(stateStack, blockStack, 0, "style" + i, (char) 0, 0, 0);
+    }
+
+    // the oldest state has been dropped, and the editor can't restart from it anymore
+    assertTrue(AsciiDocLexerState.size() <= AsciiDocLexerState.MAX_STATES);
+    assertTrue(first.isDropped());
+    assertFalse(AsciiDocLexerState.isRestartable(encoded));
+    AsciiDocLexerState again = AsciiDocLexerState.of(stateStack, blockStack, 0, "style0", (char) 0, 0, 0);
+    assertTrue(AsciiDocLexerState.isRestartable(AsciiDocLexerState.encode(1, again, true)));
+  }
+
+  private List<String> tokens(String text, int start, int state) {
+    Lexer lexer = createLexer();
+    lexer.start(text, start, text.length(), state);
+    List<String> result = new ArrayList<>();
+    while (lexer.getTokenType() != null) {
+      result.add(lexer.getTokenType() + " " + lexer.getTokenStart() + " " + lexer.getState());
+      lexer.advance();
+    }
+    return result;
+  }
+
   @Override
   protected void doTest(@Language("asciidoc") @NonNls String text, @Nullable String expected) {
     super.doTest(text, expected);
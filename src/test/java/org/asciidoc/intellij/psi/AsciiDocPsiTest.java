@@ -2,14 +2,24 @@ package org.asciidoc.intellij.psi;
 
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiReference;
 import com.intellij.psi.PsiWhiteSpace;
+import com.intellij.psi.ResolveResult;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.ReferencesSearch;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import org.asciidoc.intellij.antora.AntoraComponent;
+import org.asciidoc.intellij.antora.AntoraComponentIndex;
+import org.asciidoc.intellij.antora.AntoraModel;
 import org.asciidoc.intellij.file.AsciiDocFileType;
 import org.asciidoc.intellij.lexer.AsciiDocTokenTypes;
 import org.asciidoc.intellij.parser.AsciiDocElementTypes;
@@ -17,9 +27,12 @@ import org.assertj.core.api.Assertions;
 import org.intellij.lang.annotations.Language;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Tests for {@link org.asciidoc.intellij.parser.AsciiDocParserImpl}.
@@ -513,6 +526,11 @@ public class AsciiDocPsiTest extends BasePlatformTestCase {
     assertSingleListEntry(AsciiDocUtil.replaceAntoraPrefix(macros[0], "1.0@test.adoc", "page"), "/src/antoraModule/componentV1/modules/ROOT/pages/test.adoc");
     assertSingleListEntry(AsciiDocUtil.replaceAntoraPrefix(macros[0], "my-component:module:test.adoc", "page"), "/src/antoraModule/componentV2/modules/module/pages/test.adoc");
 
+    List<AntoraComponentIndex.Component> components = AntoraComponentIndex.findComponents(getProject(), "my-component");
+    assertSize(2, components);
+    Assertions.assertThat(components).extracting(AntoraComponentIndex.Component::getVersion).containsExactlyInAnyOrder("1.0", "2.0");
+    Assertions.assertThat(components.get(0).getModuleDirs()).extracting(VirtualFile::getName).containsExactlyInAnyOrder("ROOT", "module");
+
     // image
     assertSize(1, macros[0].getReferences());
     // finish test here. Reference will not resolve in the test, files are "temp://" files
@@ -546,6 +564,199 @@ public class AsciiDocPsiTest extends BasePlatformTestCase {
 
   }
 
+  public void testAntoraModelIsCachedUntilModified() {
+    // given...
+    PsiFile antoraFile = myFixture.addFileToProject("antora.yml", "name: my-component\nversion: '1.0'\nnav:\n- modules/ROOT/nav.adoc\n");
+    AntoraModel antoraModel = AntoraModel.getInstance(getProject());
+
+    // when...
+    AntoraComponent first = antoraModel.getComponent(antoraFile.getVirtualFile());
+    AntoraComponent second = antoraModel.getComponent(antoraFile.getVirtualFile());
+
+    // then...
+    assertSame(first, second);
+    assertEquals("my-component", first.getName());
+    assertEquals("1.0", first.getVersion());
+    assertEquals(Collections.singletonList("modules/ROOT/nav.adoc"), first.getNav());
+
+    // when...
+    Document document = Objects.requireNonNull(FileDocumentManager.getInstance().getDocument(antoraFile.getVirtualFile()));
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> document.setText("name: other-component\nversion: '2.0'\n"));
+
+    // then...
+    AntoraComponent third = antoraModel.getComponent(antoraFile.getVirtualFile());
+    assertNotSame(first, third);
+    assertEquals("other-component", third.getName());
+    assertEquals("2.0", third.getVersion());
+  }
+
+  public void testFileReferenceResolvesAgainWhenFileIsCreated() {
+    // given...
+    PsiFile psiFile = myFixture.addFileToProject("main.adoc", ":dir: sub\n\ninclude::{dir}/other.adoc[]\n");
+    AsciiDocBlockMacro blockMacro = PsiTreeUtil.findChildOfType(psiFile, AsciiDocBlockMacro.class);
+    assertNotNull(blockMacro);
+    PsiReference[] references = blockMacro.getReferences();
+    AsciiDocFileReference reference = (AsciiDocFileReference) references[references.length - 1];
+    assertEquals(0, reference.multiResolve(false).length);
+
+    // when...
+    PsiFile other = myFixture.addFileToProject("sub/other.adoc", "= Other");
+
+    // then...
+    references = blockMacro.getReferences();
+    reference = (AsciiDocFileReference) references[references.length - 1];
+    ResolveResult[] results = reference.multiResolve(false);
+    assertEquals(1, results.length);
+    assertEquals(other, results[0].getElement());
+    assertSame(results, reference.multiResolve(false));
+  }
+
+  public void testIncludedFilesAndBlockIdsFromStubs() {
+    // given...
+    AsciiDocFile main = (AsciiDocFile) myFixture.addFileToProject("main.adoc", "= Main\n\ninclude::part.adoc[]\n");
+    AsciiDocFile part = (AsciiDocFile) myFixture.addFileToProject("part.adoc", "[[own]]\n== Own ID\n\n== Section Title\n\ninclude::sub/nested.adoc[]\n");
+    AsciiDocFile nested = (AsciiDocFile) myFixture.addFileToProject("sub/nested.adoc", "[[nested]]\ntext\n\ninclude::../main.adoc[]\n");
+
+    // when...
+    List<AsciiDocFile> includedFiles = AsciiDocUtil.findIncludedFiles(main);
+    List<LookupElementBuilder> items = new ArrayList<>();
+    AsciiDocUtil.findBlockIds(items, main, 0);
+
+    // then...
+    Assertions.assertThat(includedFiles).containsExactly(main, part, nested);
+    Assertions.assertThat(items).extracting(LookupElementBuilder::getLookupString)
+      .contains("own", "nested", "_section_title")
+      .doesNotContain("_own_id");
+    assertFalse("files should have been analyzed using their stubs", part.isContentsLoaded());
+  }
+
+  public void testIncludeGraphFindsRootDocuments() {
+    // given...
+    PsiFile main = myFixture.addFileToProject("main.adoc", "= Main\n\ninclude::chapter.adoc[]\n");
+    PsiFile chapter = myFixture.addFileToProject("chapter.adoc", "== Chapter\n\ninclude::parts/part.adoc[]\n");
+    PsiFile other = myFixture.addFileToProject("other.adoc", ":partsdir: parts\n\n= Other\n\ninclude::{partsdir}/part.adoc[]\n");
+    PsiFile part = myFixture.addFileToProject("parts/part.adoc", "text\n");
+    AsciiDocIncludeGraph graph = AsciiDocIncludeGraph.getInstance(getProject());
+
+    // when...
+    Set<VirtualFile> roots = graph.getRootDocuments(part.getVirtualFile());
+
+    // then...
+    Assertions.assertThat(roots).containsExactlyInAnyOrder(main.getVirtualFile(), other.getVirtualFile());
+    Assertions.assertThat(graph.getIncludingFiles(part.getVirtualFile()))
+      .containsExactlyInAnyOrder(chapter.getVirtualFile(), other.getVirtualFile());
+    Assertions.assertThat(graph.getIncludedFilesTransitively(main.getVirtualFile()))
+      .containsExactly(chapter.getVirtualFile(), part.getVirtualFile());
+    Assertions.assertThat(graph.getRootDocuments(main.getVirtualFile())).containsExactly(main.getVirtualFile());
+
+    // when...
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+      Document document = PsiDocumentManager.getInstance(getProject()).getDocument(chapter);
+      assertNotNull(document);
+      document.setText("== Chapter\n");
+      PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+    });
+
+    // then...
+    Assertions.assertThat(graph.getRootDocuments(part.getVirtualFile())).containsExactly(other.getVirtualFile());
+  }
+
+  public void testIncludeGraphKeepsRelationsOfUnrelatedFiles() {
+    // given...
+    PsiFile main = myFixture.addFileToProject("main.adoc", "= Main\n\ninclude::chapter.adoc[]\n");
+    PsiFile chapter = myFixture.addFileToProject("chapter.adoc", "== Chapter\n");
+    PsiFile other = myFixture.addFileToProject("other.adoc", "= Other\n");
+    AsciiDocIncludeGraph graph = AsciiDocIncludeGraph.getInstance(getProject());
+    Set<VirtualFile> roots = graph.getRootDocuments(chapter.getVirtualFile());
+    Assertions.assertThat(roots).containsExactly(main.getVirtualFile());
+
+    // when...
+    setText(other, "= Other\n\nSome text.\n");
+
+    // then...
+    Assertions.assertThat(graph.getRootDocuments(chapter.getVirtualFile())).isSameAs(roots);
+
+    // when...
+    setText(main, "= Main\n");
+
+    // then...
+    Assertions.assertThat(graph.getRootDocuments(chapter.getVirtualFile())).containsExactly(chapter.getVirtualFile());
+  }
+
+  private void setText(PsiFile file, String text) {
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+      Document document = PsiDocumentManager.getInstance(getProject()).getDocument(file);
+      assertNotNull(document);
+      document.setText(text);
+      PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+    });
+  }
+
+  public void testFindUsagesOfBlockIdFromIndex() {
+    // given...
+    PsiFile main = myFixture.addFileToProject("main.adoc", "[[anchor]]\n== Section\n\nThe anchor in plain text.\n");
+    myFixture.addFileToProject("other.adoc", "<<main.adoc#anchor,Text>> and xref:main.adoc#anchor[] but not anchor.\n");
+    AsciiDocBlockId blockId = PsiTreeUtil.findChildOfType(main, AsciiDocBlockId.class);
+    assertNotNull(blockId);
+
+    // when...
+    Collection<PsiReference> references = ReferencesSearch.search(blockId, GlobalSearchScope.projectScope(getProject())).findAll();
+
+    // then...
+    Assertions.assertThat(references).hasSize(2)
+      .allMatch(reference -> reference.getElement().getContainingFile().getName().equals("other.adoc"));
+  }
+
+  public void testAttributeValuesMergeAntoraAndDeclaredAttributes() {
+    // given...
+    myFixture.addFileToProject("antora.yml", "name: my-component\nversion: '1.0'\nasciidoc:\n  attributes:\n    product: Antora Product\n");
+    PsiFile page = myFixture.addFileToProject("modules/ROOT/pages/index.adoc", ":version: 1.0\n\n{product} {version}\n");
+    PsiFile other = myFixture.addFileToProject("other.adoc", ":Version: 2.0\n");
+
+    // when...
+    AsciiDocAttributeValues values = AsciiDocAttributeValues.forElement(page);
+
+    // then...
+    Assertions.assertThat(values.getValues("product")).containsExactly("Antora Product");
+    Assertions.assertThat(values.getValues("VERSION")).containsExactlyInAnyOrder("1.0", "2.0");
+    Assertions.assertThat(AsciiDocAttributeValues.forElement(other).getValues("product")).isEmpty();
+
+    // when...
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+      Document document = PsiDocumentManager.getInstance(getProject()).getDocument(other);
+      assertNotNull(document);
+      document.setText(":version: 1.0\n");
+      PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+    });
+
+    // then...
+    Assertions.assertThat(AsciiDocAttributeValues.forElement(page).getValues("version")).containsExactly("1.0");
+  }
+
+  public void testAntoraDirectoriesAreUpdatedWhenDirectoryIsCreated() {
+    // given...
+    PsiFile antoraFile = myFixture.addFileToProject("antora.yml", "name: my-component\nversion: '1.0'\n");
+    PsiFile page = myFixture.addFileToProject("modules/ROOT/pages/index.adoc", "= Page");
+    VirtualFile projectBase = antoraFile.getVirtualFile().getParent();
+    VirtualFile pagesDir = page.getVirtualFile().getParent();
+
+    // when...
+    VirtualFile moduleDir = AsciiDocUtil.findAntoraModuleDir(projectBase, pagesDir);
+
+    // then...
+    assertNotNull(moduleDir);
+    assertEquals("ROOT", moduleDir.getName());
+    assertEquals(pagesDir, AsciiDocUtil.findAntoraPagesDir(projectBase, pagesDir));
+    assertNull(AsciiDocUtil.findAntoraImagesDir(projectBase, pagesDir));
+
+    // when...
+    PsiFile image = myFixture.addFileToProject("modules/ROOT/images/image.txt", "");
+
+    // then...
+    assertEquals(image.getVirtualFile().getParent(), AsciiDocUtil.findAntoraImagesDir(projectBase, pagesDir));
+    assertEquals("../images", AsciiDocUtil.findAntoraImagesDirRelative(projectBase, pagesDir));
+  }
+
   @SuppressWarnings("checkstyle:AvoidNestedBlocks")
   public void testAntoraImageXref() {
     // given...
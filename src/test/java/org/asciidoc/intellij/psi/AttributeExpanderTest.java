@@ -0,0 +1,160 @@
+package org.asciidoc.intellij.psi;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AttributeExpanderTest {
+
+  private final Map<String, Collection<String>> declarations = new HashMap<>();
+
+  @Test
+  public void shouldExpandAllCombinationsInOrderOfDeclarations() {
+    declarations.put("a", Arrays.asList("x", "y"));
+    declarations.put("b", Arrays.asList("1", "2"));
+
+    List<String> result = expander(directory -> true, 1000).expand("{a}/{b}.adoc");
+
+    assertThat(result).containsExactly("x/1.adoc", "x/2.adoc", "y/1.adoc", "y/2.adoc");
+  }
+
+  @Test
+  public void shouldExpandAttributesInValues() {
+    declarations.put("partialsdir", Collections.singletonList("{moduledir}/partials"));
+    declarations.put("moduledir", Collections.singletonList("modules/ROOT"));
+
+    List<String> result = expander(directory -> true, 1000).expand("{partialsdir}/file.adoc");
+
+    assertThat(result).containsExactly("modules/ROOT/partials/file.adoc");
+  }
+
+  @Test
+  public void shouldNotExpandUndeclaredAttributes() {
+    declarations.put("a", Collections.singletonList("x"));
+
+    assertThat(expander(directory -> true, 1000).expand("{a}/{undeclared}.adoc")).isEmpty();
+  }
+
+  @Test
+  public void shouldStopRecursiveAttributesAtMaximumDepth() {
+    declarations.put("a", Arrays.asList("{a}x", "y"));
+
+    AttributeExpander expander = expander(directory -> true, 1000);
+    List<String> result = expander.expand("{a}");
+
+    // each level adds one "x", until the maximum depth of 10 is reached
+    assertThat(result).hasSize(10).contains("y", "yxxxxxxxxx");
+    assertThat(expander.isBudgetExhausted()).isFalse();
+  }
+
+  @Test
+  public void shouldExpandSamePartialExpansionOnlyOnce() {
+    // both "{a}{b}" with a=1,b= and a=,b=1 lead to "1{c}"
+    declarations.put("a", Arrays.asList("1", ""));
+    declarations.put("b", Arrays.asList("", "1"));
+    declarations.put("c", Arrays.asList("x", "y"));
+
+    AttributeExpander expander = expander(directory -> true, 1000);
+    List<String> result = expander.expand("{a}{b}{c}");
+
+    assertThat(result).containsExactly("1x", "1y", "11x", "11y", "x", "y");
+    // the full product would need 1 + 2 + 4 + 8 steps, "1{c}" and its two expansions are calculated only once
+    assertThat(expander.getSteps()).isEqualTo(12);
+  }
+
+  @Test
+  public void shouldNotExpandBelowMissingDirectories() {
+    declarations.put("a", Arrays.asList("exists", "missing"));
+    declarations.put("b", Arrays.asList("1", "2"));
+    Set<String> checked = new HashSet<>();
+
+    List<String> result = expander(directory -> {
+      checked.add(directory);
+      return directory.equals("exists/");
+    }, 1000).expand("{a}/{b}.adoc");
+
+    assertThat(result).containsExactly("exists/1.adoc", "exists/2.adoc");
+    assertThat(checked).containsExactlyInAnyOrder("exists/", "missing/");
+  }
+
+  @Test
+  public void shouldStopWhenBudgetIsExhausted() {
+    declarations.put("a", values("a", 20));
+    declarations.put("b", values("b", 20));
+
+    AttributeExpander expander = expander(directory -> true, 100);
+    List<String> result = expander.expand("{a}/{b}.adoc");
+
+    assertThat(expander.isBudgetExhausted()).isTrue();
+    assertThat(expander.getSteps()).isEqualTo(100);
+    assertThat(result).hasSizeLessThan(100);
+  }
+
+  /**
+   * A path with three attributes with <i>n</i> declarations each has <i>n</i>³ combinations.
+   * As only one directory exists on each level, the number of expansions grows linearly.
+   */
+  @Test
+  public void shouldScaleLinearlyWhenOnlyOneDirectoryExists() {
+    for (int n : new int[]{5, 10, 20, 40, 80}) {
+      declarations.put("a", values("a", n));
+      declarations.put("b", values("b", n));
+      declarations.put("c", values("c", n));
+      Set<String> directories = new HashSet<>(Arrays.asList("a0/", "a0/b0/"));
+
+      AttributeExpander expander = expander(directories::contains, AttributeExpander.DEFAULT_BUDGET);
+      List<String> result = expander.expand("{a}/{b}/{c}.adoc");
+
+      assertThat(result).hasSize(n);
+      assertThat(result.get(0)).isEqualTo("a0/b0/c0.adoc");
+      assertThat(expander.getSteps()).isEqualTo(1 + 3 * n);
+      assertThat(expander.isBudgetExhausted()).isFalse();
+    }
+  }
+
+  /**
+   * Without existing directories to prune the expansion, the budget keeps the number of expansions bounded.
+   */
+  @Test
+  public void shouldBeBoundedByBudgetWithoutDirectoriesToPrune() {
+    for (int n : new int[]{5, 10, 20, 40}) {
+      declarations.put("a", values("a", n));
+      declarations.put("b", values("b", n));
+      declarations.put("c", values("c", n));
+
+      AttributeExpander expander = expander(directory -> true, 1000);
+      List<String> result = expander.expand("{a}/{b}/{c}.adoc");
+
+      int expected = 1 + n + n * n + n * n * n;
+      assertThat(expander.getSteps()).isEqualTo(Math.min(expected, 1000));
+      assertThat(expander.isBudgetExhausted()).isEqualTo(expected > 1000);
+      if (!expander.isBudgetExhausted()) {
+        assertThat(result).hasSize(n * n * n);
+      }
+    }
+  }
+
+  private AttributeExpander expander(Predicate<String> directoryFilter, int budget) {
+    return new AttributeExpander(name -> declarations.getOrDefault(name, Collections.emptyList()), directoryFilter, 10, budget);
+  }
+
+  private static List<String> values(String prefix, int count) {
+    List<String> result = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      result.add(prefix + i);
+    }
+    return result;
+  }
+
+}